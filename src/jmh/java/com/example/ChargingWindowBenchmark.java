@@ -0,0 +1,82 @@
+package com.example;
+
+import com.example.api.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mäter fönstersökningen i {@link ChargingOptimizer} och {@link SlotScheduler} mot den
+ * ursprungliga sökningen som summerade om varje fönster från början.
+ * <p>
+ * 96 och 192 perioder motsvarar en respektive två dagar med kvartspriser, 35040 ett år.
+ * Fönstret är 8 perioder (2 h) eller 32 perioder (8 h).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChargingWindowBenchmark {
+
+    @Param({"96", "192", "35040"})
+    int size;
+
+    @Param({"8", "32"})
+    int window;
+
+    private double[] prices;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        prices = BenchmarkData.prices(size);
+        if (naive() != ChargingOptimizer.cheapest(prices, window).start()) {
+            throw new IllegalStateException("Sökningarna ger olika fönster");
+        }
+    }
+
+    @Benchmark
+    public int naive() {
+        int bestStart = 0;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i + window <= prices.length; i++) {
+            double sum = 0;
+            for (int j = i; j < i + window; j++) {
+                sum += prices[j];
+            }
+            if (sum < best) {
+                best = sum;
+                bestStart = i;
+            }
+        }
+        return bestStart;
+    }
+
+    @Benchmark
+    public ChargingOptimizer.Window slidingWindow() {
+        return ChargingOptimizer.cheapest(prices, window);
+    }
+
+    @Benchmark
+    public List<ChargingOptimizer.Window> topThree() {
+        return ChargingOptimizer.cheapest(prices, window, 3);
+    }
+
+    @Benchmark
+    public SlotScheduler.Schedule cheapestSlots() {
+        return SlotScheduler.cheapest(prices, window, SlotScheduler.Constraints.none(prices.length));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example;
+
+import com.example.api.BenchmarkData;
+import com.example.api.PriceSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mäter statistiken och den sorterade listan i {@link Main} för en dag med tim- och
+ * kvartspriser, två dagar, ett år och tre år med kvartspriser. {@link PriceStatistics}
+ * mäts både med den skalära slingan och med Vector API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class StatisticsBenchmark {
+
+    @Param({"24", "96", "192", "35040", "105120"})
+    int size;
+
+    private PriceSeries series;
+    private double[] prices;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        series = BenchmarkData.series(size);
+        prices = series.toPriceArray();
+    }
+
+    @Benchmark
+    public void minMaxMean(Blackhole bh) {
+        double min = prices[0];
+        double max = prices[0];
+        double sum = 0.0;
+        for (double pris : prices) {
+            if (pris < min) {
+                min = pris;
+            }
+            if (pris > max) {
+                max = pris;
+            }
+            sum += pris;
+        }
+        bh.consume(min);
+        bh.consume(max);
+        bh.consume(sum / prices.length);
+    }
+
+    @Benchmark
+    public PriceStatistics.Summary scalarKernel() {
+        return PriceStatistics.scalar(prices, 0, prices.length);
+    }
+
+    @Benchmark
+    public PriceStatistics.Summary vectorKernel() {
+        return VectorStatistics.of(prices, 0, prices.length);
+    }
+
+    @Benchmark
+    public double[] toPriceArray() {
+        return series.toPriceArray();
+    }
+
+    @Benchmark
+    public int[] sortedIndices() {
+        return series.sortedIndices();
+    }
+}
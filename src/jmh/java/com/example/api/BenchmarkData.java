@@ -0,0 +1,76 @@
+package com.example.api;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Genererar realistiska API-svar och prisserier för prestandamätningarna.
+ */
+public final class BenchmarkData {
+
+    // Samma format som API:et, med sekunder även när de är noll
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Skapar ett JSON-svar i API:ets format med {@code slots} perioder från 2025-10-01 00:00.
+     * 24 perioder motsvarar en dag med timpriser, 96 en dag med kvartspriser.
+     */
+    public static String json(int slots) {
+        return json(slots, LocalDate.of(2025, 10, 1));
+    }
+
+    /**
+     * Som {@link #json(int)} men med perioder från midnatt svensk tid den angivna dagen.
+     */
+    public static String json(int slots, LocalDate datum) {
+        Random random = new Random(42);
+        Duration slot = Duration.ofMinutes(slots % 24 == 0 && slots <= 48 ? 60 : 15);
+        ZonedDateTime start = datum.atStartOfDay(ZoneId.of("Europe/Stockholm"));
+        StringBuilder sb = new StringBuilder(slots * 140).append('[');
+        for (int i = 0; i < slots; i++) {
+            double sek = Math.round(random.nextGaussian() * 40_000 + 60_000) / 100_000.0;
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(String.format(Locale.US,
+                    "{\"SEK_per_kWh\":%s,\"EUR_per_kWh\":%s,\"EXR\":11.0245,\"time_start\":\"%s\",\"time_end\":\"%s\"}",
+                    sek, Math.round(sek / 11.0245 * 100_000) / 100_000.0,
+                    start.plus(slot.multipliedBy(i)).format(TIME),
+                    start.plus(slot.multipliedBy(i + 1)).format(TIME)));
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Skapar {@code n} slumpmässiga priser i SEK/kWh, inklusive enstaka negativa värden.
+     */
+    public static double[] prices(int n) {
+        Random random = new Random(7);
+        double[] prices = new double[n];
+        for (int i = 0; i < n; i++) {
+            prices[i] = random.nextGaussian() * 0.4 + 0.6;
+        }
+        return prices;
+    }
+
+    /**
+     * Skapar en serie med {@code n} kvartspriser från 2025-10-01 00:00, som {@link #prices(int)}.
+     */
+    public static PriceSeries series(int n) {
+        double[] prices = prices(n);
+        long start = ZonedDateTime.parse("2025-10-01T00:00:00+02:00").toEpochSecond();
+        PriceSeries.Builder builder = new PriceSeries.Builder(n);
+        for (int i = 0; i < n; i++) {
+            builder.add(prices[i], start + i * 900L, 7200, start + (i + 1) * 900L, 7200);
+        }
+        return builder.build();
+    }
+}
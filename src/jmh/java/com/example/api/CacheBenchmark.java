@@ -0,0 +1,120 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Prisklass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Mäter vägarna genom {@link ElpriserAPI#getPriceSeries(LocalDate, Prisklass)}:
+ * träff i minnes-cachen, miss som tolkar ett svar och miss som läser disk-cachen.
+ * <p>
+ * Missarna framkallas med en minnes-cache som rymmer en enda post och två datum
+ * som turas om, så varje anrop tränger ut det föregående.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+    private static final LocalDate DAY1 = LocalDate.of(2025, 10, 1);
+    private static final LocalDate DAY2 = DAY1.plusDays(1);
+
+    @State(Scope.Benchmark)
+    public abstract static class Base {
+        @Param({"24", "96"})
+        int slots;
+
+        ElpriserAPI api;
+        Path dir;
+        private boolean flip;
+
+        LocalDate nextDate() {
+            flip = !flip;
+            return flip ? DAY1 : DAY2;
+        }
+
+        void setup(int maxEntries) throws IOException {
+            dir = Files.createTempDirectory("elpriser-jmh");
+            api = ElpriserAPI.builder().cacheDir(dir).maxEntries(maxEntries).build();
+        }
+
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            ElpriserAPI.clearMockResponse();
+            if (dir != null) {
+                try (Stream<Path> files = Files.walk(dir)) {
+                    for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(p);
+                    }
+                }
+            }
+        }
+    }
+
+    // Med mock-data aktiv hoppar API:et över disk-cachen, så Memory och Parse mäter bara minnet och tolken
+
+    public static class Memory extends Base {
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            ElpriserAPI.setMockResponseForDate(DAY1, BenchmarkData.json(slots, DAY1));
+            setup(4096);
+            api.getPriceSeries(DAY1, Prisklass.SE3);
+        }
+    }
+
+    public static class Parse extends Base {
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            ElpriserAPI.setMockResponseForDate(DAY1, BenchmarkData.json(slots, DAY1));
+            ElpriserAPI.setMockResponseForDate(DAY2, BenchmarkData.json(slots, DAY2));
+            setup(1);
+        }
+    }
+
+    public static class Disk extends Base {
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            setup(1);
+            PriceStore store = new PriceStore(dir);
+            store.save(DAY1, Prisklass.SE3, ElprisJsonParser.parse(BenchmarkData.json(slots, DAY1)));
+            store.save(DAY2, Prisklass.SE3, ElprisJsonParser.parse(BenchmarkData.json(slots, DAY2)));
+        }
+    }
+
+    @Benchmark
+    public PriceSeries memoryHit(Memory state) {
+        return state.api.getPriceSeries(DAY1, Prisklass.SE3);
+    }
+
+    @Benchmark
+    public PriceSeries missParse(Parse state) {
+        return state.api.getPriceSeries(state.nextDate(), Prisklass.SE3);
+    }
+
+    @Benchmark
+    public PriceSeries missDisk(Disk state) {
+        return state.api.getPriceSeries(state.nextDate(), Prisklass.SE3);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jämför den strömmande tolken med den gamla split-baserade tolken
+ * för en dag med tim- och kvartspriser samt två dagars kvartspriser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonParserBenchmark {
+
+    @Param({"24", "96", "192"})
+    int slots;
+
+    private String json;
+    private ByteBuffer bytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        json = BenchmarkData.json(slots);
+        bytes = ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+        if (!LegacyJsonParser.parseSimpleJson(json).equals(ElprisJsonParser.parse(bytes))) {
+            throw new IllegalStateException("Tolkarna ger olika resultat");
+        }
+    }
+
+    @Benchmark
+    public List<ElpriserAPI.Elpris> legacySplitParser() {
+        return LegacyJsonParser.parseSimpleJson(json);
+    }
+
+    @Benchmark
+    public List<ElpriserAPI.Elpris> streamingParser() {
+        return ElprisJsonParser.parse(bytes);
+    }
+
+    @Benchmark
+    public int streamingParserPrimitiveSink(Blackhole bh) {
+        return ElprisJsonParser.parse(bytes, (sek, eur, exr, start, startOff, end, endOff) -> {
+            bh.consume(sek);
+            bh.consume(start);
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Den ursprungliga split-baserade tolken från ElpriserAPI, bevarad enbart som
+ * jämförelsepunkt i prestandamätningarna.
+ */
+final class LegacyJsonParser {
+
+    private LegacyJsonParser() {
+    }
+
+    static List<Elpris> parseSimpleJson(String json) {
+        List<Elpris> priser = new ArrayList<>();
+        String trimmedJson = json.trim();
+        if (!trimmedJson.startsWith("[") || !trimmedJson.endsWith("]")) {
+            return Collections.emptyList();
+        }
+        String content = trimmedJson.substring(1, trimmedJson.length() - 1).trim();
+        if (content.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String[] objects = content.split("}\\s*,\\s*\\{");
+
+        for (String objStr : objects) {
+            String cleanObjStr = objStr.replace("{", "").replace("}", "");
+            try {
+                Map<String, String> valueMap = new java.util.HashMap<>();
+                String[] pairs = cleanObjStr.split(",");
+                for (String pair : pairs) {
+                    String[] keyValue = pair.split(":", 2);
+                    String key = keyValue[0].trim().replace("\"", "");
+                    String value = keyValue[1].trim().replace("\"", "");
+                    valueMap.put(key, value);
+                }
+                priser.add(new Elpris(
+                        Double.parseDouble(valueMap.get("SEK_per_kWh")),
+                        Double.parseDouble(valueMap.get("EUR_per_kWh")),
+                        Double.parseDouble(valueMap.get("EXR")),
+                        ZonedDateTime.parse(valueMap.get("time_start")),
+                        ZonedDateTime.parse(valueMap.get("time_end"))
+                ));
+            } catch (Exception e) {
+                // Hoppa över objekt som inte kan parsas
+            }
+        }
+        return priser;
+    }
+}
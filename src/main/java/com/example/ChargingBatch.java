@@ -0,0 +1,472 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+import com.example.api.ElpriserAPI.Prisklass;
+import com.example.api.PriceSeries;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * Löser många laddningsförfrågningar i en och samma process, t.ex. en per fordon i en flotta.
+ * Förfrågningarna läses ur en fil med en förfrågan per rad, antingen CSV:
+ * <pre>
+ *   id,zone,earliest,deadline,duration,energy
+ *   bil-1,SE3,2025-09-04T18:00+02:00,2025-09-05T07:00+02:00,4h,40
+ * </pre>
+ * eller JSON Lines med samma nycklar:
+ * <pre>
+ *   {"id":"bil-1","zone":"SE3","earliest":"2025-09-04T18:00+02:00","deadline":"2025-09-05T07:00+02:00","duration":"4h","energy":40}
+ * </pre>
+ * Tider utan offset avser svensk tid, och {@code energy} är kWh som fördelas jämnt över fönstret.
+ * Mellan earliest och deadline får det vara högst {@link #MAX_WINDOW_DAYS} dygn.
+ * <p>
+ * Priserna för varje zon hämtas en gång för de dagar som förfrågningarna berör. Förfrågningarna
+ * löses sedan parallellt i fork-join-poolen mot de gemensamma prisarrayerna, i block som skrivs
+ * till utfilen i samma ordning som indata. Formatet på utfilen följer dess filändelse.
+ */
+public final class ChargingBatch {
+
+    private static final ZoneId SVENSK_TID = ZoneId.of("Europe/Stockholm");
+    // Antal förfrågningar som löses parallellt innan resultaten skrivs
+    private static final int BLOCK = 4096;
+
+    /**
+     * Längsta tid mellan earliest och deadline. Priser publiceras som mest ett dygn framåt,
+     * så längre fönster är nästan alltid felskrivna tider som annars skulle hämta många dagar.
+     */
+    static final int MAX_WINDOW_DAYS = 3;
+
+    /**
+     * En förfrågan från indatafilen.
+     * @param line Radnummer i filen, räknat från 1.
+     * @param error Varför raden inte kunde tolkas, eller null.
+     */
+    record Request(int line, String id, Prisklass zone, long earliest, long deadline, int minutes,
+                   double energyKWh, String error) {
+
+        static Request invalid(int line, String id, String error) {
+            return new Request(line, id, null, 0, 0, 0, 0, error);
+        }
+    }
+
+    /**
+     * Svaret på en förfrågan.
+     * @param start Laddningens början, eller null om förfrågan inte kunde lösas.
+     * @param averagePrice Medelpris i SEK/kWh för fönstret.
+     * @param costSek Kostnad för energin om den fördelas jämnt över fönstret.
+     * @param error Varför förfrågan inte kunde lösas, eller null.
+     */
+    record Answer(String id, Prisklass zone, ZonedDateTime start, ZonedDateTime end, double averagePrice,
+                  double costSek, String error) {
+    }
+
+    /**
+     * Sammanfattning av en körning.
+     * @param requests Antal förfrågningar i indata.
+     * @param solved Antal som fick ett laddningsfönster.
+     */
+    public record Summary(int requests, int solved) {
+
+        public int failed() {
+            return requests - solved;
+        }
+    }
+
+    /**
+     * En serie för en följd av dagar i en zon och dess priser som en array, delade av alla
+     * förfrågningar som faller inom dagarna.
+     */
+    private record ZonePrices(PriceSeries series, double[] prices) {
+    }
+
+    private ChargingBatch() {
+    }
+
+    /**
+     * Läser förfrågningarna i {@code input}, löser dem och skriver svaren till {@code output}.
+     * Filer som slutar på ".jsonl" eller ".ndjson" läses och skrivs som JSON Lines, övriga som CSV.
+     */
+    public static Summary run(Path input, Path output, ElpriserAPI api) throws IOException {
+        List<Request> requests = read(input);
+        Map<Prisklass, TreeMap<LocalDate, ZonePrices>> priser = fetch(api, requests);
+
+        boolean json = isJsonLines(output);
+        int solved = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (!json) {
+                out.write("id,zone,start,end,averageSekPerKWh,costSek,error\n");
+            }
+            for (int from = 0; from < requests.size(); from += BLOCK) {
+                int to = Math.min(requests.size(), from + BLOCK);
+                Answer[] svar = IntStream.range(from, to).parallel()
+                        .mapToObj(i -> solve(requests.get(i), priser))
+                        .toArray(Answer[]::new);
+                for (Answer answer : svar) {
+                    out.write(json ? toJson(answer) : toCsv(answer));
+                    out.write('\n');
+                    if (answer.error() == null) {
+                        solved++;
+                    }
+                }
+            }
+        }
+        return new Summary(requests.size(), solved);
+    }
+
+    // --- Lösning ---
+
+    /**
+     * Hämtar priserna för de dagar som varje zons förfrågningar berör, och bara dem. Dagar i
+     * följd sätts ihop till en serie, som läggs under sin första dag. En förfrågan ryms alltid
+     * i en och samma serie eftersom dess dagar följer på varandra.
+     */
+    private static Map<Prisklass, TreeMap<LocalDate, ZonePrices>> fetch(ElpriserAPI api, List<Request> requests) {
+        Map<Prisklass, TreeSet<LocalDate>> dagar = new EnumMap<>(Prisklass.class);
+        for (Request request : requests) {
+            if (request.error() != null) {
+                continue;
+            }
+            TreeSet<LocalDate> zonensDagar = dagar.computeIfAbsent(request.zone(), z -> new TreeSet<>());
+            LocalDate till = day(request.deadline() - 1);
+            for (LocalDate datum = day(request.earliest()); !datum.isAfter(till); datum = datum.plusDays(1)) {
+                zonensDagar.add(datum);
+            }
+        }
+
+        Map<Prisklass, TreeMap<LocalDate, ZonePrices>> priser = new EnumMap<>(Prisklass.class);
+        dagar.forEach((zone, zonensDagar) -> {
+            TreeMap<LocalDate, ZonePrices> serier = new TreeMap<>();
+            LocalDate från = null;
+            LocalDate till = null;
+            for (LocalDate datum : zonensDagar) {
+                if (till != null && !datum.equals(till.plusDays(1))) {
+                    serier.put(från, load(api, zone, från, till));
+                    från = null;
+                }
+                if (från == null) {
+                    från = datum;
+                }
+                till = datum;
+            }
+            serier.put(från, load(api, zone, från, till));
+            priser.put(zone, serier);
+        });
+        return priser;
+    }
+
+    /** Hämtar dagarna parallellt till cachen och sätter ihop dem till en serie. */
+    private static ZonePrices load(ElpriserAPI api, Prisklass zone, LocalDate från, LocalDate till) {
+        api.getPriser(från, till, List.of(zone));
+        PriceSeries serie = api.getPriceSeries(från, till, zone).uniform();
+        return new ZonePrices(serie, serie.toPriceArray());
+    }
+
+    private static LocalDate day(long epochSecond) {
+        return LocalDate.ofInstant(Instant.ofEpochSecond(epochSecond), SVENSK_TID);
+    }
+
+    static Answer solve(Request request, Map<Prisklass, TreeMap<LocalDate, ZonePrices>> priser) {
+        if (request.error() != null) {
+            return failure(request, request.error());
+        }
+        ZonePrices zon = priser.get(request.zone()).floorEntry(day(request.earliest())).getValue();
+        PriceSeries serie = zon.series();
+        if (serie.isEmpty()) {
+            return failure(request, "Inga priser för zonen");
+        }
+        // Perioder som börjar vid eller efter earliest och slutar senast vid deadline
+        int from = firstStartAtOrAfter(serie, request.earliest());
+        int to = firstStartAtOrAfter(serie, request.deadline());
+        while (to > from && serie.endEpochSecond(to - 1) > request.deadline()) {
+            to--;
+        }
+        int slots = ChargingOptimizer.slotsFor(request.minutes(), serie.lengthSeconds(0));
+        ChargingOptimizer.Window window = ChargingOptimizer.cheapest(zon.prices(), from, to, slots);
+        if (window == null) {
+            return failure(request, "Fönstret får inte plats mellan earliest och deadline");
+        }
+        return new Answer(request.id(), request.zone(), serie.timeStart(window.start()),
+                serie.timeEnd(window.end() - 1), window.average(), request.energyKWh() * window.average(), null);
+    }
+
+    private static Answer failure(Request request, String error) {
+        return new Answer(request.id(), request.zone(), null, null, 0, 0, error);
+    }
+
+    private static int firstStartAtOrAfter(PriceSeries serie, long epochSecond) {
+        int lo = 0;
+        int hi = serie.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (serie.startEpochSecond(mid) < epochSecond) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // --- Indata ---
+
+    static List<Request> read(Path input) throws IOException {
+        boolean json = isJsonLines(input);
+        List<Request> requests = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String rad;
+            int nummer = 0;
+            while ((rad = in.readLine()) != null) {
+                nummer++;
+                String text = rad.strip();
+                if (text.isEmpty() || text.startsWith("#")) {
+                    continue;
+                }
+                if (json) {
+                    requests.add(parseJson(nummer, text));
+                } else if (nummer > 1 || !text.regionMatches(true, 0, "id", 0, 2)) {
+                    requests.add(parseCsv(nummer, text));
+                }
+            }
+        }
+        return requests;
+    }
+
+    static Request parseCsv(int line, String text) {
+        String separator = text.indexOf(';') >= 0 ? ";" : ",";
+        String[] fält = text.split(separator, -1);
+        if (fält.length < 6) {
+            return Request.invalid(line, fält[0].strip(), "Förväntade 6 kolumner: id, zone, earliest, deadline, duration, energy");
+        }
+        String energi = fält[5].strip();
+        if (separator.equals(";")) {
+            energi = energi.replace(',', '.');
+        }
+        return request(line, fält[0].strip(), fält[1].strip(), fält[2].strip(), fält[3].strip(), fält[4].strip(), energi);
+    }
+
+    static Request parseJson(int line, String text) {
+        Map<String, String> fält;
+        try {
+            fält = parseFlatObject(text);
+        } catch (IllegalArgumentException e) {
+            return Request.invalid(line, "rad " + line, e.getMessage());
+        }
+        String id = fält.getOrDefault("id", "rad " + line);
+        return request(line, id, fält.get("zone"), fält.get("earliest"), fält.get("deadline"),
+                fält.get("duration"), fält.getOrDefault("energy", "0"));
+    }
+
+    private static Request request(int line, String id, String zone, String earliest, String deadline,
+                                   String duration, String energy) {
+        if (zone == null || earliest == null || deadline == null || duration == null) {
+            return Request.invalid(line, id, "zone, earliest, deadline och duration måste anges");
+        }
+        Prisklass prisklass;
+        try {
+            prisklass = Prisklass.valueOf(zone.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Request.invalid(line, id, "Ogiltig zon: " + zone);
+        }
+        long start;
+        long slut;
+        try {
+            start = parseTime(earliest);
+            slut = parseTime(deadline);
+        } catch (DateTimeParseException e) {
+            return Request.invalid(line, id, "Ogiltig tid: " + e.getParsedString());
+        }
+        if (slut <= start) {
+            return Request.invalid(line, id, "deadline måste vara efter earliest");
+        }
+        if (slut - start > MAX_WINDOW_DAYS * 86_400L) {
+            return Request.invalid(line, id, "Högst " + MAX_WINDOW_DAYS + " dygn mellan earliest och deadline");
+        }
+        int minuter = Main.parseMinutes(duration);
+        if (minuter <= 0) {
+            return Request.invalid(line, id, "Ogiltig längd: " + duration);
+        }
+        double kWh;
+        try {
+            kWh = energy.isEmpty() ? 0.0 : Double.parseDouble(energy);
+        } catch (NumberFormatException e) {
+            return Request.invalid(line, id, "Ogiltig energi: " + energy);
+        }
+        return new Request(line, id, prisklass, start, slut, minuter, kWh, null);
+    }
+
+    /** Tolkar en tid med offset, eller utan offset i svensk tid. */
+    private static long parseTime(String text) {
+        try {
+            return OffsetDateTime.parse(text).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(text).atZone(SVENSK_TID).toEpochSecond();
+        }
+    }
+
+    /**
+     * Tolkar ett platt JSON-objekt med strängar, tal, true, false och null som värden.
+     * Alla värden returneras som text.
+     * @throws IllegalArgumentException om raden inte är ett sådant objekt.
+     */
+    static Map<String, String> parseFlatObject(String text) {
+        Map<String, String> fält = new HashMap<>();
+        int[] pos = {skipSpace(text, 0)};
+        expect(text, pos, '{');
+        if (peek(text, pos) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                String key = readString(text, pos);
+                expect(text, pos, ':');
+                String value = peek(text, pos) == '"' ? readString(text, pos) : readLiteral(text, pos);
+                if (value != null) {
+                    fält.put(key, value);
+                }
+                char c = peek(text, pos);
+                pos[0]++;
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw new IllegalArgumentException("Förväntade ',' eller '}' vid position " + (pos[0] - 1));
+                }
+            }
+        }
+        if (skipSpace(text, pos[0]) != text.length()) {
+            throw new IllegalArgumentException("Oväntad text efter objektet");
+        }
+        return fält;
+    }
+
+    private static String readString(String text, int[] pos) {
+        expect(text, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        int i = pos[0];
+        while (i < text.length() && text.charAt(i) != '"') {
+            char c = text.charAt(i++);
+            if (c == '\\' && i < text.length()) {
+                char e = text.charAt(i++);
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (i + 4 > text.length()) {
+                            throw new IllegalArgumentException("Ofullständig escape-sekvens");
+                        }
+                        sb.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+                        i += 4;
+                    }
+                    default -> sb.append(e);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        if (i >= text.length()) {
+            throw new IllegalArgumentException("Sträng saknar avslutande citattecken");
+        }
+        pos[0] = i + 1;
+        return sb.toString();
+    }
+
+    /** Läser ett tal eller literal. null ger null. */
+    private static String readLiteral(String text, int[] pos) {
+        int start = skipSpace(text, pos[0]);
+        int i = start;
+        while (i < text.length() && ",} \t".indexOf(text.charAt(i)) < 0) {
+            i++;
+        }
+        if (i == start) {
+            throw new IllegalArgumentException("Förväntade ett värde vid position " + start);
+        }
+        pos[0] = i;
+        String value = text.substring(start, i);
+        return value.equals("null") ? null : value;
+    }
+
+    private static char peek(String text, int[] pos) {
+        pos[0] = skipSpace(text, pos[0]);
+        if (pos[0] >= text.length()) {
+            throw new IllegalArgumentException("Oväntat slut på raden");
+        }
+        return text.charAt(pos[0]);
+    }
+
+    private static void expect(String text, int[] pos, char c) {
+        if (peek(text, pos) != c) {
+            throw new IllegalArgumentException("Förväntade '" + c + "' vid position " + pos[0]);
+        }
+        pos[0]++;
+    }
+
+    private static int skipSpace(String text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // --- Utdata ---
+
+    private static boolean isJsonLines(Path file) {
+        String namn = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return namn.endsWith(".jsonl") || namn.endsWith(".ndjson");
+    }
+
+    static String toCsv(Answer answer) {
+        return csvField(answer.id()) + "," + (answer.zone() == null ? "" : answer.zone()) + ","
+                + (answer.start() == null ? ",,,"
+                        : answer.start().toOffsetDateTime() + "," + answer.end().toOffsetDateTime() + ","
+                        + csvNumber(answer.averagePrice()) + "," + csvNumber(answer.costSek()))
+                + "," + (answer.error() == null ? "" : csvField(answer.error()));
+    }
+
+    static String toJson(Answer answer) {
+        StringBuilder json = new StringBuilder(160);
+        json.append("{\"id\":").append(PriceServer.jsonString(answer.id()));
+        if (answer.zone() != null) {
+            json.append(",\"zone\":\"").append(answer.zone()).append('"');
+        }
+        if (answer.error() != null) {
+            json.append(",\"error\":").append(PriceServer.jsonString(answer.error()));
+        } else {
+            json.append(",\"start\":\"").append(answer.start().toOffsetDateTime())
+                    .append("\",\"end\":\"").append(answer.end().toOffsetDateTime())
+                    .append("\",\"averageSekPerKWh\":").append(PriceServer.jsonNumber(answer.averagePrice()))
+                    .append(",\"costSek\":").append(PriceServer.jsonNumber(answer.costSek()));
+        }
+        return json.append('}').toString();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String csvNumber(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "";
+    }
+}
@@ -0,0 +1,269 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+import com.example.api.ElpriserAPI.Prisklass;
+import com.example.api.PriceSeries;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Planeringshorisont för laddning som börjar i den pågående perioden och sträcker sig över
+ * alla publicerade priser, idag och imorgon om de finns. Horisonten kan förlängas med en
+ * enkel prognos: för varje period medelpriset samma veckodag och tid de senaste veckorna,
+ * läst ur cachen.
+ * <p>
+ * Horisonten är tänkt att leva länge, t.ex. i serverläget. {@link #refresh()} hämtar nya
+ * priser och {@link #cheapest(int)} räknar bara om det som ändrats sedan förra anropet:
+ * <ul>
+ *   <li>när klockan går vidare är förra bästa fönstret fortfarande bäst om det inte börjat</li>
+ *   <li>när morgondagens priser publiceras prövas bara fönster som slutar i de nya perioderna,
+ *       och fönster som byggde på prognosen räknas om</li>
+ * </ul>
+ * Fönster som börjar före den pågående perioden tas aldrig med. Klassen är trådsäker.
+ */
+public final class ChargingHorizon {
+
+    private static final ZoneId SVENSK_TID = ZoneId.of("Europe/Stockholm");
+
+    /**
+     * Högsta antal veckors historik i prognosen. Varje vecka är en dag att läsa per
+     * prognosdygn, och dagar som inte finns i cachen hämtas från nätverket.
+     */
+    public static final int MAX_FORECAST_WEEKS = 8;
+
+    /**
+     * Ett fönster i horisonten.
+     * @param start Index i {@link #horizon()} för första perioden.
+     * @param length Antal perioder.
+     * @param sum Summan av priserna i fönstret.
+     * @param forecast Om fönstret helt eller delvis bygger på prognosen.
+     */
+    public record Plan(int start, int length, double sum, boolean forecast) {
+
+        public int end() {
+            return start + length;
+        }
+
+        public double average() {
+            return sum / length;
+        }
+    }
+
+    // Bästa fönstret bland starter i [validFrom, evaluatedTo - length]
+    private record Best(int start, int length, double sum, int validFrom, int evaluatedTo) {
+    }
+
+    private final ElpriserAPI api;
+    private final Prisklass prisklass;
+    private final Clock clock;
+    private final int forecastWeeks;
+
+    private LocalDate day;
+    private PriceSeries published = PriceSeries.empty();
+    private PriceSeries horizon = PriceSeries.empty();
+    private double[] prefix = new double[1];
+    private final Map<Integer, Best> best = new HashMap<>();
+
+    /**
+     * @param forecastWeeks Antal veckors historik i prognosen, 0 för ingen prognos och
+     *                      högst {@link #MAX_FORECAST_WEEKS}.
+     */
+    public ChargingHorizon(ElpriserAPI api, Prisklass prisklass, Clock clock, int forecastWeeks) {
+        if (forecastWeeks < 0 || forecastWeeks > MAX_FORECAST_WEEKS) {
+            throw new IllegalArgumentException("forecastWeeks måste vara mellan 0 och " + MAX_FORECAST_WEEKS);
+        }
+        this.api = api;
+        this.prisklass = prisklass;
+        this.clock = clock;
+        this.forecastWeeks = forecastWeeks;
+    }
+
+    /**
+     * Hämtar publicerade priser från idag och framåt. Om serien bara växt, t.ex. när
+     * morgondagens priser publicerats, behålls allt som inte påverkas.
+     * @return true om horisonten ändrades.
+     */
+    public synchronized boolean refresh() {
+        LocalDate idag = LocalDate.now(clock.withZone(SVENSK_TID));
+        PriceSeries senaste = api.getPriceSeries(idag, idag.plusDays(1), prisklass).uniform();
+        boolean sammaDag = idag.equals(day);
+        if (sammaDag && senaste.size() == published.size()) {
+            return false;
+        }
+        int behåll = 0;
+        if (sammaDag && extends_(published, senaste)) {
+            behåll = published.size();
+            // Fönster som når in i den gamla prognosen måste prövas om
+            int gräns = behåll;
+            best.values().removeIf(b -> b.start + b.length > gräns);
+            best.replaceAll((length, b) ->
+                    new Best(b.start, length, b.sum, b.validFrom, Math.min(b.evaluatedTo, gräns)));
+        } else {
+            best.clear();
+        }
+        day = idag;
+        published = senaste;
+        PriceSeries prognos = forecast(senaste);
+        horizon = prognos.isEmpty() ? senaste : senaste.concat(prognos);
+
+        double[] nya = new double[horizon.size() + 1];
+        System.arraycopy(prefix, 0, nya, 0, Math.min(behåll + 1, prefix.length));
+        for (int i = behåll; i < horizon.size(); i++) {
+            nya[i + 1] = nya[i] + horizon.price(i);
+        }
+        prefix = nya;
+        return true;
+    }
+
+    private static boolean extends_(PriceSeries gammal, PriceSeries ny) {
+        return !gammal.isEmpty() && ny.size() > gammal.size()
+                && ny.startEpochSecond(0) == gammal.startEpochSecond(0)
+                && ny.endEpochSecond(gammal.size() - 1) == gammal.endEpochSecond(gammal.size() - 1);
+    }
+
+    /** Hela horisonten från dagens början, publicerade priser följda av eventuell prognos. */
+    public synchronized PriceSeries horizon() {
+        return horizon;
+    }
+
+    /** Index i {@link #horizon()} för den pågående perioden. */
+    public synchronized int currentIndex() {
+        long now = clock.instant().getEpochSecond();
+        int i = 0;
+        while (i < horizon.size() && horizon.endEpochSecond(i) <= now) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Index i {@link #horizon()} där prognosen börjar, eller horisontens längd utan prognos. */
+    public synchronized int forecastFrom() {
+        return published.size();
+    }
+
+    /** Horisonten från den pågående perioden och framåt. */
+    public synchronized PriceSeries remaining() {
+        return horizon.slice(currentIndex(), horizon.size());
+    }
+
+    /**
+     * Det billigaste fönstret med {@code length} perioder som börjar i den pågående perioden
+     * eller senare. Vid lika summa väljs det tidigaste.
+     * @return Fönstret, eller null om horisonten är för kort.
+     */
+    public synchronized Plan cheapest(int length) {
+        return cheapest(length, currentIndex());
+    }
+
+    /**
+     * Som {@link #cheapest(int)}, men från ett index som anroparen redan läst med
+     * {@link #currentIndex()}. Den som även läser horisonten från samma index får då
+     * ett svar som stämmer med den, även om klockan hunnit passera en periodgräns.
+     * @param from Index i {@link #horizon()} för första tillåtna start.
+     * @return Fönstret, eller null om horisonten är för kort.
+     */
+    public synchronized Plan cheapest(int length, int from) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Fönstret måste vara minst en period långt");
+        }
+        int to = horizon.size();
+        if (from < 0 || from > to) {
+            throw new IndexOutOfBoundsException("Ogiltigt startindex " + from);
+        }
+        if (to - from < length) {
+            return null;
+        }
+        Best b = best.get(length);
+        int first;
+        int bestStart;
+        double bestSum;
+        if (b != null && b.validFrom <= from && b.start >= from) {
+            // Förra bästa fönstret har inte börjat, så bara nya starter behöver prövas
+            first = Math.max(from, b.evaluatedTo - length + 1);
+            bestStart = b.start;
+            bestSum = b.sum;
+        } else {
+            first = from + 1;
+            bestStart = from;
+            bestSum = prefix[from + length] - prefix[from];
+        }
+        for (int s = first; s + length <= to; s++) {
+            double sum = prefix[s + length] - prefix[s];
+            if (sum < bestSum) {
+                bestSum = sum;
+                bestStart = s;
+            }
+        }
+        best.put(length, new Best(bestStart, length, bestSum, from, to));
+        return new Plan(bestStart, length, bestSum, bestStart + length > published.size());
+    }
+
+    /**
+     * Prognos för ett dygn efter sista publicerade perioden, med samma periodlängd.
+     * Varje period får medelpriset för samma veckodag och tid de senaste veckorna.
+     */
+    private PriceSeries forecast(PriceSeries serie) {
+        if (forecastWeeks == 0 || serie.isEmpty()) {
+            return PriceSeries.empty();
+        }
+        long slot = serie.resolutionSeconds();
+        long start = serie.endEpochSecond(serie.size() - 1);
+        int perDygn = (int) (86_400 / slot);
+        double[] priser = new double[perDygn];
+        Map<LocalDate, double[]> profiler = new HashMap<>();
+        int n = 0;
+        for (; n < perDygn; n++) {
+            ZonedDateTime lokal = Instant.ofEpochSecond(start + n * slot).atZone(SVENSK_TID);
+            double[] profil = profiler.computeIfAbsent(lokal.toLocalDate(), d -> profile(d, slot));
+            int bucket = (int) (lokal.toLocalTime().toSecondOfDay() / slot);
+            if (profil == null || Double.isNaN(profil[bucket])) {
+                break;
+            }
+            priser[n] = profil[bucket];
+        }
+        return n == 0 ? PriceSeries.empty()
+                : PriceSeries.of(start, slot, Arrays.copyOf(priser, n), SVENSK_TID);
+    }
+
+    /**
+     * Medelpris per tid på dygnet för samma veckodag som {@code datum} de senaste veckorna.
+     * @return Ett pris per period på dygnet, NaN där historik saknas, eller null utan historik.
+     */
+    private double[] profile(LocalDate datum, long slot) {
+        int perDygn = (int) (86_400 / slot);
+        double[] summa = new double[perDygn];
+        double[] vikt = new double[perDygn];
+        long besökta = 0;
+        for (int vecka = 1; vecka <= forecastWeeks; vecka++) {
+            LocalDate dag = datum.minusWeeks(vecka);
+            besökta += api.scan(dag, dag, prisklass, (startEpoch, length, offset, sek) -> {
+                // En period kan täcka flera perioder i profilen, t.ex. en timme över fyra kvartar,
+                // så varje del räknas med den tid den överlappar
+                long från = Math.floorMod(startEpoch + offset, 86_400);
+                long till = från + length;
+                for (long t = från; t < till; ) {
+                    long gräns = (t / slot + 1) * slot;
+                    long del = Math.min(gräns, till) - t;
+                    int bucket = (int) ((t / slot) % perDygn);
+                    summa[bucket] += sek * del;
+                    vikt[bucket] += del;
+                    t += del;
+                }
+            });
+        }
+        if (besökta == 0) {
+            return null;
+        }
+        for (int b = 0; b < perDygn; b++) {
+            summa[b] = vikt[b] == 0 ? Double.NaN : summa[b] / vikt[b];
+        }
+        return summa;
+    }
+}
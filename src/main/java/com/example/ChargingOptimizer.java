@@ -0,0 +1,195 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hittar de billigaste sammanhängande fönstren i en prisserie.
+ * <p>
+ * Fönstersummorna räknas fram med prefixsummor, så varje sökning är O(n) oavsett
+ * fönstrets längd. Flera fönster väljs billigast först utan överlapp.
+ */
+public final class ChargingOptimizer {
+
+    /**
+     * Ett sammanhängande fönster i prisserien.
+     * @param start Index för första perioden.
+     * @param length Antal perioder.
+     * @param sum Summan av priserna i fönstret.
+     */
+    public record Window(int start, int length, double sum) {
+
+        /** Index direkt efter sista perioden. */
+        public int end() {
+            return start + length;
+        }
+
+        public double average() {
+            return sum / length;
+        }
+    }
+
+    private ChargingOptimizer() {
+    }
+
+    /**
+     * Antal perioder som krävs för att täcka {@code minutes} minuter när varje period är
+     * {@code slotSeconds} sekunder lång. Avrundas uppåt.
+     */
+    public static int slotsFor(long minutes, long slotSeconds) {
+        if (minutes <= 0 || slotSeconds <= 0) {
+            throw new IllegalArgumentException("Längden måste vara positiv");
+        }
+        return Math.toIntExact((minutes * 60 + slotSeconds - 1) / slotSeconds);
+    }
+
+    /**
+     * Det billigaste fönstret med {@code length} perioder. Vid lika summa väljs det tidigaste.
+     * @return Fönstret, eller null om serien är kortare än fönstret.
+     */
+    public static Window cheapest(double[] prices, int length) {
+        return cheapest(prices, 0, prices.length, length);
+    }
+
+    /**
+     * Det billigaste fönstret med {@code length} perioder inom {@code [from, to)}.
+     * @return Fönstret, eller null om intervallet är kortare än fönstret.
+     */
+    public static Window cheapest(double[] prices, int from, int to, int length) {
+        requirePositive(length);
+        OptimizeEvent event = new OptimizeEvent();
+        event.begin();
+        Window window = search(prices, from, to, length);
+        event.end();
+        if (event.shouldCommit()) {
+            event.commitWith("fönster", to - from, length, 1);
+        }
+        return window;
+    }
+
+    private static Window search(double[] prices, int from, int to, int length) {
+        if (to - from < length) {
+            return null;
+        }
+        double sum = 0;
+        for (int i = from; i < from + length; i++) {
+            sum += prices[i];
+        }
+        double best = sum;
+        int bestStart = from;
+        for (int i = from + length; i < to; i++) {
+            sum += prices[i] - prices[i - length];
+            if (sum < best) {
+                best = sum;
+                bestStart = i - length + 1;
+            }
+        }
+        // Summan räknas om exakt för det valda fönstret, så att glidande avrundningsfel inte syns
+        return new Window(bestStart, length, sum(prices, bestStart, length));
+    }
+
+    /**
+     * Upp till {@code count} fönster med {@code length} perioder som inte överlappar varandra,
+     * billigast först. Vid lika summa väljs det tidigaste fönstret.
+     */
+    public static List<Window> cheapest(double[] prices, int length, int count) {
+        requirePositive(length);
+        int candidates = prices.length - length + 1;
+        if (candidates <= 0 || count <= 0) {
+            return List.of();
+        }
+        OptimizeEvent event = new OptimizeEvent();
+        event.begin();
+        List<Window> windows = count == 1 ? List.of(search(prices, 0, prices.length, length))
+                : cheapestNonOverlapping(prices, length, count, candidates);
+        event.end();
+        if (event.shouldCommit()) {
+            event.commitWith("fönster-topp", prices.length, length, count);
+        }
+        return windows;
+    }
+
+    private static List<Window> cheapestNonOverlapping(double[] prices, int length, int count, int candidates) {
+
+        double[] prefix = prefixSums(prices);
+        double[] sums = new double[candidates];
+        for (int i = 0; i < candidates; i++) {
+            sums[i] = prefix[i + length] - prefix[i];
+        }
+
+        // Min-heap av fönsterstarter, byggd i O(n), som töms tills tillräckligt många fönster valts
+        int[] heap = new int[candidates];
+        for (int i = 0; i < candidates; i++) {
+            heap[i] = i;
+        }
+        for (int i = candidates / 2 - 1; i >= 0; i--) {
+            siftDown(heap, i, candidates, sums);
+        }
+
+        boolean[] taken = new boolean[prices.length];
+        List<Window> windows = new ArrayList<>(Math.min(count, candidates));
+        int heapSize = candidates;
+        while (heapSize > 0 && windows.size() < count) {
+            int start = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, 0, heapSize, sums);
+            // Alla fönster är lika långa, så ett överlapp täcker alltid första eller sista perioden
+            if (taken[start] || taken[start + length - 1]) {
+                continue;
+            }
+            for (int i = start; i < start + length; i++) {
+                taken[i] = true;
+            }
+            windows.add(new Window(start, length, sum(prices, start, length)));
+        }
+        return windows;
+    }
+
+    /**
+     * Prefixsummor där {@code prefix[i]} är summan av de {@code i} första priserna.
+     */
+    public static double[] prefixSums(double[] prices) {
+        double[] prefix = new double[prices.length + 1];
+        for (int i = 0; i < prices.length; i++) {
+            prefix[i + 1] = prefix[i] + prices[i];
+        }
+        return prefix;
+    }
+
+    private static double sum(double[] prices, int start, int length) {
+        double sum = 0;
+        for (int i = start; i < start + length; i++) {
+            sum += prices[i];
+        }
+        return sum;
+    }
+
+    private static void siftDown(int[] heap, int i, int size, double[] sums) {
+        int value = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child], sums)) {
+                child++;
+            }
+            if (!less(heap[child], value, sums)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    private static boolean less(int a, int b, double[] sums) {
+        return sums[a] < sums[b] || (sums[a] == sums[b] && a < b);
+    }
+
+    private static void requirePositive(int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Fönstret måste vara minst en period långt");
+        }
+    }
+}
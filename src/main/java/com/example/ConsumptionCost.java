@@ -0,0 +1,572 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+import com.example.api.ElpriserAPI.Prisklass;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Räknar ut vad en uppmätt förbrukning kostat genom att para ihop mätaravläsningar med
+ * spotpriset för samma tid. Avläsningarna läses ur en CSV-fil med en rad per avläsning:
+ * <pre>
+ *   2025-09-04T00:15:00+02:00,1.234
+ *   2025-09-04 00:30+02:00;1,250
+ * </pre>
+ * Första kolumnen är starttid med UTC-offset, andra förbrukningen i kWh. Med semikolon som
+ * avgränsare får decimaltecknet vara komma. Övriga kolumner ignoreras, och rader som inte
+ * börjar med en siffra, t.ex. en rubrikrad, hoppas över.
+ * <p>
+ * Avläsningens längd är den största gemensamma delaren av avstånden mellan avläsningarna i följd
+ * i filen, t.ex. en timme när alla avläsningar ligger på hel timme. Den är högst
+ * {@link #MAX_READING_SECONDS} och en kvart om filen bara har en avläsning. En avläsning som
+ * täcker flera kvartar, t.ex. en timavläsning mot kvartspriser, delas på kvartarna och varje
+ * del prissätts med sin kvarts pris. Saknas pris för någon av kvartarna räknas avläsningen
+ * som en avläsning utan pris.
+ * <p>
+ * Filen minnesmappas och delas i bitar vid radbrytningar som tolkas parallellt. Tolkningen
+ * sker direkt på byten utan att skapa objekt per rad, och varje bit summerar i egna arrayer
+ * per period som slås ihop på slutet. Filen läses två gånger: först för att hitta vilka dagar
+ * som behöver priser, sedan för själva beräkningen. Däremellan hämtas alla dagar parallellt,
+ * så att beräkningen inte väntar på en hämtning i taget.
+ * <p>
+ * Priser hämtas för högst {@link #MAX_DAYS} dagar bakåt från den senaste avläsningen, och
+ * avläsningar efter morgondagen saknar pris. Avläsningar utanför det, t.ex. med fel årtal,
+ * räknas som avläsningar utan pris i stället för att hela intervallet däremellan hämtas.
+ */
+public final class ConsumptionCost {
+
+    private static final ZoneId SVENSK_TID = ZoneId.of("Europe/Stockholm");
+    private static final int QUARTER = 900;
+    // Största bit som mappas åt gången, en MappedByteBuffer rymmer högst 2 GB
+    private static final long MAX_CHUNK_BYTES = 1L << 28;
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    // Längsta intervall som priser hämtas för, räknat bakåt från senaste avläsningen
+    static final int MAX_DAYS = 3 * 366;
+    // Längsta avläsning, elmätare i Sverige läses av per timme eller per kvart
+    static final int MAX_READING_SECONDS = 3600;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    /** Hur kostnaderna summeras. */
+    public enum Period {
+        HOUR, DAY, MONTH
+    }
+
+    /**
+     * Summan för en period.
+     * @param start Periodens början i svensk tid.
+     * @param readings Antal avläsningar med pris.
+     * @param kWh Förbrukning.
+     * @param sek Kostnad i SEK.
+     */
+    public record Line(LocalDateTime start, long readings, double kWh, double sek) {
+
+        /** Förbrukningsviktat medelpris i SEK/kWh. */
+        public double averagePrice() {
+            return kWh == 0 ? 0.0 : sek / kWh;
+        }
+    }
+
+    /**
+     * Resultatet för en fil.
+     * @param lines Perioder med minst en avläsning, i tidsordning.
+     * @param readings Antal avläsningar med pris.
+     * @param unmatched Avläsningar utan pris för tiden.
+     * @param invalid Rader som började med en siffra men inte kunde tolkas.
+     */
+    public record Result(List<Line> lines, long readings, long unmatched, long invalid) {
+
+        public double totalKWh() {
+            return lines.stream().mapToDouble(Line::kWh).sum();
+        }
+
+        public double totalSek() {
+            return lines.stream().mapToDouble(Line::sek).sum();
+        }
+
+        /** Förbrukningsviktat medelpris i SEK/kWh. */
+        public double averagePrice() {
+            double kWh = totalKWh();
+            return kWh == 0 ? 0.0 : totalSek() / kWh;
+        }
+    }
+
+    private ConsumptionCost() {
+    }
+
+    /**
+     * Räknar ut kostnaden för avläsningarna i {@code csv} med priser för {@code prisklass}.
+     * Dagarna hämtas först parallellt till cachen och läses sedan dag för dag, se {@link ElpriserAPI#scan}.
+     */
+    public static Result compute(Path csv, ElpriserAPI api, Prisklass prisklass, Period period) throws IOException {
+        // Några bitar per kärna jämnar ut lasten, men små filer delas inte i bitar under 1 MB
+        long parts = Math.min(Runtime.getRuntime().availableProcessors() * 4L, Files.size(csv) / MIN_CHUNK_BYTES);
+        return compute(csv, api, prisklass, period, (int) Math.max(1, parts));
+    }
+
+    static Result compute(Path csv, ElpriserAPI api, Prisklass prisklass, Period period, int parts)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            long[] bounds = split(channel, parts);
+            int chunks = bounds.length - 1;
+
+            // Första genomläsningen: tidsintervallet som behöver priser. Priser efter
+            // morgondagen finns inte, så sådana avläsningar får inte flytta intervallet.
+            long senast = LocalDate.now(SVENSK_TID).plusDays(2).atStartOfDay(SVENSK_TID).toEpochSecond();
+            Range range = IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> new Parser(map(channel, bounds[c], bounds[c + 1])).range(senast))
+                    .reduce(Range.EMPTY, Range::merge);
+            if (range.min > range.max) {
+                return new Result(List.of(), 0, range.late, range.invalid);
+            }
+            int length = (int) Math.min(range.step == 0 ? QUARTER : range.step, MAX_READING_SECONDS);
+
+            LocalDate till = LocalDate.ofInstant(Instant.ofEpochSecond(range.max), SVENSK_TID);
+            LocalDate från = LocalDate.ofInstant(Instant.ofEpochSecond(range.min), SVENSK_TID);
+            if (från.isBefore(till.minusDays(MAX_DAYS - 1))) {
+                från = till.minusDays(MAX_DAYS - 1);
+            }
+            // Dagar som saknas i cachen hämtas parallellt innan de läses en i taget nedan
+            api.getPriser(från, till, List.of(prisklass));
+            PriceGrid grid = PriceGrid.load(api, prisklass, period, från, till);
+
+            // Andra genomläsningen: kostnad per period
+            Totals totals = IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> new Parser(map(channel, bounds[c], bounds[c + 1])).costs(grid, length))
+                    .reduce(Totals::merge)
+                    .orElseGet(() -> new Totals(grid.periods()));
+
+            List<Line> lines = new ArrayList<>();
+            long readings = 0;
+            for (int p = 0; p < grid.periods(); p++) {
+                if (totals.readings[p] > 0) {
+                    lines.add(new Line(grid.periodStart(p), totals.readings[p], totals.kWh[p], totals.sek[p]));
+                    readings += totals.readings[p];
+                }
+            }
+            return new Result(List.copyOf(lines), readings, totals.unmatched, totals.invalid);
+        }
+    }
+
+    /**
+     * Delar filen i ungefär {@code parts} lika stora bitar som börjar direkt efter en radbrytning.
+     * @return Bitarnas gränser, första är 0 och sista filens storlek.
+     */
+    private static long[] split(FileChannel channel, int parts) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(Math.max(1, parts), (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        long[] bounds = new long[count + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        int n = 1;
+        for (int c = 1; c < count; c++) {
+            long pos = Math.max(bounds[n - 1], size * c / count);
+            // Leta upp nästa radbrytning efter den nominella gränsen
+            long found = -1;
+            while (found < 0 && pos < size) {
+                buffer.clear();
+                int read = channel.read(buffer, pos);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        found = pos + i + 1;
+                        break;
+                    }
+                }
+                pos += read;
+            }
+            if (found < 0 || found >= size) {
+                break;
+            }
+            if (found > bounds[n - 1]) {
+                bounds[n++] = found;
+            }
+        }
+        bounds[n++] = size;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long from, long to) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tidigaste och senaste avläsning i en bit, största gemensamma delaren av avstånden mellan
+     * avläsningar i följd (0 utan avstånd) och antal avläsningar som är för sena för att ha pris.
+     */
+    private record Range(long min, long max, long step, long late, long invalid) {
+        static final Range EMPTY = new Range(Long.MAX_VALUE, Long.MIN_VALUE, 0, 0, 0);
+
+        Range merge(Range other) {
+            return new Range(Math.min(min, other.min), Math.max(max, other.max), gcd(step, other.step),
+                    late + other.late, invalid + other.invalid);
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Priser per kvart och vilken period varje kvart hör till, från början av första dagen
+     * till slutet av sista. Kvartar utan pris är NaN.
+     */
+    private record PriceGrid(long base, double[] prices, int[] periodOf, LocalDateTime[] periodStarts) {
+
+        static PriceGrid load(ElpriserAPI api, Prisklass prisklass, Period period, LocalDate från, LocalDate till) {
+            long base = från.atStartOfDay(SVENSK_TID).toEpochSecond();
+            long end = till.plusDays(1).atStartOfDay(SVENSK_TID).toEpochSecond();
+            int n = (int) ((end - base) / QUARTER);
+            double[] prices = new double[n];
+            Arrays.fill(prices, Double.NaN);
+            api.scan(från, till, prisklass, (start, length, offset, sek) -> {
+                int first = (int) Math.max(0, (start - base) / QUARTER);
+                int last = (int) Math.min(n, (start + length - base) / QUARTER);
+                Arrays.fill(prices, first, last, sek);
+            });
+
+            // Periodens nummer räknas från lokal tid för varje kvart
+            int[] periodOf = new int[n];
+            List<LocalDateTime> starts = new ArrayList<>();
+            long current = Long.MIN_VALUE;
+            for (int q = 0; q < n; q++) {
+                long epoch = base + (long) q * QUARTER;
+                LocalDateTime lokal = LocalDateTime.ofInstant(Instant.ofEpochSecond(epoch), SVENSK_TID);
+                // Timmar räknas i UTC, så timmen som upprepas när sommartiden slutar blir en egen period
+                long key = switch (period) {
+                    case HOUR -> Math.floorDiv(epoch, 3600);
+                    case DAY -> lokal.toLocalDate().toEpochDay();
+                    case MONTH -> lokal.getYear() * 12L + lokal.getMonthValue();
+                };
+                if (key != current) {
+                    starts.add(switch (period) {
+                        case HOUR -> lokal.withMinute(0);
+                        case DAY -> lokal.toLocalDate().atStartOfDay();
+                        case MONTH -> lokal.toLocalDate().withDayOfMonth(1).atStartOfDay();
+                    });
+                    current = key;
+                }
+                periodOf[q] = starts.size() - 1;
+            }
+            return new PriceGrid(base, prices, periodOf, starts.toArray(LocalDateTime[]::new));
+        }
+
+        int periods() {
+            return periodStarts.length;
+        }
+
+        LocalDateTime periodStart(int p) {
+            return periodStarts[p];
+        }
+    }
+
+    /** Summor per period för en bit av filen. */
+    private static final class Totals {
+        final long[] readings;
+        final double[] kWh;
+        final double[] sek;
+        long unmatched;
+        long invalid;
+
+        Totals(int periods) {
+            readings = new long[periods];
+            kWh = new double[periods];
+            sek = new double[periods];
+        }
+
+        Totals merge(Totals other) {
+            for (int p = 0; p < readings.length; p++) {
+                readings[p] += other.readings[p];
+                kWh[p] += other.kWh[p];
+                sek[p] += other.sek[p];
+            }
+            unmatched += other.unmatched;
+            invalid += other.invalid;
+            return this;
+        }
+    }
+
+    /**
+     * Tolkar raderna i en bit av filen. Senast tolkade rad ligger i fälten nedan, så att
+     * inget objekt skapas per rad.
+     */
+    private static final class Parser {
+        private final ByteBuffer in;
+        private final int limit;
+        private int pos;
+
+        private long epoch;
+        private double kWh;
+
+        // Senaste datumet, avläsningarna kommer oftast många i rad från samma dag
+        private int lastDate = -1;
+        private long lastEpochDay;
+
+        Parser(ByteBuffer in) {
+            this.in = in;
+            this.limit = in.limit();
+        }
+
+        /** Tidigaste och senaste avläsning före {@code senast}. */
+        Range range(long senast) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long step = 0;
+            long previous = Long.MIN_VALUE;
+            long late = 0;
+            long invalid = 0;
+            while (pos < limit) {
+                int status = readLine();
+                if (status > 0 && epoch >= senast) {
+                    late++;
+                } else if (status > 0) {
+                    min = Math.min(min, epoch);
+                    max = Math.max(max, epoch);
+                    if (previous != Long.MIN_VALUE) {
+                        step = gcd(step, Math.abs(epoch - previous));
+                    }
+                    previous = epoch;
+                } else if (status < 0) {
+                    invalid++;
+                }
+            }
+            return new Range(min, max, step, late, invalid);
+        }
+
+        /** Kostnad per period när varje avläsning är {@code length} sekunder lång. */
+        Totals costs(PriceGrid grid, int length) {
+            Totals totals = new Totals(grid.periods());
+            double[] prices = grid.prices();
+            int[] periodOf = grid.periodOf();
+            long base = grid.base();
+            while (pos < limit) {
+                int status = readLine();
+                if (status > 0) {
+                    long från = epoch - base;
+                    long till = från + length;
+                    long first = Math.floorDiv(från, QUARTER);
+                    long last = Math.floorDiv(till - 1, QUARTER);
+                    if (!priced(prices, first, last)) {
+                        totals.unmatched++;
+                    } else if (first == last) {
+                        int p = periodOf[(int) first];
+                        totals.readings[p]++;
+                        totals.kWh[p] += kWh;
+                        totals.sek[p] += kWh * prices[(int) first];
+                    } else {
+                        totals.readings[periodOf[(int) first]]++;
+                        for (long q = first; q <= last; q++) {
+                            // Varje kvart får den del av förbrukningen som motsvarar dess del av avläsningen
+                            long del = Math.min(till, (q + 1) * QUARTER) - Math.max(från, q * QUARTER);
+                            double andel = kWh * del / length;
+                            int p = periodOf[(int) q];
+                            totals.kWh[p] += andel;
+                            totals.sek[p] += andel * prices[(int) q];
+                        }
+                    }
+                } else if (status < 0) {
+                    totals.invalid++;
+                }
+            }
+            return totals;
+        }
+
+        private static boolean priced(double[] prices, long first, long last) {
+            if (first < 0 || last >= prices.length) {
+                return false;
+            }
+            for (long q = first; q <= last; q++) {
+                if (Double.isNaN(prices[(int) q])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Läser en rad till {@link #epoch} och {@link #kWh} och ställer {@link #pos} efter radbrytningen.
+         * @return 1 för en avläsning, 0 för en rad som hoppas över och -1 för en ogiltig rad.
+         */
+        private int readLine() {
+            int start = pos;
+            int end = start;
+            while (end < limit && in.get(end) != '\n') {
+                end++;
+            }
+            pos = end + 1;
+            if (end > start && in.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end == start || !isDigit(in.get(start))) {
+                return 0;
+            }
+            int separator = readTimestamp(start, end);
+            if (separator < 0 || !readNumber(separator + 1, end, in.get(separator))) {
+                return -1;
+            }
+            return 1;
+        }
+
+        /**
+         * Läser "YYYY-MM-DDTHH:MM[:SS[.fff]]" följt av "Z" eller "+HH:MM" till {@link #epoch}.
+         * Mellanslag får ersätta "T".
+         * @return Index för avgränsaren efter tidsstämpeln, eller -1 om formatet är fel.
+         */
+        private int readTimestamp(int start, int end) {
+            if (end - start < 17 || in.get(start + 4) != '-' || in.get(start + 7) != '-'
+                    || (in.get(start + 10) != 'T' && in.get(start + 10) != ' ') || in.get(start + 13) != ':') {
+                return -1;
+            }
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            int hour = digits(start + 11, 2);
+            int minute = digits(start + 14, 2);
+            if ((year | month | day | hour | minute) < 0) {
+                return -1;
+            }
+            int p = start + 16;
+            int second = 0;
+            if (p < end && in.get(p) == ':') {
+                second = digits(p + 1, 2);
+                if (second < 0) {
+                    return -1;
+                }
+                p += 3;
+                if (p < end && in.get(p) == '.') {
+                    p++;
+                    while (p < end && isDigit(in.get(p))) {
+                        p++;
+                    }
+                }
+            }
+            int offset;
+            if (p < end && in.get(p) == 'Z') {
+                offset = 0;
+                p++;
+            } else if (p + 6 <= end && (in.get(p) == '+' || in.get(p) == '-') && in.get(p + 3) == ':') {
+                int oh = digits(p + 1, 2);
+                int om = digits(p + 4, 2);
+                if ((oh | om) < 0) {
+                    return -1;
+                }
+                offset = (oh * 3600 + om * 60) * (in.get(p) == '-' ? -1 : 1);
+                p += 6;
+            } else {
+                return -1;
+            }
+            if (p >= end || (in.get(p) != ',' && in.get(p) != ';')) {
+                return -1;
+            }
+            try {
+                epoch = epochDay(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second - offset;
+            } catch (DateTimeException e) {
+                return -1;
+            }
+            return p;
+        }
+
+        private long epochDay(int year, int month, int day) {
+            int date = (year * 100 + month) * 100 + day;
+            if (date != lastDate) {
+                lastEpochDay = LocalDate.of(year, month, day).toEpochDay();
+                lastDate = date;
+            }
+            return lastEpochDay;
+        }
+
+        /**
+         * Läser ett decimaltal till {@link #kWh}. Efter semikolon får decimaltecknet vara komma.
+         */
+        private boolean readNumber(int start, int end, byte separator) {
+            int p = start;
+            while (p < end && in.get(p) == ' ') {
+                p++;
+            }
+            boolean negative = p < end && in.get(p) == '-';
+            if (negative) {
+                p++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            while (p < end && isDigit(in.get(p))) {
+                mantissa = mantissa * 10 + (in.get(p++) - '0');
+                digits++;
+            }
+            if (p < end && (in.get(p) == '.' || (in.get(p) == ',' && separator == ';'))) {
+                p++;
+                while (p < end && isDigit(in.get(p))) {
+                    mantissa = mantissa * 10 + (in.get(p++) - '0');
+                    digits++;
+                    scale++;
+                }
+            }
+            if (digits == 0 || (p < end && in.get(p) != separator && in.get(p) != ' ')) {
+                return false;
+            }
+            if (digits > 15) {
+                return slowNumber(start, p);
+            }
+            double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+            kWh = negative ? -value : value;
+            return true;
+        }
+
+        /** Tal med fler siffror än som räknas exakt lämnas till {@link Double#parseDouble}. */
+        private boolean slowNumber(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            in.get(start, bytes);
+            try {
+                kWh = Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII).trim().replace(',', '.'));
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private int digits(int at, int count) {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                byte b = in.get(at + i);
+                if (!isDigit(b)) {
+                    return -1;
+                }
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+    }
+}
@@ -1,18 +1,34 @@
 package com.example;
 
+import com.example.api.ApiStatistics;
 import com.example.api.ElpriserAPI;
-import com.example.api.ElpriserAPI.Elpris;
 import com.example.api.ElpriserAPI.Prisklass;
+import com.example.api.NextDayPrefetcher;
+import com.example.api.PriceIndex;
+import com.example.api.PriceSeries;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.time.format.TextStyle;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
 
@@ -26,7 +42,24 @@ public class Main {
         String zone = null;
         String dateStr = null;
         boolean sorted = false;
-        int chargingHours = 0;
+        int chargingMinutes = 0;
+        int antalFönster = 1;
+        int scheduleMinutes = 0;
+        int minRunMinutes = 0;
+        int maxGapMinutes = -1;
+        String deadlineStr = null;
+        int serverPort = -1;
+        int resolutionMinutes = 0;
+        String fromStr = null;
+        String toStr = null;
+        int forecastWeeks = 0;
+        String costFile = null;
+        String batchFile = null;
+        String outputFile = null;
+        String exportFile = null;
+        String importFile = null;
+        boolean offline = false;
+        ConsumptionCost.Period costPeriod = ConsumptionCost.Period.DAY;
 
         //Hantera CLI argument
 
@@ -38,18 +71,125 @@ public class Main {
                 case "--date" -> {
                     if (i + 1 < args.length) dateStr = args[++i];
                 }
+                case "--from" -> {
+                    if (i + 1 < args.length) fromStr = args[++i];
+                }
+                case "--to" -> {
+                    if (i + 1 < args.length) toStr = args[++i];
+                }
                 case "--sorted" -> sorted = true;
                 case "--charging" -> {
                     if (i + 1 < args.length) {
-                        String argValue = args[++i];
+                        chargingMinutes = parseMinutes(args[++i]);
+                        if (chargingMinutes <= 0) {
+                            System.out.println("Fel: Ogiltigt format för --charging. Använd t.ex. 2h, 90m eller 8h.");
+                            return;
+                        }
+                    }
+                }
+                case "--top" -> {
+                    if (i + 1 < args.length) {
+                        try {
+                            antalFönster = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            antalFönster = 0;
+                        }
+                        if (antalFönster < 1) {
+                            System.out.println("Fel: --top måste vara ett positivt heltal.");
+                            return;
+                        }
+                    }
+                }
+                case "--schedule" -> {
+                    if (i + 1 < args.length) {
+                        scheduleMinutes = parseMinutes(args[++i]);
+                        if (scheduleMinutes <= 0) {
+                            System.out.println("Fel: Ogiltigt format för --schedule. Använd t.ex. 3h eller 45m.");
+                            return;
+                        }
+                    }
+                }
+                case "--min-run" -> {
+                    if (i + 1 < args.length) {
+                        minRunMinutes = parseMinutes(args[++i]);
+                        if (minRunMinutes <= 0) {
+                            System.out.println("Fel: Ogiltigt format för --min-run. Använd t.ex. 1h eller 30m.");
+                            return;
+                        }
+                    }
+                }
+                case "--max-gap" -> {
+                    if (i + 1 < args.length) {
+                        maxGapMinutes = parseMinutes(args[++i]);
+                        if (maxGapMinutes < 0) {
+                            System.out.println("Fel: Ogiltigt format för --max-gap. Använd t.ex. 2h eller 0.");
+                            return;
+                        }
+                    }
+                }
+                case "--resolution" -> {
+                    if (i + 1 < args.length) {
+                        resolutionMinutes = parseMinutes(args[++i]);
+                        if (resolutionMinutes <= 0 || 1440 % resolutionMinutes != 0) {
+                            System.out.println("Fel: Ogiltigt format för --resolution. Använd t.ex. 15m, 30m eller 60m.");
+                            return;
+                        }
+                    }
+                }
+                case "--forecast" -> {
+                    forecastWeeks = 4;
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        try {
+                            forecastWeeks = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            forecastWeeks = -1;
+                        }
+                        if (forecastWeeks < 1 || forecastWeeks > ChargingHorizon.MAX_FORECAST_WEEKS) {
+                            System.out.println("Fel: Ogiltigt antal veckor för --forecast. Använd 1-"
+                                    + ChargingHorizon.MAX_FORECAST_WEEKS + ".");
+                            return;
+                        }
+                    }
+                }
+                case "--batch" -> {
+                    if (i + 1 < args.length) batchFile = args[++i];
+                }
+                case "--output" -> {
+                    if (i + 1 < args.length) outputFile = args[++i];
+                }
+                case "--export" -> {
+                    if (i + 1 < args.length) exportFile = args[++i];
+                }
+                case "--import" -> {
+                    if (i + 1 < args.length) importFile = args[++i];
+                }
+                case "--offline" -> offline = true;
+                case "--cost" -> {
+                    if (i + 1 < args.length) costFile = args[++i];
+                }
+                case "--period" -> {
+                    if (i + 1 < args.length) {
+                        try {
+                            costPeriod = ConsumptionCost.Period.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("Fel: Ogiltig period. Använd hour, day eller month.");
+                            return;
+                        }
+                    }
+                }
+                case "--deadline" -> {
+                    if (i + 1 < args.length) deadlineStr = args[++i];
+                }
+                case "--server" -> {
+                    serverPort = 8080;
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
                         try {
-                            if (argValue.endsWith("h")) {
-                                chargingHours = Integer.parseInt(argValue.substring(0, argValue.length() - 1));
-                            } else {
-                                chargingHours = Integer.parseInt(argValue);
-                            }
+                            serverPort = Integer.parseInt(args[++i]);
                         } catch (NumberFormatException e) {
-                            System.out.println("Fel: Ogiltigt format för --charging. Använd t.ex. 2h, 4h eller 8h.");
+                            serverPort = -1;
+                        }
+                        if (serverPort < 0 || serverPort > 65535) {
+                            System.out.println("Fel: Ogiltig port för --server.");
                             return;
                         }
                     }
@@ -61,17 +201,55 @@ public class Main {
             }
         }
 
+        if (serverPort >= 0) {
+            startServer(serverPort, offline);
+            return;
+        }
+
+        // Cachning på så att redan hämtade dagar läses från disk-cachen i stället för nätverket
+        ElpriserAPI api = ElpriserAPI.builder().offline(offline).build();
+
+        // En import görs först, så att resten av kommandot kan använda de importerade priserna
+        if (importFile != null) {
+            if (!runImport(api, Path.of(importFile)) || (zone == null && batchFile == null)) {
+                return;
+            }
+        }
+
+        if (batchFile != null) {
+            runBatch(api, batchFile, outputFile);
+            return;
+        }
+
         if (zone == null) {
             System.out.println("Fel: Argumentet --zone är obligatoriskt.");
             printHelp();
             return;
         }
 
-        Prisklass prisklass;
-        try {
-            prisklass = Prisklass.valueOf(zone.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            System.out.println("Fel: Ogiltig zon. Använd SE1, SE2, SE3 eller SE4.");
+        Set<Prisklass> prisklasser = parseZones(zone);
+        if (prisklasser == null) {
+            System.out.println("Fel: Ogiltig zon. Använd SE1, SE2, SE3, SE4, en lista som SE1,SE4 eller all.");
+            return;
+        }
+        if (exportFile != null) {
+            runExport(api, prisklasser, fromStr, toStr, Path.of(exportFile));
+            return;
+        }
+        if (prisklasser.size() > 1
+                && (chargingMinutes > 0 || scheduleMinutes > 0 || fromStr != null || toStr != null || costFile != null)) {
+            System.out.println("Fel: Flera zoner kan bara jämföras i prislistan, ange en zon.");
+            return;
+        }
+        Prisklass prisklass = prisklasser.iterator().next();
+
+        if (fromStr != null || toStr != null) {
+            printAnalytics(api, prisklass, fromStr, toStr);
+            return;
+        }
+
+        if (costFile != null) {
+            printCost(api, prisklass, Path.of(costFile), costPeriod);
             return;
         }
 
@@ -87,12 +265,32 @@ public class Main {
 
         //Använda mock data eller ta fram riktiga priser
 
-        ElpriserAPI api = new ElpriserAPI(false);
-
-        List<Elpris> priser = new ArrayList<>(api.getPriser(datum, prisklass));
+        if (prisklasser.size() > 1) {
+            printComparison(api, prisklasser, datum, resolutionMinutes);
+            return;
+        }
 
-        if (chargingHours > 0) {
-            priser.addAll(api.getPriser(datum.plusDays(1), prisklass));
+        // Vid laddning och schemaläggning tas morgondagen med om den finns
+        boolean medImorgon = chargingMinutes > 0 || scheduleMinutes > 0;
+        PriceSeries priser;
+        long prognosFrån = Long.MAX_VALUE;
+        if (medImorgon && datum.equals(LocalDate.now())) {
+            // För idag planeras från den pågående perioden, med prognos efter sista publicerade priset
+            ChargingHorizon horisont = new ChargingHorizon(api, prisklass, Clock.systemDefaultZone(), forecastWeeks);
+            horisont.refresh();
+            priser = horisont.remaining();
+            if (horisont.forecastFrom() < horisont.horizon().size()) {
+                prognosFrån = horisont.horizon().startEpochSecond(horisont.forecastFrom());
+            }
+        } else {
+            priser = api.getPriceSeries(datum, medImorgon ? datum.plusDays(1) : datum, prisklass);
+        }
+        if (resolutionMinutes > 0) {
+            priser = priser.resample(Duration.ofMinutes(resolutionMinutes));
+        }
+        if (medImorgon) {
+            // Fönster räknas i perioder, så alla perioder måste vara lika långa
+            priser = priser.uniform();
         }
 
         if (priser.isEmpty()) {
@@ -100,104 +298,491 @@ public class Main {
             return;
         }
 
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.forLanguageTag("sv-SE"));
-        symbols.setDecimalSeparator(',');
-        DecimalFormat df = new DecimalFormat("#0.00", symbols);
+        // Priserna kopieras en gång till en primitiv array, all beräkning nedan sker utan boxning
+        double[] sekPerKWh = priser.toPriceArray();
+        int n = sekPerKWh.length;
+
+        DecimalFormat df = oreFormat();
 
         DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
         DateTimeFormatter hourFormatter = DateTimeFormatter.ofPattern("HH");
 
-        if (chargingHours > 0) {
-            if (chargingHours < 2 || chargingHours > 8) {
-                System.out.println("Fel: Laddningsfönster måste vara 2h, 4h eller 8h.");
-                return;
+        if (chargingMinutes > 0) {
+            printCharging(priser, sekPerKWh, chargingMinutes, antalFönster, prognosFrån, df, timeFormatter);
+            return;
+        }
+
+        if (scheduleMinutes > 0) {
+            printSchedule(priser, sekPerKWh, datum, scheduleMinutes, minRunMinutes, maxGapMinutes, deadlineStr,
+                    prognosFrån, df, timeFormatter);
+            return;
+        }
+
+        // Lägsta och högsta pris blir rätt även för dagar med enbart negativa priser
+        PriceStatistics.Summary statistik = PriceStatistics.of(sekPerKWh);
+
+        double min = statistik.min() * 100;
+        double max = statistik.max() * 100;
+        // Medelpriset viktas med periodernas längd, så att blandade upplösningar räknas rätt
+        double avg = priser.averagePrice() * 100;
+
+        System.out.println("\nElpriser för " + prisklass + " den " + datum.format(DateTimeFormatter.ISO_DATE) + ":");
+        System.out.println("----------------------------------------");
+
+        // Dagens index följer med cachen, en omräknad serie får ett eget
+        PriceIndex ordning = !sorted ? null
+                : resolutionMinutes > 0 ? PriceIndex.of(priser) : api.getPriceIndex(datum, prisklass);
+
+        for (int k = 0; k < n; k++) {
+            int i = ordning == null ? k : ordning.sortedIndex(k);
+            // Timpriser visas som "HH-HH", kortare perioder med minuter
+            DateTimeFormatter formatter = priser.lengthSeconds(i) < 3600 ? timeFormatter : hourFormatter;
+            String timeRange = priser.timeStart(i).format(formatter) + "-" + priser.timeEnd(i).format(formatter);
+            double ore = sekPerKWh[i] * 100;
+            System.out.println(timeRange + " " + df.format(ore) + " öre");
+        }
+
+        System.out.println("----------------------------------------");
+        System.out.println("Lägsta pris: " + df.format(min) + " öre");
+        System.out.println("Högsta pris: " + df.format(max) + " öre");
+        System.out.println("Medelpris: " + df.format(avg) + " öre");
+    }
+
+    /**
+     * Skriver ut historisk prisanalys för ett intervall av datum. Perioderna strömmas dag
+     * för dag från cachen, så minnesbehovet är detsamma för en vecka som för ett år.
+     */
+    private static void printAnalytics(ElpriserAPI api, Prisklass prisklass, String fromStr, String toStr) {
+        LocalDate[] intervall = parseRange(fromStr, toStr);
+        if (intervall == null) {
+            return;
+        }
+        LocalDate från = intervall[0];
+        LocalDate till = intervall[1];
+
+        PriceAnalytics analys = new PriceAnalytics();
+        long perioder = api.scan(från, till, prisklass, analys);
+        analys.finish();
+        if (perioder == 0) {
+            System.out.println("Ingen data tillgänglig för zon: " + prisklass + " mellan " + från + " och " + till);
+            return;
+        }
+
+        DecimalFormat df = oreFormat();
+
+        RunningStats alla = analys.overall();
+        System.out.println("\nPrisanalys för " + prisklass + " " + från + " till " + till + " ("
+                + analys.dailyMeans().count() + " dagar, " + perioder + " perioder):");
+        System.out.println("----------------------------------------");
+        System.out.println("Medelpris: " + öre(df, alla.mean()) + " öre");
+        System.out.println("Standardavvikelse: " + öre(df, alla.stdDev()) + " öre");
+        System.out.println("Lägsta pris: " + öre(df, alla.min()) + " öre");
+        System.out.println("Högsta pris: " + öre(df, alla.max()) + " öre");
+        System.out.println("Percentiler: p10 " + öre(df, analys.quantile(0.1)) + ", p50 " + öre(df, analys.quantile(0.5))
+                + ", p90 " + öre(df, analys.quantile(0.9)) + " öre");
+
+        System.out.println("\nPer timme (medel, p10, p50, p90 i öre):");
+        for (int h = 0; h < 24; h++) {
+            if (analys.hour(h).count() == 0) {
+                continue;
             }
+            System.out.println(String.format("%02d", h) + " " + öre(df, analys.hour(h).mean())
+                    + " " + öre(df, analys.hourQuantile(h, 0.1)) + " " + öre(df, analys.hourQuantile(h, 0.5))
+                    + " " + öre(df, analys.hourQuantile(h, 0.9)));
+        }
 
-            if (chargingHours > priser.size()) {
-                System.out.println("Fel: Kan inte ladda längre än " + priser.size() + " tillgängliga timmar.");
-                return;
+        System.out.println("\nPer veckodag (medel i öre):");
+        for (DayOfWeek dag : DayOfWeek.values()) {
+            if (analys.weekday(dag).count() > 0) {
+                System.out.println(dag.getDisplayName(TextStyle.FULL, Locale.forLanguageTag("sv-SE")) + " "
+                        + öre(df, analys.weekday(dag).mean()));
             }
+        }
 
-            double minSum = Double.MAX_VALUE;
-            int bestStart = -1;
+        System.out.println("\nDagsspridning (högsta - lägsta): medel " + öre(df, analys.dailySpreads().mean())
+                + " öre, största " + öre(df, analys.dailySpreads().max()) + " öre");
+        if (analys.dailyChanges().count() > 0) {
+            System.out.println("Volatilitet (standardavvikelse för ändring i dagsmedel): "
+                    + öre(df, analys.dailyChanges().stdDev()) + " öre");
+        }
+        System.out.println("Rullande medel: 7 dagar " + öre(df, analys.shortAverage()) + " öre, 30 dagar "
+                + öre(df, analys.longAverage()) + " öre");
+        if (analys.longAverages().count() > 0) {
+            System.out.println("Lägsta 30-dagarsmedel: " + öre(df, analys.longAverages().min()) + " öre (till "
+                    + analys.lowestLongAverageEnd() + "), högsta: " + öre(df, analys.longAverages().max())
+                    + " öre (till " + analys.highestLongAverageEnd() + ")");
+        }
+    }
 
-            for (int i = 0; i <= priser.size() - chargingHours; i++) {
-                double currentSum = 0;
-                for (int j = 0; j < chargingHours; j++) {
-                    currentSum += priser.get(i + j).sekPerKWh();
-                }
+    /**
+     * Skriver ut priserna för flera zoner sida vid sida, med billigaste zon och spridning per period.
+     * Zonerna hämtas parallellt.
+     */
+    private static void printComparison(ElpriserAPI api, Set<Prisklass> prisklasser, LocalDate datum,
+                                        int resolutionMinutes) {
+        Map<Prisklass, CompletableFuture<PriceSeries>> hämtningar = new EnumMap<>(Prisklass.class);
+        for (Prisklass prisklass : prisklasser) {
+            hämtningar.put(prisklass, api.getPriceSeriesAsync(datum, prisklass));
+        }
+        Map<Prisklass, PriceSeries> serier = new EnumMap<>(Prisklass.class);
+        for (Map.Entry<Prisklass, CompletableFuture<PriceSeries>> hämtning : hämtningar.entrySet()) {
+            PriceSeries serie = hämtning.getValue().join();
+            serier.put(hämtning.getKey(), resolutionMinutes > 0 ? serie.resample(Duration.ofMinutes(resolutionMinutes)) : serie);
+        }
 
-                if (currentSum < minSum) {
-                    minSum = currentSum;
-                    bestStart = i;
-                }
-            }
+        ZoneComparison jämförelse = ZoneComparison.of(serier);
+        if (jämförelse.isEmpty()) {
+            System.out.println("Ingen gemensam data tillgänglig för zonerna " + prisklasser + " datum: " + datum);
+            return;
+        }
+        List<Prisklass> zoner = jämförelse.zones();
+        if (zoner.size() < prisklasser.size()) {
+            EnumSet<Prisklass> saknas = EnumSet.copyOf(prisklasser);
+            saknas.removeAll(zoner);
+            System.out.println("Ingen data tillgänglig för zon: " + saknas + " datum: " + datum);
+        }
 
-            if (bestStart == -1) {
-                System.out.println("Kunde inte hitta ett optimalt laddningsfönster.");
-                return;
+        DecimalFormat df = oreFormat();
+        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
+        DateTimeFormatter hourFormatter = DateTimeFormatter.ofPattern("HH");
+
+        System.out.println("\nElpriser för " + String.join(", ", zoner.stream().map(Enum::name).toList())
+                + " den " + datum.format(DateTimeFormatter.ISO_DATE) + " (öre/kWh):");
+        System.out.println("----------------------------------------");
+        StringBuilder rubrik = new StringBuilder("Tid");
+        for (Prisklass prisklass : zoner) {
+            rubrik.append(' ').append(prisklass);
+        }
+        System.out.println(rubrik.append(" Billigast Spridning"));
+
+        int[] billigastAntal = new int[Prisklass.values().length];
+        RunningStats parSpridning = new RunningStats();
+        int störstaSpridning = 0;
+        for (int i = 0; i < jämförelse.size(); i++) {
+            DateTimeFormatter formatter = jämförelse.lengthSeconds(i) < 3600 ? timeFormatter : hourFormatter;
+            StringBuilder rad = new StringBuilder(jämförelse.timeStart(i).format(formatter))
+                    .append('-').append(jämförelse.timeEnd(i).format(formatter));
+            for (int z = 0; z < zoner.size(); z++) {
+                rad.append(' ').append(öre(df, jämförelse.price(z, i)));
             }
+            rad.append(' ').append(jämförelse.cheapest(i)).append(' ').append(öre(df, jämförelse.spread(i)));
+            System.out.println(rad);
 
-            Elpris start = priser.get(bestStart);
-            Elpris end = priser.get(bestStart + chargingHours - 1);
+            billigastAntal[jämförelse.cheapest(i).ordinal()]++;
+            parSpridning.add(jämförelse.pairSpread(i), jämförelse.lengthSeconds(i));
+            if (jämförelse.spread(i) > jämförelse.spread(störstaSpridning)) {
+                störstaSpridning = i;
+            }
+        }
 
-            double totalCostOre = minSum * 100;
-            double avgOre = totalCostOre / chargingHours;
+        System.out.println("----------------------------------------");
+        for (int z = 0; z < zoner.size(); z++) {
+            Prisklass prisklass = zoner.get(z);
+            System.out.println(prisklass + ": medelpris " + öre(df, serier.get(prisklass).averagePrice())
+                    + " öre, billigast " + billigastAntal[prisklass.ordinal()] + " av " + jämförelse.size() + " perioder");
+        }
+        System.out.println("Medelspridning " + zoner.getLast() + " - " + zoner.getFirst() + ": "
+                + öre(df, parSpridning.mean()) + " öre");
+        System.out.println("Största spridning: " + öre(df, jämförelse.spread(störstaSpridning)) + " öre kl "
+                + jämförelse.timeStart(störstaSpridning).format(timeFormatter) + "-"
+                + jämförelse.timeEnd(störstaSpridning).format(timeFormatter));
+    }
 
-            System.out.println("Påbörja laddning");
+    /**
+     * Tolkar "SE3", en kommaseparerad lista som "SE1,SE4" eller "all".
+     * @return Zonerna, eller null om någon zon är ogiltig.
+     */
+    static Set<Prisklass> parseZones(String value) {
+        if (value.equalsIgnoreCase("all")) {
+            return EnumSet.allOf(Prisklass.class);
+        }
+        EnumSet<Prisklass> zoner = EnumSet.noneOf(Prisklass.class);
+        for (String del : value.split(",")) {
+            try {
+                zoner.add(Prisklass.valueOf(del.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return zoner.isEmpty() ? null : zoner;
+    }
 
-            System.out.println("Optimalt laddningsfönster (" + chargingHours + "h):");
-            System.out.println("Starttid: kl " + start.timeStart().format(timeFormatter));
-            System.out.println("Sluttid: kl " + end.timeEnd().format(timeFormatter));
-            System.out.println("Total kostnad: " + df.format(totalCostOre) + " öre");
-            System.out.println("Medelpris för fönster: " + df.format(avgOre) + " öre");
+    /**
+     * Tolkar --from och --to.
+     * @return Första och sista datum, eller null efter ett felmeddelande.
+     */
+    private static LocalDate[] parseRange(String fromStr, String toStr) {
+        if (fromStr == null || toStr == null) {
+            System.out.println("Fel: --from och --to måste anges tillsammans.");
+            return null;
+        }
+        LocalDate från;
+        LocalDate till;
+        try {
+            från = LocalDate.parse(fromStr, DateTimeFormatter.ISO_LOCAL_DATE);
+            till = LocalDate.parse(toStr, DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (DateTimeParseException e) {
+            System.out.println("Fel: Ogiltigt datumformat. Använd YYYY-MM-DD.");
+            return null;
+        }
+        if (till.isBefore(från)) {
+            System.out.println("Fel: --to får inte vara före --from.");
+            return null;
+        }
+        return new LocalDate[]{från, till};
+    }
 
+    /**
+     * Skriver priserna för ett intervall och en eller flera zoner till en ögonblicksbild.
+     */
+    private static void runExport(ElpriserAPI api, Set<Prisklass> prisklasser, String fromStr, String toStr, Path fil) {
+        LocalDate[] intervall = parseRange(fromStr, toStr);
+        if (intervall == null) {
+            return;
+        }
+        int dagar;
+        try {
+            dagar = api.exportSnapshot(fil, intervall[0], intervall[1], prisklasser);
+        } catch (IOException e) {
+            System.out.println("Fel: Kunde inte skriva " + fil + ": " + e.getMessage());
             return;
         }
+        System.out.println("Exporterade " + dagar + " dagar för " + prisklasser.size() + " zoner till " + fil + ".");
+    }
 
-        List<Double> priserOre = new ArrayList<>();
-        double minPrice = Double.MAX_VALUE;
-        double maxPrice = Double.MIN_VALUE;
-        double sumPrice = 0.0;
+    /**
+     * Läser in en ögonblicksbild i disk-cachen.
+     * @return false om importen misslyckades.
+     */
+    private static boolean runImport(ElpriserAPI api, Path fil) {
+        try {
+            int dagar = api.importSnapshot(fil);
+            System.out.println("Importerade " + dagar + " dagar från " + fil + ".");
+            return true;
+        } catch (IOException e) {
+            System.out.println("Fel: Kunde inte importera " + fil + ": " + e.getMessage());
+            return false;
+        }
+    }
 
-        for (Elpris pris : priser) {
-            double ore = pris.sekPerKWh() * 100;
-            priserOre.add(ore);
+    private static DecimalFormat oreFormat() {
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.forLanguageTag("sv-SE"));
+        symbols.setDecimalSeparator(',');
+        return new DecimalFormat("#0.00", symbols);
+    }
 
-            if (ore < minPrice) {
-                minPrice = ore;
-            }
-            if (ore > maxPrice) {
-                maxPrice = ore;
-            }
-            sumPrice += ore;
+    /**
+     * Löser alla laddningsförfrågningar i en fil och skriver svaren till en annan.
+     */
+    private static void runBatch(ElpriserAPI api, String batchFile, String outputFile) {
+        if (outputFile == null) {
+            System.out.println("Fel: --batch kräver --output FIL.");
+            return;
+        }
+        long start = System.nanoTime();
+        ChargingBatch.Summary summering;
+        try {
+            summering = ChargingBatch.run(Path.of(batchFile), Path.of(outputFile), api);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Fel: Kunde inte köra batch: " + e.getMessage());
+            return;
         }
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Batch klar: " + summering.requests() + " förfrågningar, " + summering.solved()
+                + " lösta, " + summering.failed() + " fel. Svaren finns i " + outputFile + " (" + ms + " ms).");
+    }
 
-        double min = minPrice;
-        double max = maxPrice;
-        double avg = priserOre.isEmpty() ? 0.0 : sumPrice / priserOre.size();
+    /**
+     * Skriver ut kostnaden för förbrukningen i en CSV-fil med mätaravläsningar, summerad per period.
+     */
+    private static void printCost(ElpriserAPI api, Prisklass prisklass, Path fil, ConsumptionCost.Period period) {
+        ConsumptionCost.Result resultat;
+        try {
+            resultat = ConsumptionCost.compute(fil, api, prisklass, period);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Fel: Kunde inte läsa " + fil + ": " + e.getMessage());
+            return;
+        }
+        if (resultat.lines().isEmpty()) {
+            System.out.println("Inga avläsningar med pris i " + fil + " för zon: " + prisklass);
+            return;
+        }
 
-        System.out.println("\nElpriser för " + prisklass + " den " + datum.format(DateTimeFormatter.ISO_DATE) + ":");
+        DecimalFormat df = oreFormat();
+        DateTimeFormatter formatter = switch (period) {
+            case HOUR -> DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+            case DAY -> DateTimeFormatter.ISO_LOCAL_DATE;
+            case MONTH -> DateTimeFormatter.ofPattern("yyyy-MM");
+        };
+        System.out.println("\nFörbrukningskostnad för " + prisklass + " (" + resultat.readings() + " avläsningar):");
         System.out.println("----------------------------------------");
+        for (ConsumptionCost.Line rad : resultat.lines()) {
+            System.out.println(rad.start().format(formatter) + " " + df.format(rad.kWh()) + " kWh "
+                    + df.format(rad.sek()) + " kr (" + öre(df, rad.averagePrice()) + " öre/kWh)");
+        }
+        System.out.println("----------------------------------------");
+        System.out.println("Total förbrukning: " + df.format(resultat.totalKWh()) + " kWh");
+        System.out.println("Total kostnad: " + df.format(resultat.totalSek()) + " kr");
+        System.out.println("Medelpris: " + öre(df, resultat.averagePrice()) + " öre/kWh");
+        if (resultat.unmatched() > 0 || resultat.invalid() > 0) {
+            System.out.println("Hoppade över " + resultat.unmatched() + " avläsningar utan pris och "
+                    + resultat.invalid() + " ogiltiga rader.");
+        }
+    }
 
-        List<Elpris> priserForDisplay = new ArrayList<>(priser);
-        if (sorted) {
-            priserForDisplay.sort(Comparator.comparingDouble(Elpris::sekPerKWh));
+    private static String öre(DecimalFormat df, double sekPerKWh) {
+        return df.format(sekPerKWh * 100);
+    }
+
+    /**
+     * Startar serverläget. Servern körs tills processen avslutas och förhämtar
+     * morgondagens priser för alla prisklasser när de publiceras, utom offline. Räknare och
+     * hämtningstider visas i JMX under com.example.api:type=ElpriserAPI.
+     */
+    private static void startServer(int port, boolean offline) {
+        try {
+            ApiStatistics statistik = new ApiStatistics();
+            ElpriserAPI api = ElpriserAPI.builder().metrics(statistik).offline(offline).build();
+            statistik.registerMBean("server");
+            PriceServer server = new PriceServer(api, port);
+            NextDayPrefetcher prefetcher = offline ? null : api.startPrefetch(EnumSet.allOf(Prisklass.class));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (prefetcher != null) {
+                    prefetcher.close();
+                }
+                server.close();
+            }));
+            server.start();
+            System.out.println("Servern lyssnar på http://localhost:" + server.port() + "/ (prices, stats, charging)");
+        } catch (IOException e) {
+            System.out.println("Fel: Kunde inte starta servern: " + e.getMessage());
         }
+    }
 
-        for (Elpris pris : priserForDisplay) {
-            String startHour = pris.timeStart().format(hourFormatter);
-            String endHour = pris.timeEnd().format(hourFormatter);
+    /**
+     * Skriver ut de billigaste sammanhängande laddningsfönstren. Fönstrets längd anges i minuter
+     * och räknas om till antal perioder utifrån seriens upplösning. Fönster som slutar efter
+     * {@code prognosFrån} bygger på prognos och markeras.
+     */
+    private static void printCharging(PriceSeries priser, double[] sekPerKWh, int chargingMinutes, int antalFönster,
+                                      long prognosFrån, DecimalFormat df, DateTimeFormatter timeFormatter) {
+        int n = sekPerKWh.length;
+        int slots = ChargingOptimizer.slotsFor(chargingMinutes, priser.lengthSeconds(0));
+
+        if (slots > n) {
+            System.out.println("Fel: Kan inte ladda längre än " + n + " tillgängliga perioder.");
+            return;
+        }
 
-            String timeRange = startHour + "-" + endHour;
-            double ore = pris.sekPerKWh() * 100;
-            System.out.println(timeRange + " " + df.format(ore) + " öre");
+        List<ChargingOptimizer.Window> fönster = ChargingOptimizer.cheapest(sekPerKWh, slots, antalFönster);
+        if (fönster.isEmpty()) {
+            System.out.println("Kunde inte hitta ett optimalt laddningsfönster.");
+            return;
         }
 
-        System.out.println("----------------------------------------");
-        System.out.println("Lägsta pris: " + df.format(min) + " öre");
-        System.out.println("Högsta pris: " + df.format(max) + " öre");
-        System.out.println("Medelpris: " + df.format(avg) + " öre");
+        System.out.println("Påbörja laddning");
+
+        String längd = chargingMinutes % 60 == 0 ? (chargingMinutes / 60) + "h" : chargingMinutes + "min";
+        for (int k = 0; k < fönster.size(); k++) {
+            ChargingOptimizer.Window window = fönster.get(k);
+            double totalCostOre = window.sum() * 100;
+            double avgOre = window.average() * 100;
+
+            String prognos = priser.endEpochSecond(window.end() - 1) > prognosFrån ? " (prognos)" : "";
+            System.out.println((k == 0 ? "Optimalt laddningsfönster (" : "Alternativ " + (k + 1) + " (") + längd + ")"
+                    + prognos + ":");
+            System.out.println("Starttid: kl " + priser.timeStart(window.start()).format(timeFormatter));
+            System.out.println("Sluttid: kl " + priser.timeEnd(window.end() - 1).format(timeFormatter));
+            System.out.println("Total kostnad: " + df.format(totalCostOre) + " öre");
+            System.out.println("Medelpris för fönster: " + df.format(avgOre) + " öre");
+        }
+    }
+
+    /**
+     * Skriver ut de billigaste perioderna för en last som inte behöver gå sammanhängande,
+     * med valfria krav på minsta körlängd, längsta uppehåll och sluttid. Perioder som börjar
+     * vid eller efter {@code prognosFrån} bygger på prognos och markeras.
+     */
+    private static void printSchedule(PriceSeries priser, double[] sekPerKWh, LocalDate datum, int scheduleMinutes,
+                                      int minRunMinutes, int maxGapMinutes, String deadlineStr,
+                                      long prognosFrån, DecimalFormat df, DateTimeFormatter timeFormatter) {
+        long slotSeconds = priser.lengthSeconds(0);
+        int count = ChargingOptimizer.slotsFor(scheduleMinutes, slotSeconds);
+        int minRun = minRunMinutes > 0 ? ChargingOptimizer.slotsFor(minRunMinutes, slotSeconds) : 1;
+        int maxGap = maxGapMinutes < 0 ? SlotScheduler.UNLIMITED : (int) (maxGapMinutes * 60L / slotSeconds);
+
+        int deadline = sekPerKWh.length;
+        if (deadlineStr != null) {
+            Long deadlineEpoch = parseDeadline(deadlineStr, datum, priser);
+            if (deadlineEpoch == null) {
+                System.out.println("Fel: Ogiltigt format för --deadline. Använd HH:mm eller YYYY-MM-DDTHH:mm.");
+                return;
+            }
+            deadline = 0;
+            while (deadline < sekPerKWh.length && priser.endEpochSecond(deadline) <= deadlineEpoch) {
+                deadline++;
+            }
+        }
+
+        SlotScheduler.Schedule schema;
+        try {
+            schema = SlotScheduler.cheapest(sekPerKWh, count, new SlotScheduler.Constraints(0, deadline, minRun, maxGap));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Fel: " + e.getMessage());
+            return;
+        }
+        if (schema == null) {
+            System.out.println("Kunde inte hitta ett schema som uppfyller villkoren.");
+            return;
+        }
+
+        System.out.println("Billigaste perioder (" + schema.slots().length + " st):");
+        for (int slot : schema.slots()) {
+            System.out.println(priser.timeStart(slot).format(timeFormatter) + "-" + priser.timeEnd(slot).format(timeFormatter)
+                    + " " + df.format(sekPerKWh[slot] * 100) + " öre"
+                    + (priser.startEpochSecond(slot) >= prognosFrån ? " (prognos)" : ""));
+        }
+        System.out.println("Total kostnad: " + df.format(schema.sum() * 100) + " öre");
+        System.out.println("Medelpris: " + df.format(schema.average() * 100) + " öre");
+    }
+
+    /**
+     * Tolkar en sluttid som "YYYY-MM-DDTHH:mm" eller "HH:mm". Ett klockslag som redan passerats
+     * vid seriens början avser nästa dag.
+     * @return Sluttiden i epoksekunder, eller null om formatet är ogiltigt.
+     */
+    private static Long parseDeadline(String value, LocalDate datum, PriceSeries priser) {
+        try {
+            ZoneOffset offset = priser.timeStart(0).getOffset();
+            if (value.contains("T")) {
+                return LocalDateTime.parse(value).toEpochSecond(offset);
+            }
+            long epoch = LocalDateTime.of(datum, LocalTime.parse(value)).toEpochSecond(offset);
+            return epoch <= priser.startEpochSecond(0) ? epoch + 86_400 : epoch;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tolkar en längd som "2h", "90m", "90min" eller bara "4" (timmar).
+     * @return Längden i minuter, eller -1 om formatet är ogiltigt.
+     */
+    static int parseMinutes(String value) {
+        try {
+            if (value.endsWith("min")) {
+                return Integer.parseInt(value.substring(0, value.length() - 3));
+            }
+            if (value.endsWith("m")) {
+                return Integer.parseInt(value.substring(0, value.length() - 1));
+            }
+            if (value.endsWith("h")) {
+                return Integer.parseInt(value.substring(0, value.length() - 1)) * 60;
+            }
+            return Integer.parseInt(value) * 60;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     private static void printHelp() {
@@ -212,9 +797,33 @@ public class Main {
 
                 Argument:
                   --zone SE1|SE2|SE3|SE4   (obligatoriskt) Välj elprisområde.
+                                           Flera zoner som SE1,SE4 eller all jämför priserna per period.
                   --date YYYY-MM-DD        (valfritt, standard = idag) Datum att hämta priser för.
                   --sorted                 (valfritt) Visar prislistan sorterad från billigast till dyrast.
                   --charging 2h|4h|8h      (valfritt) Hittar de billigaste N sammanhängande timmarna för laddning.
+                                           Valfri längd går också, t.ex. 90m eller 24h.
+                  --resolution 15m|30m|60m (valfritt) Slår ihop priserna till perioder av given längd.
+                  --top K                  (valfritt) Visar de K billigaste fönstren som inte överlappar.
+                  --schedule 3h            (valfritt) Väljer de billigaste perioderna, inte nödvändigtvis i följd.
+                    --min-run 1h           (valfritt) Minsta sammanhängande körtid för --schedule.
+                    --max-gap 2h           (valfritt) Längsta uppehåll mellan körningar för --schedule.
+                    --deadline 07:00       (valfritt) Allt ska vara klart före denna tid (HH:mm eller YYYY-MM-DDTHH:mm).
+                  --forecast [VECKOR]      (valfritt) För idag: förlänger --charging och --schedule med en prognos
+                                           ett dygn efter sista publicerade priset, från samma veckodag de
+                                           senaste veckorna (standard 4, högst 8).
+                  --from YYYY-MM-DD        (valfritt) Tillsammans med --to: historisk analys med percentiler per
+                  --to YYYY-MM-DD          timme, veckodagsprofil, dagsspridning och rullande 7/30-dagarsmedel.
+                  --cost FIL.csv           (valfritt) Räknar ut kostnaden för mätaravläsningar i en CSV-fil med
+                                           tid med offset och kWh per rad, t.ex. 2025-09-04T00:15+02:00,1.25.
+                    --period day           (valfritt) Summera per hour, day (standard) eller month.
+                  --batch FIL --output FIL (valfritt) Löser laddningsförfrågningar från en CSV- eller JSONL-fil
+                                           (id, zone, earliest, deadline, duration, energy) i en körning.
+                  --export FIL             (valfritt) Tillsammans med --from/--to: sparar priserna för en eller
+                                           flera zoner i en komprimerad ögonblicksbild.
+                  --import FIL             (valfritt) Läser in en ögonblicksbild i cachen, före övriga kommandon.
+                  --offline                (valfritt) Använder bara cachen och går aldrig ut på nätverket.
+                  --server [PORT]          (valfritt) Startar en lokal HTTP-server (standard 8080) med
+                                           /prices, /stats och /charging som svarar med JSON.
                   --help                   (valfritt) Visar denna hjälp.
                 """);
     }
@@ -0,0 +1,41 @@
+package com.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-händelse för en sökning i {@link ChargingOptimizer} eller {@link SlotScheduler}.
+ */
+@Name("com.example.Optimize")
+@Label("Optimering")
+@Category({"Elpriser", "Optimering"})
+@Description("Sökning efter billigaste fönster eller perioder")
+final class OptimizeEvent extends Event {
+
+    @Label("Algoritm")
+    String algorithm;
+
+    @Label("Perioder")
+    @Description("Antal perioder i sökintervallet")
+    int slots;
+
+    @Label("Längd")
+    @Description("Fönstrets längd eller antal perioder att välja")
+    int length;
+
+    @Label("Antal")
+    @Description("Antal efterfrågade fönster")
+    int count;
+
+    /** Sätter fälten och spelar in händelsen. Anropas bara när {@link #shouldCommit()} är sann. */
+    void commitWith(String algorithm, int slots, int length, int count) {
+        this.algorithm = algorithm;
+        this.slots = slots;
+        this.length = length;
+        this.count = count;
+        commit();
+    }
+}
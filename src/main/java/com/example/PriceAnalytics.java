@@ -0,0 +1,199 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Historisk prisanalys över ett godtyckligt långt intervall, t.ex. ett år med kvartspriser.
+ * Perioderna tas emot en i taget i tidsordning via {@link ElpriserAPI#scan} och sparas inte,
+ * all statistik hålls i ackumulatorer av fast storlek:
+ * <ul>
+ *   <li>medel, spridning och percentiler för hela intervallet och per timme på dygnet</li>
+ *   <li>medelpris per veckodag</li>
+ *   <li>dagsspridning (högsta minus lägsta pris) och volatilitet i dagsmedel</li>
+ *   <li>rullande 7- och 30-dagarsmedel</li>
+ * </ul>
+ * Perioderna viktas med sin längd, så en timme med timpris väger lika mycket som fyra kvartar.
+ * Timme, dag och veckodag avser lokal tid enligt periodens UTC-offset.
+ */
+public final class PriceAnalytics implements ElpriserAPI.PriceVisitor {
+
+    /** Längden på de rullande medelvärdena i dagar. */
+    public static final int SHORT_WINDOW = 7;
+    public static final int LONG_WINDOW = 30;
+
+    private final RunningStats all = new RunningStats();
+    private final QuantileDigest allQuantiles = new QuantileDigest();
+    private final RunningStats[] byHour = new RunningStats[24];
+    private final QuantileDigest[] hourQuantiles = new QuantileDigest[24];
+    private final RunningStats[] byWeekday = new RunningStats[7];
+
+    // Dagsvärden, samlas ihop när en ny dag börjar
+    private final RunningStats dailyMeans = new RunningStats();
+    private final RunningStats dailySpreads = new RunningStats();
+    private final RunningStats dailyChanges = new RunningStats();
+    private long currentDay = Long.MIN_VALUE;
+    private final RunningStats today = new RunningStats();
+    private double previousDailyMean = Double.NaN;
+    private long previousDay;
+
+    // Senaste dagsmedlen, indexerade på epokdag modulo fönsterlängden
+    private final long[] windowDays = new long[LONG_WINDOW];
+    private final double[] windowMeans = new double[LONG_WINDOW];
+    private double shortAverage = Double.NaN;
+    private double longAverage = Double.NaN;
+    private final RunningStats longAverages = new RunningStats();
+    private long lowestLongDay;
+    private long highestLongDay;
+
+    public PriceAnalytics() {
+        for (int h = 0; h < 24; h++) {
+            byHour[h] = new RunningStats();
+            hourQuantiles[h] = new QuantileDigest();
+        }
+        for (int d = 0; d < 7; d++) {
+            byWeekday[d] = new RunningStats();
+        }
+        Arrays.fill(windowDays, Long.MIN_VALUE);
+    }
+
+    @Override
+    public void visit(long startEpochSecond, int lengthSeconds, int startOffsetSeconds, double sekPerKWh) {
+        long local = startEpochSecond + startOffsetSeconds;
+        long day = Math.floorDiv(local, 86_400);
+        int hour = (int) (Math.floorMod(local, 86_400) / 3600);
+        double hours = lengthSeconds / 3600.0;
+
+        if (day != currentDay) {
+            closeDay();
+            currentDay = day;
+        }
+        today.add(sekPerKWh, hours);
+        all.add(sekPerKWh, hours);
+        allQuantiles.add(sekPerKWh, hours);
+        byHour[hour].add(sekPerKWh, hours);
+        hourQuantiles[hour].add(sekPerKWh, hours);
+        // Epokdag 0 var en torsdag, måndag får index 0
+        byWeekday[(int) Math.floorMod(day + 3, 7)].add(sekPerKWh, hours);
+    }
+
+    /**
+     * Avslutar den sista dagen. Anropas när alla perioder tagits emot, innan dagsstatistiken läses.
+     */
+    public PriceAnalytics finish() {
+        closeDay();
+        currentDay = Long.MIN_VALUE;
+        return this;
+    }
+
+    private void closeDay() {
+        if (today.count() == 0) {
+            return;
+        }
+        double mean = today.mean();
+        dailyMeans.add(mean);
+        dailySpreads.add(today.max() - today.min());
+        // Volatiliteten räknas bara mellan dagar som följer direkt på varandra
+        if (!Double.isNaN(previousDailyMean) && previousDay == currentDay - 1) {
+            dailyChanges.add(mean - previousDailyMean);
+        }
+        previousDailyMean = mean;
+        previousDay = currentDay;
+
+        int slot = (int) Math.floorMod(currentDay, LONG_WINDOW);
+        windowDays[slot] = currentDay;
+        windowMeans[slot] = mean;
+        shortAverage = windowAverage(SHORT_WINDOW);
+        longAverage = windowAverage(LONG_WINDOW);
+        if (dailyMeans.count() >= LONG_WINDOW) {
+            if (longAverages.count() == 0 || longAverage < longAverages.min()) {
+                lowestLongDay = currentDay;
+            }
+            if (longAverages.count() == 0 || longAverage > longAverages.max()) {
+                highestLongDay = currentDay;
+            }
+            longAverages.add(longAverage);
+        }
+        today.reset();
+    }
+
+    /** Medel av dagsmedlen för de senaste {@code days} kalenderdagarna som har priser. */
+    private double windowAverage(int days) {
+        double sum = 0;
+        int n = 0;
+        for (int k = 0; k < LONG_WINDOW; k++) {
+            if (windowDays[k] > currentDay - days && windowDays[k] <= currentDay) {
+                sum += windowMeans[k];
+                n++;
+            }
+        }
+        return n == 0 ? Double.NaN : sum / n;
+    }
+
+    /** Alla perioder, viktade med sin längd i timmar. */
+    public RunningStats overall() {
+        return all;
+    }
+
+    /** Uppskattad kvantil för alla perioder, t.ex. 0.9. */
+    public double quantile(double q) {
+        return allQuantiles.quantile(q);
+    }
+
+    /** Perioder som börjar under timme {@code hour} (0-23) lokal tid. */
+    public RunningStats hour(int hour) {
+        return byHour[hour];
+    }
+
+    /** Uppskattad kvantil för perioder som börjar under timme {@code hour} lokal tid. */
+    public double hourQuantile(int hour, double q) {
+        return hourQuantiles[hour].quantile(q);
+    }
+
+    public RunningStats weekday(DayOfWeek dag) {
+        return byWeekday[dag.ordinal()];
+    }
+
+    /** Dagsmedel, ett värde per dag med priser. */
+    public RunningStats dailyMeans() {
+        return dailyMeans;
+    }
+
+    /** Skillnaden mellan dagens högsta och lägsta pris, ett värde per dag. */
+    public RunningStats dailySpreads() {
+        return dailySpreads;
+    }
+
+    /** Förändringen i dagsmedel mellan två dagar i följd. Standardavvikelsen är volatiliteten. */
+    public RunningStats dailyChanges() {
+        return dailyChanges;
+    }
+
+    /** Rullande 7-dagarsmedel vid intervallets slut. */
+    public double shortAverage() {
+        return shortAverage;
+    }
+
+    /** Rullande 30-dagarsmedel vid intervallets slut. */
+    public double longAverage() {
+        return longAverage;
+    }
+
+    /** Alla rullande 30-dagarsmedel, från dag 30 och framåt. */
+    public RunningStats longAverages() {
+        return longAverages;
+    }
+
+    /** Sista dagen i det billigaste 30-dagarsfönstret. */
+    public LocalDate lowestLongAverageEnd() {
+        return LocalDate.ofEpochDay(lowestLongDay);
+    }
+
+    /** Sista dagen i det dyraste 30-dagarsfönstret. */
+    public LocalDate highestLongAverageEnd() {
+        return LocalDate.ofEpochDay(highestLongDay);
+    }
+}
@@ -0,0 +1,367 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+import com.example.api.ElpriserAPI.Prisklass;
+import com.example.api.PriceIndex;
+import com.example.api.PriceSeries;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * En lokal HTTP-server som svarar på prisfrågor med JSON. Servern håller en och samma
+ * {@link ElpriserAPI} varm, så upprepade frågor besvaras från minnes-cachen i stället för
+ * att starta en ny JVM och läsa disk-cachen för varje fråga.
+ * <p>
+ * Varje förfrågan hanteras i en egen virtuell tråd. Sortering och statistik för en dag läses ur
+ * dagens {@link PriceIndex}, som byggs vid första frågan och sedan följer med dagen i cachen.
+ * <ul>
+ *   <li>{@code GET /prices?zone=SE3&date=2025-09-04} – alla perioder för dagen, med {@code sorted=true}
+ *       från billigast till dyrast</li>
+ *   <li>{@code GET /stats?zone=SE3&date=2025-09-04} – lägsta, högsta och medelpris, standardavvikelse
+ *       och när lägsta och högsta pris börjar. Medelpris och standardavvikelse viktas med periodernas längd</li>
+ *   <li>{@code GET /charging?zone=SE3&duration=2h&top=1} – billigaste laddningsfönster, idag och imorgon.
+ *       Utan {@code date} börjar fönstren i den pågående perioden, och med {@code forecast=4} förlängs
+ *       horisonten med en prognos från de senaste fyra veckorna</li>
+ * </ul>
+ * Priser anges i SEK per kWh. {@code date} är valfritt och är som standard dagens datum.
+ * Laddningshorisonten utan datum hålls per zon mellan förfrågningarna, så när nya priser
+ * publiceras prövas bara de nya fönstren.
+ */
+public final class PriceServer implements AutoCloseable {
+
+    private static final ZoneId SVENSK_TID = ZoneId.of("Europe/Stockholm");
+
+    private final ElpriserAPI api;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Clock clock;
+    // Högst en horisont per zon och antal prognosveckor, eftersom forecast är begränsat
+    private final Map<HorizonKey, ChargingHorizon> horizons = new ConcurrentHashMap<>();
+
+    private record HorizonKey(Prisklass prisklass, int forecastWeeks) {
+    }
+
+    /**
+     * Skapar servern och binder den till loopback-adressen. Servern startas med {@link #start()}.
+     * @param port Porten att lyssna på, eller 0 för en ledig port.
+     */
+    public PriceServer(ElpriserAPI api, int port) throws IOException {
+        this(api, port, Clock.systemDefaultZone());
+    }
+
+    PriceServer(ElpriserAPI api, int port, Clock clock) throws IOException {
+        this.api = api;
+        this.clock = clock;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/prices", exchange -> handle(exchange, this::prices));
+        server.createContext("/stats", exchange -> handle(exchange, this::stats));
+        server.createContext("/charging", exchange -> handle(exchange, this::charging));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Porten servern lyssnar på. */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    // --- Endpoints ---
+
+    private String prices(Map<String, String> query) {
+        Prisklass prisklass = zone(query);
+        LocalDate datum = date(query);
+        boolean sorted = Boolean.parseBoolean(query.get("sorted"));
+        PriceIndex index = api.getPriceIndex(datum, prisklass);
+        PriceSeries priser = index.series();
+        requireData(priser, prisklass, datum);
+
+        StringBuilder json = new StringBuilder(64 + priser.size() * 96);
+        json.append("{\"zone\":\"").append(prisklass).append("\",\"date\":\"").append(datum).append("\",\"prices\":[");
+        for (int k = 0; k < priser.size(); k++) {
+            int i = sorted ? index.sortedIndex(k) : k;
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append("{\"start\":\"").append(priser.timeStart(i))
+                    .append("\",\"end\":\"").append(priser.timeEnd(i))
+                    .append("\",\"sekPerKWh\":").append(jsonNumber(priser.price(i))).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private String stats(Map<String, String> query) {
+        Prisklass prisklass = zone(query);
+        LocalDate datum = date(query);
+        PriceIndex index = api.getPriceIndex(datum, prisklass);
+        PriceSeries priser = index.series();
+        requireData(priser, prisklass, datum);
+
+        int n = priser.size();
+        // Medelpris och standardavvikelse viktas båda med periodernas längd, så att de beskriver
+        // samma fördelning även när dagen blandar upplösningar
+        return "{\"zone\":\"" + prisklass + "\",\"date\":\"" + datum + "\",\"count\":" + n
+                + ",\"min\":" + jsonNumber(index.min()) + ",\"max\":" + jsonNumber(index.max())
+                + ",\"mean\":" + jsonNumber(priser.averagePrice()) + ",\"stdDev\":" + jsonNumber(Math.sqrt(priser.priceVariance()))
+                + ",\"minStart\":\"" + priser.timeStart(index.argMin())
+                + "\",\"maxStart\":\"" + priser.timeStart(index.argMax()) + "\"}";
+    }
+
+    private String charging(Map<String, String> query) {
+        Prisklass prisklass = zone(query);
+        LocalDate datum = date(query);
+        int minutes = Main.parseMinutes(query.getOrDefault("duration", "2h"));
+        if (minutes <= 0) {
+            throw new BadRequest(400, "Ogiltig längd för duration. Använd t.ex. 2h, 90m eller 8h.");
+        }
+        int top;
+        try {
+            top = Integer.parseInt(query.getOrDefault("top", "1"));
+        } catch (NumberFormatException e) {
+            top = 0;
+        }
+        if (top < 1) {
+            throw new BadRequest(400, "top måste vara ett positivt heltal.");
+        }
+
+        if (query.get("date") == null) {
+            return chargingFromNow(prisklass, minutes, top, forecastWeeks(query));
+        }
+        PriceSeries priser = api.getPriceSeries(datum, datum.plusDays(1), prisklass).uniform();
+        requireData(priser, prisklass, datum);
+        int slots = ChargingOptimizer.slotsFor(minutes, priser.lengthSeconds(0));
+        if (slots > priser.size()) {
+            throw new BadRequest(400, "Kan inte ladda längre än " + priser.size() + " tillgängliga perioder.");
+        }
+        List<ChargingOptimizer.Window> fönster = ChargingOptimizer.cheapest(priser.toPriceArray(), slots, top);
+        return chargingJson(prisklass, datum, minutes, priser, fönster, Integer.MAX_VALUE);
+    }
+
+    /** Laddningsfönster som börjar i den pågående perioden, ur zonens horisont. */
+    private String chargingFromNow(Prisklass prisklass, int minutes, int top, int forecastWeeks) {
+        ChargingHorizon horisont = horizons.computeIfAbsent(new HorizonKey(prisklass, forecastWeeks),
+                key -> new ChargingHorizon(api, key.prisklass(), clock, key.forecastWeeks()));
+        // Låset hindrar en samtidig refresh. Klockan kan ändå passera en periodgräns under
+        // förfrågan, så den pågående perioden läses en gång och allt nedan utgår från den.
+        synchronized (horisont) {
+            horisont.refresh();
+            int från = horisont.currentIndex();
+            PriceSeries hela = horisont.horizon();
+            PriceSeries priser = hela.slice(från, hela.size());
+            LocalDate datum = today();
+            requireData(priser, prisklass, datum);
+            int slots = ChargingOptimizer.slotsFor(minutes, priser.lengthSeconds(0));
+            if (slots > priser.size()) {
+                throw new BadRequest(400, "Kan inte ladda längre än " + priser.size() + " tillgängliga perioder.");
+            }
+
+            // Index i horisonten räknas om till index i den återstående serien
+            List<ChargingOptimizer.Window> fönster;
+            if (top == 1) {
+                // Det vanligaste fallet räknas inkrementellt i horisonten
+                ChargingHorizon.Plan plan = horisont.cheapest(slots, från);
+                fönster = List.of(new ChargingOptimizer.Window(plan.start() - från, plan.length(), plan.sum()));
+            } else {
+                fönster = ChargingOptimizer.cheapest(priser.toPriceArray(), slots, top);
+            }
+            return chargingJson(prisklass, datum, minutes, priser, fönster, horisont.forecastFrom() - från);
+        }
+    }
+
+    private static String chargingJson(Prisklass prisklass, LocalDate datum, int minutes, PriceSeries priser,
+                                       List<ChargingOptimizer.Window> fönster, int prognosFrån) {
+        StringBuilder json = new StringBuilder(128 + fönster.size() * 128);
+        json.append("{\"zone\":\"").append(prisklass).append("\",\"date\":\"").append(datum)
+                .append("\",\"durationMinutes\":").append(minutes).append(",\"windows\":[");
+        for (int k = 0; k < fönster.size(); k++) {
+            ChargingOptimizer.Window window = fönster.get(k);
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append("{\"start\":\"").append(priser.timeStart(window.start()))
+                    .append("\",\"end\":\"").append(priser.timeEnd(window.end() - 1))
+                    .append("\",\"totalSek\":").append(jsonNumber(window.sum()))
+                    .append(",\"averageSekPerKWh\":").append(jsonNumber(window.average()));
+            if (prognosFrån != Integer.MAX_VALUE) {
+                json.append(",\"forecast\":").append(window.end() > prognosFrån);
+            }
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    // --- Hjälpmetoder ---
+
+    /** Ett fel i förfrågan som ska besvaras med given statuskod. */
+    private static final class BadRequest extends RuntimeException {
+        private final int status;
+
+        BadRequest(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Endpoint {
+        String respond(Map<String, String> query);
+    }
+
+    private static void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        int status;
+        String body;
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                status = 405;
+                body = error("Endast GET stöds.");
+            } else {
+                try {
+                    body = endpoint.respond(parseQuery(exchange.getRequestURI().getRawQuery()));
+                    status = 200;
+                } catch (BadRequest e) {
+                    status = e.status;
+                    body = error(e.getMessage());
+                } catch (RuntimeException e) {
+                    status = 500;
+                    body = error("Internt fel: " + e.getMessage());
+                }
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static Prisklass zone(Map<String, String> query) {
+        String zone = query.get("zone");
+        if (zone == null) {
+            throw new BadRequest(400, "Parametern zone är obligatorisk.");
+        }
+        try {
+            return Prisklass.valueOf(zone.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(400, "Ogiltig zon. Använd SE1, SE2, SE3 eller SE4.");
+        }
+    }
+
+    private static int forecastWeeks(Map<String, String> query) {
+        String weeks = query.get("forecast");
+        if (weeks == null) {
+            return 0;
+        }
+        try {
+            int n = Integer.parseInt(weeks);
+            if (n >= 0 && n <= ChargingHorizon.MAX_FORECAST_WEEKS) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // Faller igenom till felet nedan
+        }
+        throw new BadRequest(400, "forecast måste vara ett antal veckor mellan 0 och "
+                + ChargingHorizon.MAX_FORECAST_WEEKS + ".");
+    }
+
+    private LocalDate date(Map<String, String> query) {
+        String date = query.get("date");
+        if (date == null) {
+            return today();
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new BadRequest(400, "Ogiltigt datumformat. Använd YYYY-MM-DD.");
+        }
+    }
+
+    /** Dagens datum i svensk tid enligt serverns klocka, oavsett maskinens tidszon. */
+    private LocalDate today() {
+        return LocalDate.now(clock.withZone(SVENSK_TID));
+    }
+
+    private static void requireData(PriceSeries priser, Prisklass prisklass, LocalDate datum) {
+        if (priser.isEmpty()) {
+            throw new BadRequest(404, "Ingen data tillgänglig för zon: " + prisklass + " datum: " + datum);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + jsonString(message) + "}";
+    }
+
+    /**
+     * Ett tal i JSON. NaN och oändligheter finns inte i JSON och skrivs som {@code null},
+     * t.ex. medelpriset för ett tomt intervall.
+     */
+    static String jsonNumber(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "null";
+    }
+
+    /**
+     * En JSON-sträng med citattecken. Omvänt snedstreck, citattecken och alla kontrolltecken
+     * kodas, så att text från förfrågan alltid ger giltig JSON.
+     */
+    static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
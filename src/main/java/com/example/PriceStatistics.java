@@ -0,0 +1,102 @@
+package com.example;
+
+/**
+ * Lägsta, högsta, summa och varians för en prisarray, med index för lägsta och högsta pris.
+ * <p>
+ * När modulen {@code jdk.incubator.vector} finns, t.ex. med
+ * {@code java --add-modules jdk.incubator.vector}, räknas statistiken med SIMD-instruktioner
+ * via JDK:s Vector API. Annars används en vanlig skalär slinga med samma resultat, bortsett
+ * från avrundningen i summan.
+ */
+public final class PriceStatistics {
+
+    private static final boolean VECTORIZED = vectorAvailable();
+
+    /**
+     * Statistik för en prisarray.
+     * @param count Antal priser.
+     * @param min Lägsta pris.
+     * @param argMin Index i arrayen för lägsta pris, det tidigaste vid lika.
+     * @param max Högsta pris.
+     * @param argMax Index i arrayen för högsta pris, det tidigaste vid lika.
+     * @param sum Summan av priserna.
+     * @param variance Populationsvariansen.
+     */
+    public record Summary(int count, double min, int argMin, double max, int argMax, double sum, double variance) {
+
+        public double mean() {
+            return sum / count;
+        }
+
+        public double stdDev() {
+            return Math.sqrt(variance);
+        }
+    }
+
+    private PriceStatistics() {
+    }
+
+    /** Om Vector API används. */
+    public static boolean vectorized() {
+        return VECTORIZED;
+    }
+
+    public static Summary of(double[] prices) {
+        return of(prices, 0, prices.length);
+    }
+
+    /**
+     * Statistik för priserna i {@code [from, to)}.
+     * @throws IllegalArgumentException om intervallet är tomt.
+     */
+    public static Summary of(double[] prices, int from, int to) {
+        checkRange(prices, from, to);
+        return VECTORIZED ? VectorStatistics.of(prices, from, to) : scalar(prices, from, to);
+    }
+
+    static Summary scalar(double[] prices, int from, int to) {
+        checkRange(prices, from, to);
+        double min = prices[from];
+        double max = prices[from];
+        int argMin = from;
+        int argMax = from;
+        double sum = 0.0;
+        for (int i = from; i < to; i++) {
+            double p = prices[i];
+            if (p < min) {
+                min = p;
+                argMin = i;
+            }
+            if (p > max) {
+                max = p;
+                argMax = i;
+            }
+            sum += p;
+        }
+        // Variansen räknas i en andra genomgång kring medelvärdet, vilket är numeriskt stabilt
+        double mean = sum / (to - from);
+        double squares = 0.0;
+        for (int i = from; i < to; i++) {
+            double d = prices[i] - mean;
+            squares += d * d;
+        }
+        return new Summary(to - from, min, argMin, max, argMax, sum, squares / (to - from));
+    }
+
+    private static void checkRange(double[] prices, int from, int to) {
+        if (from < 0 || to > prices.length || from >= to) {
+            throw new IllegalArgumentException("Ogiltigt eller tomt intervall [" + from + ", " + to + ")");
+        }
+    }
+
+    private static boolean vectorAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorStatistics.lanes() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example;
+
+/**
+ * Uppskattar kvantiler, t.ex. median och 90:e percentilen, i konstant minne enligt
+ * t-digest. Värdena samlas i en buffert som då och då slås ihop till ett begränsat antal
+ * centroider. Centroiderna hålls små nära ändarna och större mot mitten, så ytterkvantilerna
+ * blir noggrannast. Två instanser kan slås ihop.
+ * <p>
+ * Minnesbehovet bestäms av {@code compression} och beror inte på antalet värden.
+ */
+public final class QuantileDigest {
+
+    private static final int DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+
+    // Centroider sorterade på medelvärde. Arrayerna byts mot tmp vid varje sammanslagning.
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered;
+
+    private double[] tmpMeans;
+    private double[] tmpWeights;
+
+    private double totalWeight;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public QuantileDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression Styr antalet centroider och därmed noggrannheten, t.ex. 100.
+     */
+    public QuantileDigest(int compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("compression måste vara minst 10");
+        }
+        this.compression = compression;
+        int capacity = 2 * compression + 10;
+        int bufferSize = 5 * compression;
+        means = new double[capacity + bufferSize];
+        weights = new double[capacity + bufferSize];
+        tmpMeans = new double[capacity + bufferSize];
+        tmpWeights = new double[capacity + bufferSize];
+        bufferMeans = new double[bufferSize];
+        bufferWeights = new double[bufferSize];
+    }
+
+    /** Lägger till ett värde med vikten 1. */
+    public void add(double x) {
+        add(x, 1.0);
+    }
+
+    /** Lägger till ett viktat värde. Värden med vikt 0 eller lägre ignoreras. */
+    public void add(double x, double w) {
+        if (w <= 0 || Double.isNaN(x)) {
+            return;
+        }
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = x;
+        bufferWeights[buffered] = w;
+        buffered++;
+        totalWeight += w;
+        if (Double.isNaN(min)) {
+            min = x;
+            max = x;
+        } else {
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+        }
+    }
+
+    /** Slår ihop värdena från {@code other} med dessa. */
+    public void merge(QuantileDigest other) {
+        other.compress();
+        double otherMin = other.min;
+        double otherMax = other.max;
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        if (other.centroids > 0) {
+            min = Math.min(min, otherMin);
+            max = Math.max(max, otherMax);
+        }
+    }
+
+    /** Summan av vikterna. */
+    public double weight() {
+        return totalWeight;
+    }
+
+    /**
+     * Uppskattad kvantil, t.ex. 0.5 för medianen.
+     * @return Kvantilen, eller NaN om inga värden lagts till.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q måste ligga mellan 0 och 1");
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        double target = q * totalWeight;
+        // Före första centroidens mitt interpoleras från lägsta värdet
+        double half = weights[0] / 2;
+        if (target < half) {
+            return min + (means[0] - min) * target / half;
+        }
+        double cumulative = half;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (target <= cumulative + step) {
+                return means[i] + (means[i + 1] - means[i]) * (target - cumulative) / step;
+            }
+            cumulative += step;
+        }
+        // Efter sista centroidens mitt interpoleras mot högsta värdet
+        double lastHalf = weights[centroids - 1] / 2;
+        double t = Math.min(1.0, (target - cumulative) / lastHalf);
+        return means[centroids - 1] + (max - means[centroids - 1]) * t;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    /**
+     * Sorterar bufferten och slår ihop den med centroiderna i en genomgång. En centroid får
+     * växa så länge den täcker högst ett steg i skalfunktionen k(q) = δ/2π · asin(2q - 1).
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        sortBuffer();
+
+        // Sammanfoga de två sorterade listorna
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < centroids || j < buffered) {
+            if (j == buffered || (i < centroids && means[i] <= bufferMeans[j])) {
+                tmpMeans[n] = means[i];
+                tmpWeights[n++] = weights[i++];
+            } else {
+                tmpMeans[n] = bufferMeans[j];
+                tmpWeights[n++] = bufferWeights[j++];
+            }
+        }
+        buffered = 0;
+
+        int out = 0;
+        double soFar = 0;
+        double limit = totalWeight * qOfK(kOfQ(0) + 1);
+        for (int k = 1; k < n; k++) {
+            if (soFar + tmpWeights[out] + tmpWeights[k] <= limit) {
+                double w = tmpWeights[out] + tmpWeights[k];
+                tmpMeans[out] += (tmpMeans[k] - tmpMeans[out]) * tmpWeights[k] / w;
+                tmpWeights[out] = w;
+            } else {
+                soFar += tmpWeights[out];
+                limit = totalWeight * qOfK(kOfQ(soFar / totalWeight) + 1);
+                out++;
+                tmpMeans[out] = tmpMeans[k];
+                tmpWeights[out] = tmpWeights[k];
+            }
+        }
+        centroids = out + 1;
+
+        double[] m = means;
+        double[] w = weights;
+        means = tmpMeans;
+        weights = tmpWeights;
+        tmpMeans = m;
+        tmpWeights = w;
+    }
+
+    private double kOfQ(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1.0, q) - 1);
+    }
+
+    private double qOfK(double k) {
+        double angle = k * 2 * Math.PI / compression;
+        return angle >= Math.PI / 2 ? 1.0 : (Math.sin(angle) + 1) / 2;
+    }
+
+    /** Shellsort av bufferten på värde, utan att skapa några objekt. */
+    private void sortBuffer() {
+        int gap = 1;
+        while (gap < buffered / 3) {
+            gap = 3 * gap + 1;
+        }
+        for (; gap > 0; gap /= 3) {
+            for (int i = gap; i < buffered; i++) {
+                double m = bufferMeans[i];
+                double w = bufferWeights[i];
+                int j = i;
+                while (j >= gap && bufferMeans[j - gap] > m) {
+                    bufferMeans[j] = bufferMeans[j - gap];
+                    bufferWeights[j] = bufferWeights[j - gap];
+                    j -= gap;
+                }
+                bufferMeans[j] = m;
+                bufferWeights[j] = w;
+            }
+        }
+    }
+}
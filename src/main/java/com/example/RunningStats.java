@@ -0,0 +1,105 @@
+package com.example;
+
+/**
+ * Medelvärde, varians, lägsta och högsta värde i en enda genomgång med Welfords metod,
+ * utan att värdena sparas. Värden kan viktas, t.ex. med periodens längd, och två
+ * instanser kan slås ihop, så delar av en serie kan räknas var för sig.
+ */
+public final class RunningStats {
+
+    private long count;
+    private double weight;
+    private double mean;
+    private double m2;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /** Lägger till ett värde med vikten 1. */
+    public void add(double x) {
+        add(x, 1.0);
+    }
+
+    /** Lägger till ett viktat värde. Värden med vikt 0 eller lägre ignoreras. */
+    public void add(double x, double w) {
+        if (w <= 0) {
+            return;
+        }
+        count++;
+        weight += w;
+        double delta = x - mean;
+        mean += delta * w / weight;
+        m2 += w * delta * (x - mean);
+        if (count == 1) {
+            min = x;
+            max = x;
+        } else {
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+        }
+    }
+
+    /** Slår ihop värdena från {@code other} med dessa. */
+    public void merge(RunningStats other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            weight = other.weight;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        double total = weight + other.weight;
+        double delta = other.mean - mean;
+        mean += delta * other.weight / total;
+        m2 += other.m2 + delta * delta * weight * other.weight / total;
+        weight = total;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /** Tömmer ackumulatorn så att den kan återanvändas. */
+    public void reset() {
+        count = 0;
+        weight = 0;
+        mean = 0;
+        m2 = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** Summan av vikterna. */
+    public double weight() {
+        return weight;
+    }
+
+    /** Det viktade medelvärdet, NaN om inga värden lagts till. */
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /** Den viktade populationsvariansen, NaN om inga värden lagts till. */
+    public double variance() {
+        return count == 0 ? Double.NaN : m2 / weight;
+    }
+
+    public double stdDev() {
+        return Math.sqrt(variance());
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ * Väljer de billigaste perioderna för laster som inte behöver gå sammanhängande,
+ * t.ex. värmepumpar, varmvattenberedare och batterier.
+ * <p>
+ * Utan krav på körtider används quickselect, O(n) i genomsnitt, så ingen full sortering
+ * görs per förfrågan. Med krav på minsta körlängd eller längsta uppehåll löses problemet
+ * exakt med dynamisk programmering över (period, valda perioder, tillstånd).
+ */
+public final class SlotScheduler {
+
+    /** Används för {@link Constraints#maxGap()} när uppehållen inte är begränsade. */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    /**
+     * Största antal celler, (period, valda perioder, tillstånd), i tabellen för att backa fram
+     * ett schema med körvillkor. Motsvarar 64 MB.
+     */
+    static final long MAX_TABLE_CELLS = 1L << 24;
+
+    /**
+     * Villkor för ett schema. Alla längder anges i antal perioder.
+     * @param earliest Första period som får väljas.
+     * @param deadline Perioder från och med detta index får inte väljas.
+     * @param minRunLength Minsta antal sammanhängande perioder per körning.
+     * @param maxGap Största antal perioder mellan två körningar, eller {@link #UNLIMITED}.
+     */
+    public record Constraints(int earliest, int deadline, int minRunLength, int maxGap) {
+
+        public Constraints {
+            if (earliest < 0 || deadline < earliest) {
+                throw new IllegalArgumentException("Ogiltigt intervall [" + earliest + ", " + deadline + ")");
+            }
+            if (minRunLength < 1 || maxGap < 0) {
+                throw new IllegalArgumentException("Ogiltiga körvillkor");
+            }
+        }
+
+        /** Inga villkor utöver att perioderna ska finnas i serien. */
+        public static Constraints none(int size) {
+            return new Constraints(0, size, 1, UNLIMITED);
+        }
+    }
+
+    /**
+     * Ett schema.
+     * @param slots Valda periodindex i stigande ordning.
+     * @param sum Summan av priserna för de valda perioderna.
+     */
+    public record Schedule(int[] slots, double sum) {
+
+        public double average() {
+            return slots.length == 0 ? 0.0 : sum / slots.length;
+        }
+    }
+
+    private SlotScheduler() {
+    }
+
+    /**
+     * De {@code count} billigaste perioderna. Vid lika pris väljs den tidigaste.
+     * @return Schemat, eller null om villkoren inte går att uppfylla.
+     * @throws IllegalArgumentException om ett schema med körvillkor skulle kräva en tabell
+     *         större än {@link #MAX_TABLE_CELLS}.
+     */
+    public static Schedule cheapest(double[] prices, int count, Constraints c) {
+        int from = c.earliest();
+        int to = Math.min(c.deadline(), prices.length);
+        int m = to - from;
+        if (count < 0 || count > m) {
+            return null;
+        }
+        if (count == 0) {
+            return new Schedule(new int[0], 0.0);
+        }
+        boolean unconstrained = c.minRunLength() <= 1 && c.maxGap() >= m;
+        OptimizeEvent event = new OptimizeEvent();
+        event.begin();
+        Schedule schedule = unconstrained ? select(prices, from, to, count)
+                : constrained(prices, from, to, count, c.minRunLength(), c.maxGap());
+        event.end();
+        if (event.shouldCommit()) {
+            event.commitWith(unconstrained ? "perioder" : "perioder-villkor", m, count, 1);
+        }
+        return schedule;
+    }
+
+    // --- Utan körvillkor: quickselect ---
+
+    private static Schedule select(double[] prices, int from, int to, int count) {
+        int[] idx = new int[to - from];
+        for (int i = 0; i < idx.length; i++) {
+            idx[i] = from + i;
+        }
+        int lo = 0;
+        int hi = idx.length - 1;
+        int k = count - 1;
+        // Iterativ quickselect med median-av-tre, tills de count minsta ligger först
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (less(prices, idx[mid], idx[lo])) swap(idx, mid, lo);
+            if (less(prices, idx[hi], idx[lo])) swap(idx, hi, lo);
+            if (less(prices, idx[hi], idx[mid])) swap(idx, hi, mid);
+            int pivot = idx[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (less(prices, idx[i], pivot)) i++;
+                while (less(prices, pivot, idx[j])) j--;
+                if (i <= j) {
+                    swap(idx, i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        int[] slots = Arrays.copyOf(idx, count);
+        Arrays.sort(slots);
+        return new Schedule(slots, sum(prices, slots));
+    }
+
+    private static boolean less(double[] prices, int a, int b) {
+        return prices[a] < prices[b] || (prices[a] == prices[b] && a < b);
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    // --- Med körvillkor: dynamisk programmering ---
+
+    /*
+     * Tillstånd efter varje period:
+     *   0              inget valt ännu
+     *   1..R           i en körning av längd r (R = minRunLength, längre körningar räknas som R)
+     *   R+1..R+G       i ett uppehåll av längd g efter en färdig körning (G = maxGap)
+     *   R+G+1          klar, inga fler perioder väljs
+     * Med obegränsade uppehåll räcker ett enda uppehållstillstånd.
+     */
+    private static Schedule constrained(double[] prices, int from, int to, int count, int minRun, int maxGap) {
+        int m = to - from;
+        boolean gapLimited = maxGap < m;
+        int gaps = gapLimited ? maxGap : 1;
+        int done = minRun + gaps + 1;
+        int states = done + 1;
+        int width;
+        long cells;
+        try {
+            width = Math.multiplyExact(count + 1, states);
+            cells = Math.multiplyExact((long) m, width);
+        } catch (ArithmeticException e) {
+            width = -1;
+            cells = Long.MAX_VALUE;
+        }
+        if (cells > MAX_TABLE_CELLS) {
+            throw new IllegalArgumentException("För stort schema med körvillkor: " + m + " perioder, "
+                    + count + " att välja och " + states + " tillstånd. Korta intervallet eller körvillkoren.");
+        }
+
+        double[] cost = new double[width];
+        double[] next = new double[width];
+        // Föregående tillstånd per (period, k, tillstånd) för att kunna backa fram schemat
+        int[] parent = new int[(int) cells];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        cost[0] = 0.0;
+
+        for (int i = 0; i < m; i++) {
+            double p = prices[from + i];
+            Arrays.fill(next, Double.POSITIVE_INFINITY);
+            int base = i * width;
+            for (int k = 0; k <= count; k++) {
+                for (int s = 0; s < states; s++) {
+                    double c = cost[k * states + s];
+                    if (c == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    int from0 = k * states + s;
+                    boolean runComplete = s == minRun;
+                    // Välj perioden
+                    if (k < count && s != done) {
+                        int ns = (s >= 1 && s <= minRun) ? Math.min(s + 1, minRun) : 1;
+                        relax(next, parent, base, (k + 1) * states + ns, c + p, from0);
+                    }
+                    // Hoppa över perioden
+                    if (s == 0 || s == done) {
+                        relax(next, parent, base, k * states + s, c, from0);
+                    } else if (s <= minRun) {
+                        if (runComplete) {
+                            if (gaps > 0) {
+                                relax(next, parent, base, k * states + minRun + 1, c, from0);
+                            }
+                            relax(next, parent, base, k * states + done, c, from0);
+                        }
+                    } else {
+                        int g = s - minRun;
+                        if (!gapLimited) {
+                            relax(next, parent, base, k * states + s, c, from0);
+                        } else if (g < gaps) {
+                            relax(next, parent, base, k * states + s + 1, c, from0);
+                        }
+                    }
+                }
+            }
+            double[] t = cost;
+            cost = next;
+            next = t;
+        }
+
+        int end = cost[count * states + minRun] <= cost[count * states + done]
+                ? count * states + minRun : count * states + done;
+        if (cost[end] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+
+        int[] slots = new int[count];
+        int n = count;
+        int state = end;
+        for (int i = m - 1; i >= 0; i--) {
+            int prev = parent[i * width + state];
+            if (prev / states < state / states) {
+                slots[--n] = from + i;
+            }
+            state = prev;
+        }
+        return new Schedule(slots, sum(prices, slots));
+    }
+
+    private static void relax(double[] next, int[] parent, int base, int to, double value, int from) {
+        if (value < next[to]) {
+            next[to] = value;
+            parent[base + to] = from;
+        }
+    }
+
+    private static double sum(double[] prices, int[] slots) {
+        double sum = 0;
+        for (int slot : slots) {
+            sum += prices[slot];
+        }
+        return sum;
+    }
+}
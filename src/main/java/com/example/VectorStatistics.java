@@ -0,0 +1,84 @@
+package com.example;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API-versionen av {@link PriceStatistics}. Laddas bara när modulen
+ * {@code jdk.incubator.vector} finns, annars används den skalära slingan.
+ * <p>
+ * Lägsta, högsta och summa räknas i en genomgång med en vektor per värde. Indexen letas
+ * sedan upp med vektorjämförelser, och variansen räknas i en sista genomgång kring medelvärdet.
+ */
+final class VectorStatistics {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorStatistics() {
+    }
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    static PriceStatistics.Summary of(double[] prices, int from, int to) {
+        int n = to - from;
+        int upper = from + SPECIES.loopBound(n);
+
+        DoubleVector vMin = DoubleVector.broadcast(SPECIES, prices[from]);
+        DoubleVector vMax = vMin;
+        DoubleVector vSum = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, prices, i);
+            vMin = vMin.min(v);
+            vMax = vMax.max(v);
+            vSum = vSum.add(v);
+        }
+        double min = vMin.reduceLanes(VectorOperators.MIN);
+        double max = vMax.reduceLanes(VectorOperators.MAX);
+        double sum = vSum.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            min = Math.min(min, prices[i]);
+            max = Math.max(max, prices[i]);
+            sum += prices[i];
+        }
+
+        int argMin = firstIndexOf(prices, from, to, upper, min);
+        int argMax = firstIndexOf(prices, from, to, upper, max);
+
+        double mean = sum / n;
+        DoubleVector vMean = DoubleVector.broadcast(SPECIES, mean);
+        DoubleVector vSquares = DoubleVector.zero(SPECIES);
+        for (i = from; i < upper; i += SPECIES.length()) {
+            DoubleVector d = DoubleVector.fromArray(SPECIES, prices, i).sub(vMean);
+            vSquares = d.fma(d, vSquares);
+        }
+        double squares = vSquares.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            double d = prices[i] - mean;
+            squares += d * d;
+        }
+        return new PriceStatistics.Summary(n, min, argMin, max, argMax, sum, squares / n);
+    }
+
+    /** Första index där priset är exakt {@code value}, som finns i intervallet. */
+    private static int firstIndexOf(double[] prices, int from, int to, int upper, double value) {
+        DoubleVector target = DoubleVector.broadcast(SPECIES, value);
+        int i = from;
+        for (; i < upper; i += SPECIES.length()) {
+            VectorMask<Double> hit = DoubleVector.fromArray(SPECIES, prices, i).compare(VectorOperators.EQ, target);
+            if (hit.anyTrue()) {
+                return i + hit.firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            if (prices[i] == value) {
+                return i;
+            }
+        }
+        return from;
+    }
+}
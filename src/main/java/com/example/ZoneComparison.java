@@ -0,0 +1,176 @@
+package com.example;
+
+import com.example.api.ElpriserAPI.Prisklass;
+import com.example.api.PriceSeries;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jämför priserna i flera elprisområden period för period, t.ex. för att välja var flexibel
+ * last ska köras. Serierna ställs upp efter starttid så att bara perioder som finns i alla
+ * områden jämförs. Om upplösningarna skiljer sig slås de kortare perioderna först ihop.
+ * <p>
+ * Priserna lagras en array per område, och lägsta, högsta och billigaste område räknas fram
+ * i en genomgång per område med enkla slingor utan förgreningar som JIT:en kan vektorisera.
+ */
+public final class ZoneComparison {
+
+    private final List<Prisklass> zones;
+    private final PriceSeries reference;
+    // Index i referensserien för varje jämförd period
+    private final int[] referenceIndex;
+    // prices[z][i] är priset i område z för period i
+    private final double[][] prices;
+    private final double[] min;
+    private final double[] max;
+    private final int[] cheapest;
+
+    private ZoneComparison(List<Prisklass> zones, PriceSeries reference, int[] referenceIndex, double[][] prices) {
+        this.zones = zones;
+        this.reference = reference;
+        this.referenceIndex = referenceIndex;
+        this.prices = prices;
+        int n = referenceIndex.length;
+        this.min = new double[n];
+        this.max = new double[n];
+        this.cheapest = new int[n];
+        if (n > 0) {
+            System.arraycopy(prices[0], 0, min, 0, n);
+            System.arraycopy(prices[0], 0, max, 0, n);
+        }
+        for (int z = 1; z < prices.length; z++) {
+            double[] p = prices[z];
+            for (int i = 0; i < n; i++) {
+                // Vid lika pris vinner området som kommer först
+                boolean lower = p[i] < min[i];
+                cheapest[i] = lower ? z : cheapest[i];
+                min[i] = Math.min(min[i], p[i]);
+                max[i] = Math.max(max[i], p[i]);
+            }
+        }
+    }
+
+    /**
+     * Ställer upp serierna efter starttid. Områden med tomma serier tas inte med.
+     * @param serier Serierna per område, i den ordning områdena ska visas.
+     */
+    public static ZoneComparison of(Map<Prisklass, PriceSeries> serier) {
+        List<Prisklass> zones = new ArrayList<>();
+        List<PriceSeries> lika = new ArrayList<>();
+        long resolution = 0;
+        for (Map.Entry<Prisklass, PriceSeries> entry : serier.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            PriceSeries serie = entry.getValue().uniform();
+            zones.add(entry.getKey());
+            lika.add(serie);
+            resolution = Math.max(resolution, serie.resolutionSeconds());
+        }
+        if (zones.isEmpty()) {
+            return new ZoneComparison(List.of(), PriceSeries.empty(), new int[0], new double[0][]);
+        }
+        for (int z = 0; z < lika.size(); z++) {
+            lika.set(z, lika.get(z).resample(Duration.ofSeconds(resolution)));
+        }
+
+        // Gemensamma starttider, med en pekare per serie som bara flyttas framåt
+        PriceSeries reference = lika.get(0);
+        int n = reference.size();
+        int[][] index = new int[lika.size()][n];
+        int[] pos = new int[lika.size()];
+        int count = 0;
+        outer:
+        for (int i = 0; i < n; i++) {
+            long start = reference.startEpochSecond(i);
+            for (int z = 1; z < lika.size(); z++) {
+                PriceSeries serie = lika.get(z);
+                while (pos[z] < serie.size() && serie.startEpochSecond(pos[z]) < start) {
+                    pos[z]++;
+                }
+                if (pos[z] == serie.size() || serie.startEpochSecond(pos[z]) != start) {
+                    continue outer;
+                }
+            }
+            index[0][count] = i;
+            for (int z = 1; z < lika.size(); z++) {
+                index[z][count] = pos[z];
+            }
+            count++;
+        }
+
+        double[][] prices = new double[lika.size()][count];
+        for (int z = 0; z < lika.size(); z++) {
+            PriceSeries serie = lika.get(z);
+            for (int i = 0; i < count; i++) {
+                prices[z][i] = serie.price(index[z][i]);
+            }
+        }
+        return new ZoneComparison(List.copyOf(zones), reference,
+                Arrays.copyOf(index[0], count), prices);
+    }
+
+    /** Områdena som jämförs, i visningsordning. */
+    public List<Prisklass> zones() {
+        return zones;
+    }
+
+    /** Antal perioder som finns i alla områden. */
+    public int size() {
+        return referenceIndex.length;
+    }
+
+    public boolean isEmpty() {
+        return referenceIndex.length == 0;
+    }
+
+    public ZonedDateTime timeStart(int i) {
+        return reference.timeStart(referenceIndex[i]);
+    }
+
+    public ZonedDateTime timeEnd(int i) {
+        return reference.timeEnd(referenceIndex[i]);
+    }
+
+    public long lengthSeconds(int i) {
+        return reference.lengthSeconds(referenceIndex[i]);
+    }
+
+    /** Priset i SEK/kWh för område nummer {@code zone} i {@link #zones()} under period {@code i}. */
+    public double price(int zone, int i) {
+        return prices[zone][i];
+    }
+
+    /** Alla priser för ett område, en kopia. */
+    public double[] prices(int zone) {
+        return prices[zone].clone();
+    }
+
+    public double min(int i) {
+        return min[i];
+    }
+
+    public double max(int i) {
+        return max[i];
+    }
+
+    /** Skillnaden mellan dyraste och billigaste område under period {@code i}. */
+    public double spread(int i) {
+        return max[i] - min[i];
+    }
+
+    /** Pris i sista området minus pris i första, t.ex. SE4 - SE1 när alla områden jämförs. */
+    public double pairSpread(int i) {
+        return prices[prices.length - 1][i] - prices[0][i];
+    }
+
+    /** Det billigaste området under period {@code i}. Vid lika pris det som kommer först. */
+    public Prisklass cheapest(int i) {
+        return zones.get(cheapest[i]);
+    }
+}
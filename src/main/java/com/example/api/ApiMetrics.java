@@ -0,0 +1,46 @@
+package com.example.api;
+
+/**
+ * Mätpunkter i {@link ElpriserAPI}. Alla metoder gör ingenting som standard, så en
+ * implementation behöver bara ta emot det den bryr sig om.
+ * <p>
+ * Med {@link #NONE}, som är standard, mäts inga tider alls och anropen optimeras bort
+ * av JIT-kompilatorn. Metoderna anropas från flera trådar samtidigt och måste vara trådsäkra.
+ *
+ * @see ApiStatistics
+ */
+public interface ApiMetrics {
+
+    /** Ingen mätning. */
+    ApiMetrics NONE = new ApiMetrics() {
+    };
+
+    /** En dag fanns i minnes-cachen. {@code nanos} är tiden för uppslaget. */
+    default void cacheHit(long nanos) {
+    }
+
+    /** En dag saknades i minnes-cachen, eller behövde omvalideras. */
+    default void cacheMiss() {
+    }
+
+    /** En dag lästes från disk-cachen. {@code nanos} är tiden för läsningen. */
+    default void diskHit(long nanos) {
+    }
+
+    /**
+     * Ett svar togs emot från nätverket.
+     * @param statusCode HTTP-statuskod, t.ex. 200, 304 eller 404.
+     * @param bytes Antal mottagna byte, före uppackning.
+     * @param nanos Tid från förfrågan till mottaget svar.
+     */
+    default void networkFetch(int statusCode, long bytes, long nanos) {
+    }
+
+    /** Ett nätverksanrop misslyckades utan svar, t.ex. vid tidsgräns eller anslutningsfel. */
+    default void networkError(long nanos) {
+    }
+
+    /** Ett svar kunde inte tolkas som JSON. */
+    default void parseError() {
+    }
+}
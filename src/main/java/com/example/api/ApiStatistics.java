@@ -0,0 +1,176 @@
+package com.example.api;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Räknare och tidshistogram för {@link ElpriserAPI}, som kan visas i JMX, t.ex. i JConsole
+ * eller JDK Mission Control. Räknarna är {@link LongAdder}, så samtidiga hämtningar
+ * konkurrerar inte om samma minnesplats.
+ * <pre>{@code
+ * ApiStatistics statistik = new ApiStatistics();
+ * ElpriserAPI api = ElpriserAPI.builder().metrics(statistik).build();
+ * statistik.registerMBean("cli");
+ * }</pre>
+ */
+public final class ApiStatistics implements ApiMetrics, ApiStatisticsMBean {
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder networkFetches = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder networkErrors = new LongAdder();
+    private final LongAdder parseErrors = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LatencyHistogram cacheHitLatency = new LatencyHistogram();
+    private final LatencyHistogram diskLatency = new LatencyHistogram();
+    private final LatencyHistogram fetchLatency = new LatencyHistogram();
+
+    /**
+     * Registrerar statistiken i plattformens MBean-server som
+     * {@code com.example.api:type=ElpriserAPI,name=<name>}.
+     * @return Namnet den registrerades under.
+     * @throws IllegalStateException om registreringen misslyckas, t.ex. om namnet redan används.
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.example.api:type=ElpriserAPI,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Kunde inte registrera MBean " + name, e);
+        }
+    }
+
+    // --- ApiMetrics ---
+
+    @Override
+    public void cacheHit(long nanos) {
+        cacheHits.increment();
+        cacheHitLatency.record(nanos);
+    }
+
+    @Override
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    @Override
+    public void diskHit(long nanos) {
+        diskHits.increment();
+        diskLatency.record(nanos);
+    }
+
+    @Override
+    public void networkFetch(int statusCode, long bytes, long nanos) {
+        networkFetches.increment();
+        bytesDownloaded.add(bytes);
+        fetchLatency.record(nanos);
+        if (statusCode == 304) {
+            notModified.increment();
+        } else if (statusCode == 404) {
+            notFound.increment();
+        }
+    }
+
+    @Override
+    public void networkError(long nanos) {
+        networkErrors.increment();
+        fetchLatency.record(nanos);
+    }
+
+    @Override
+    public void parseError() {
+        parseErrors.increment();
+    }
+
+    // --- Avläsning ---
+
+    public LatencyHistogram cacheHitLatency() {
+        return cacheHitLatency;
+    }
+
+    public LatencyHistogram diskLatency() {
+        return diskLatency;
+    }
+
+    public LatencyHistogram fetchLatency() {
+        return fetchLatency;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    @Override
+    public long getNetworkFetches() {
+        return networkFetches.sum();
+    }
+
+    @Override
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    @Override
+    public long getNotFound() {
+        return notFound.sum();
+    }
+
+    @Override
+    public long getNetworkErrors() {
+        return networkErrors.sum();
+    }
+
+    @Override
+    public long getParseErrors() {
+        return parseErrors.sum();
+    }
+
+    @Override
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    @Override
+    public double getCacheHitMeanMicros() {
+        return cacheHitLatency.mean() / 1_000.0;
+    }
+
+    @Override
+    public long getFetchP50Micros() {
+        return fetchLatency.percentile(0.5) / 1_000;
+    }
+
+    @Override
+    public long getFetchP99Micros() {
+        return fetchLatency.percentile(0.99) / 1_000;
+    }
+
+    @Override
+    public double getFetchMeanMicros() {
+        return fetchLatency.mean() / 1_000.0;
+    }
+}
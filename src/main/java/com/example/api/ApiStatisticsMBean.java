@@ -0,0 +1,35 @@
+package com.example.api;
+
+/**
+ * JMX-gränssnittet för {@link ApiStatistics}. Tider anges i mikrosekunder.
+ */
+public interface ApiStatisticsMBean {
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    double getCacheHitRatio();
+
+    long getDiskHits();
+
+    long getNetworkFetches();
+
+    long getNotModified();
+
+    long getNotFound();
+
+    long getNetworkErrors();
+
+    long getParseErrors();
+
+    long getBytesDownloaded();
+
+    double getCacheHitMeanMicros();
+
+    long getFetchP50Micros();
+
+    long getFetchP99Micros();
+
+    double getFetchMeanMicros();
+}
@@ -0,0 +1,137 @@
+package com.example.api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ett minnes-cache med begränsad storlek. När antalet poster eller den uppskattade
+ * storleken i byte överskrids kastas de minst nyligen använda posterna (LRU).
+ * Poster kan ha en livslängd, efter vilken de betraktas som saknade.
+ * <p>
+ * Alla operationer går under ett lås. Kritiska avsnitt är korta (ett uppslag i en
+ * {@link LinkedHashMap}), så låset är billigt jämfört med en nätverkshämtning.
+ */
+final class BoundedCache<K, V> {
+
+    /** Livslängd för poster som aldrig går ut. */
+    static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private record Node<V>(V value, long weight, long expiresAt) {
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Node<V>> map = new LinkedHashMap<>(64, 0.75f, true);
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LongSupplier nanoClock;
+    private long weight;
+    private long evictions;
+
+    /**
+     * @param maxEntries Högsta antal poster.
+     * @param maxWeight Högsta sammanlagda vikt, normalt en uppskattning i byte.
+     * @param weigher Beräknar vikten för ett värde.
+     * @param nanoClock Klocka i nanosekunder, {@link System#nanoTime()} utom i tester.
+     */
+    BoundedCache(int maxEntries, long maxWeight, ToLongFunction<V> weigher, LongSupplier nanoClock) {
+        if (maxEntries < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException("Cachens gränser måste vara positiva");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return Värdet, eller null om nyckeln saknas eller posten har gått ut.
+     */
+    V get(K key) {
+        lock.lock();
+        try {
+            Node<V> node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            if (node.expiresAt != NO_EXPIRY && nanoClock.getAsLong() - node.expiresAt >= 0) {
+                map.remove(key);
+                weight -= node.weight;
+                return null;
+            }
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lägger in ett värde som går ut efter {@code ttlNanos}, eller aldrig om
+     * {@link #NO_EXPIRY} anges. Kastar ut gamla poster tills gränserna håller.
+     */
+    void put(K key, V value, long ttlNanos) {
+        long w = Math.max(1, weigher.applyAsLong(value));
+        long expiresAt = ttlNanos == NO_EXPIRY ? NO_EXPIRY : nanoClock.getAsLong() + ttlNanos;
+        lock.lock();
+        try {
+            Node<V> old = map.put(key, new Node<>(value, w, expiresAt));
+            if (old != null) {
+                weight -= old.weight;
+            }
+            weight += w;
+            Iterator<Map.Entry<K, Node<V>>> eldest = map.entrySet().iterator();
+            while ((map.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+                // Den nyss inlagda posten ligger sist och kastas bara ut om den ensam är för stor
+                Map.Entry<K, Node<V>> e = eldest.next();
+                weight -= e.getValue().weight;
+                eldest.remove();
+                evictions++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remove(K key) {
+        lock.lock();
+        try {
+            Node<V> old = map.remove(key);
+            if (old != null) {
+                weight -= old.weight;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long evictions() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-händelse för ett uppslag i minnes- eller disk-cachen.
+ */
+@Name("com.example.Cache")
+@Label("Elpris-cache")
+@Category({"Elpriser", "Cache"})
+@Description("Ett uppslag i minnes- eller disk-cachen")
+final class CacheEvent extends Event {
+
+    @Label("Prisklass")
+    String zone;
+
+    @Label("Datum")
+    String date;
+
+    @Label("Lager")
+    @Description("\"minne\" eller \"disk\"")
+    String layer;
+
+    @Label("Träff")
+    boolean hit;
+
+    @Label("Perioder")
+    int slots;
+}
@@ -0,0 +1,502 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strömmande JSON-tolk för API:ets svarsformat, en array av prisobjekt.
+ * <p>
+ * Tolken går igenom bytebufferten en gång och läser värdena direkt in i primitiva fält,
+ * utan reguljära uttryck, temporära strängar eller mappar. Nycklarna får komma i vilken
+ * ordning som helst, okända nycklar hoppas över och blanksteg tillåts överallt där JSON
+ * tillåter dem. Objekt där något av de obligatoriska fälten saknas eller har fel typ,
+ * t.ex. ett pris som är {@code null}, hoppas över och räknas. Bara fel i själva
+ * JSON-syntaxen gör att hela svaret underkänns.
+ */
+final class ElprisJsonParser {
+
+    private static final System.Logger LOG = System.getLogger(ElprisJsonParser.class.getName());
+
+    /**
+     * Tar emot ett tolkat prisobjekt. Tider anges i epoksekunder med UTC-offset i sekunder.
+     */
+    @FunctionalInterface
+    interface Sink {
+        void accept(double sek, double eur, double exr,
+                    long startEpochSecond, int startOffsetSeconds,
+                    long endEpochSecond, int endOffsetSeconds);
+    }
+
+    /**
+     * Kastas vid felaktig JSON-syntax.
+     */
+    static final class MalformedJsonException extends RuntimeException {
+        MalformedJsonException(String message, int position) {
+            super(message + " vid position " + position);
+        }
+    }
+
+    private static final byte[] KEY_SEK = ascii("SEK_per_kWh");
+    private static final byte[] KEY_EUR = ascii("EUR_per_kWh");
+    private static final byte[] KEY_EXR = ascii("EXR");
+    private static final byte[] KEY_START = ascii("time_start");
+    private static final byte[] KEY_END = ascii("time_end");
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Bitar för vilka fält som setts i det aktuella objektet
+    private static final int HAS_SEK = 1, HAS_EUR = 2, HAS_EXR = 4, HAS_START = 8, HAS_END = 16;
+    private static final int HAS_ALL = HAS_SEK | HAS_EUR | HAS_EXR | HAS_START | HAS_END;
+
+    private final ByteBuffer in;
+    private final int limit;
+    private int pos;
+
+    // Fält för det objekt som just tolkas
+    private double sek, eur, exr;
+    private long startEpoch, endEpoch;
+    private int startOffset, endOffset;
+    // Senast lästa talvärde, och antal objekt som hoppats över
+    private double number;
+    private int skipped;
+
+    private ElprisJsonParser(ByteBuffer in) {
+        this.in = in;
+        this.pos = in.position();
+        this.limit = in.limit();
+    }
+
+    /**
+     * Tolkar en JSON-sträng till en lista av priser.
+     */
+    static List<Elpris> parse(String json) {
+        return parse(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Tolkar UTF-8-kodad JSON från bufferten till en lista av priser.
+     * Buffertens position och gräns lämnas orörda.
+     */
+    static List<Elpris> parse(ByteBuffer json) {
+        List<Elpris> priser = new ArrayList<>(96);
+        parse(json, (sek, eur, exr, start, startOff, end, endOff) -> priser.add(new Elpris(sek, eur, exr,
+                toZoned(start, startOff), toZoned(end, endOff))));
+        return priser;
+    }
+
+    /**
+     * Tolkar UTF-8-kodad JSON från bufferten och skickar varje pris till {@code sink}.
+     * @return Antal levererade priser.
+     * @throws MalformedJsonException om datat inte är en JSON-array av objekt.
+     */
+    static int parse(ByteBuffer json, Sink sink) {
+        return new ElprisJsonParser(json).readArray(sink);
+    }
+
+    static ZonedDateTime toZoned(long epochSecond, int offsetSeconds) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+
+    private int readArray(Sink sink) {
+        expect('[');
+        int count = 0;
+        if (peek() == ']') {
+            pos++;
+            return 0;
+        }
+        while (true) {
+            if (readObject()) {
+                sink.accept(sek, eur, exr, startEpoch, startOffset, endEpoch, endOffset);
+                count++;
+            } else {
+                skipped++;
+            }
+            byte b = next();
+            if (b == ']') {
+                if (skipped > 0) {
+                    LOG.log(System.Logger.Level.WARNING,
+                            "Hoppade över {0} elpris-objekt där fält saknas eller är ogiltiga.", skipped);
+                }
+                return count;
+            }
+            if (b != ',') {
+                throw error("Förväntade ',' eller ']'");
+            }
+        }
+    }
+
+    /**
+     * Läser ett objekt in i fälten.
+     * @return true om alla obligatoriska fält fanns och kunde tolkas.
+     */
+    private boolean readObject() {
+        expect('{');
+        int seen = 0;
+        boolean valid = true;
+        if (peek() == '}') {
+            pos++;
+            return false;
+        }
+        while (true) {
+            expect('"');
+            int keyStart = pos;
+            skipStringBody();
+            int keyEnd = pos - 1;
+            expect(':');
+            if (keyEquals(keyStart, keyEnd, KEY_SEK)) {
+                if (readNumberField()) {
+                    sek = number;
+                    seen |= HAS_SEK;
+                } else {
+                    valid = false;
+                }
+            } else if (keyEquals(keyStart, keyEnd, KEY_EUR)) {
+                if (readNumberField()) {
+                    eur = number;
+                    seen |= HAS_EUR;
+                } else {
+                    valid = false;
+                }
+            } else if (keyEquals(keyStart, keyEnd, KEY_EXR)) {
+                if (readNumberField()) {
+                    exr = number;
+                    seen |= HAS_EXR;
+                } else {
+                    valid = false;
+                }
+            } else if (keyEquals(keyStart, keyEnd, KEY_START)) {
+                if (readTimestamp()) {
+                    startEpoch = tsEpoch;
+                    startOffset = tsOffset;
+                    seen |= HAS_START;
+                } else {
+                    valid = false;
+                }
+            } else if (keyEquals(keyStart, keyEnd, KEY_END)) {
+                if (readTimestamp()) {
+                    endEpoch = tsEpoch;
+                    endOffset = tsOffset;
+                    seen |= HAS_END;
+                } else {
+                    valid = false;
+                }
+            } else {
+                skipValue();
+            }
+            byte b = next();
+            if (b == '}') {
+                break;
+            }
+            if (b != ',') {
+                throw error("Förväntade ',' eller '}'");
+            }
+        }
+        return valid && seen == HAS_ALL;
+    }
+
+    // --- Tal ---
+
+    /**
+     * Läser värdet för ett prisfält till {@link #number}. Värden som inte är tal, t.ex.
+     * {@code null} eller en sträng med annat innehåll, hoppas över.
+     * @return false om värdet inte var ett tal.
+     */
+    private boolean readNumberField() {
+        byte b = peek();
+        if (b == '"') {
+            int start = pos;
+            try {
+                number = readNumber();
+                return true;
+            } catch (MalformedJsonException e) {
+                // Strängen innehöll inget tal, gå förbi den i sin helhet
+                pos = start + 1;
+                skipStringBody();
+                return false;
+            }
+        }
+        if (isDigit(b) || b == '-' || b == '+' || b == '.') {
+            number = readNumber();
+            return true;
+        }
+        skipValue();
+        return false;
+    }
+
+    /**
+     * Läser ett tal, eventuellt omgivet av citattecken. Vanliga decimaltal med högst
+     * 15 siffror räknas fram exakt utan allokering, övriga lämnas till {@link Double#parseDouble}.
+     */
+    private double readNumber() {
+        skipWhitespace();
+        boolean quoted = pos < limit && in.get(pos) == '"';
+        if (quoted) {
+            pos++;
+        }
+        int start = pos;
+        boolean negative = false;
+        if (pos < limit && (in.get(pos) == '-' || in.get(pos) == '+')) {
+            negative = in.get(pos) == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean simple = true;
+        while (pos < limit && isDigit(in.get(pos))) {
+            mantissa = mantissa * 10 + (in.get(pos++) - '0');
+            digits++;
+        }
+        if (pos < limit && in.get(pos) == '.') {
+            pos++;
+            while (pos < limit && isDigit(in.get(pos))) {
+                mantissa = mantissa * 10 + (in.get(pos++) - '0');
+                digits++;
+                scale++;
+            }
+        }
+        if (pos < limit && (in.get(pos) == 'e' || in.get(pos) == 'E')) {
+            simple = false;
+            pos++;
+            if (pos < limit && (in.get(pos) == '-' || in.get(pos) == '+')) {
+                pos++;
+            }
+            while (pos < limit && isDigit(in.get(pos))) {
+                pos++;
+            }
+        }
+        int end = pos;
+        if (end == start || (digits == 0 && simple)) {
+            throw error("Förväntade ett tal");
+        }
+        if (quoted) {
+            expectRaw('"');
+        }
+        if (simple && digits <= 15 && scale < POWERS_OF_TEN.length) {
+            double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        byte[] bytes = new byte[end - start];
+        in.get(start, bytes);
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw error("Ogiltigt tal");
+        }
+    }
+
+    // --- Tidsstämplar ---
+
+    private long tsEpoch;
+    private int tsOffset;
+
+    /**
+     * Läser en ISO-8601-tidsstämpel med offset, t.ex. "2025-09-04T00:00:00+02:00",
+     * till {@link #tsEpoch} och {@link #tsOffset}.
+     * @return false om värdet inte är en sträng med det förväntade formatet.
+     */
+    private boolean readTimestamp() {
+        if (peek() != '"') {
+            skipValue();
+            return false;
+        }
+        pos++;
+        int start = pos;
+        skipStringBody();
+        int end = pos - 1;
+        int len = end - start;
+        if (len < 20 || in.get(start + 4) != '-' || in.get(start + 7) != '-' || in.get(start + 10) != 'T'
+                || in.get(start + 13) != ':' || in.get(start + 16) != ':') {
+            return fallbackTimestamp(start, end);
+        }
+        int year = digits(start, 4);
+        int month = digits(start + 5, 2);
+        int day = digits(start + 8, 2);
+        int hour = digits(start + 11, 2);
+        int minute = digits(start + 14, 2);
+        int second = digits(start + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return fallbackTimestamp(start, end);
+        }
+        int p = start + 19;
+        if (in.get(p) == '.') {
+            p++;
+            while (p < end && isDigit(in.get(p))) {
+                p++; // bråkdelar av sekunder förekommer inte i API:et och ignoreras
+            }
+        }
+        int offset;
+        if (p == end - 1 && in.get(p) == 'Z') {
+            offset = 0;
+        } else if (p == end - 6 && (in.get(p) == '+' || in.get(p) == '-') && in.get(p + 3) == ':') {
+            int oh = digits(p + 1, 2);
+            int om = digits(p + 4, 2);
+            if ((oh | om) < 0) {
+                return fallbackTimestamp(start, end);
+            }
+            offset = (oh * 3600 + om * 60) * (in.get(p) == '-' ? -1 : 1);
+        } else {
+            return fallbackTimestamp(start, end);
+        }
+        tsEpoch = epochDay(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second - offset;
+        tsOffset = offset;
+        return true;
+    }
+
+    private boolean fallbackTimestamp(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        in.get(start, bytes);
+        try {
+            ZonedDateTime zdt = ZonedDateTime.parse(new String(bytes, StandardCharsets.UTF_8));
+            tsEpoch = zdt.toEpochSecond();
+            tsOffset = zdt.getOffset().getTotalSeconds();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** Dagar sedan 1970-01-01 för ett gregorianskt datum, utan att skapa något LocalDate. */
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097 + doe - 719_468;
+    }
+
+    private int digits(int at, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            byte b = in.get(at + i);
+            if (!isDigit(b)) {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    // --- Överhoppning av okända värden ---
+
+    private void skipValue() {
+        byte b = peek();
+        switch (b) {
+            case '"' -> {
+                pos++;
+                skipStringBody();
+            }
+            case '{', '[' -> skipNested();
+            case 't', 'f', 'n' -> {
+                while (pos < limit && Character.isLetter(in.get(pos))) {
+                    pos++;
+                }
+            }
+            default -> readNumber();
+        }
+    }
+
+    private void skipNested() {
+        int depth = 0;
+        while (pos < limit) {
+            byte b = in.get(pos++);
+            if (b == '"') {
+                skipStringBody();
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (--depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw error("Oavslutat objekt eller array");
+    }
+
+    /** Flyttar förbi resten av en sträng, positionen hamnar efter det avslutande citattecknet. */
+    private void skipStringBody() {
+        while (pos < limit) {
+            byte b = in.get(pos++);
+            if (b == '\\') {
+                pos++;
+            } else if (b == '"') {
+                return;
+            }
+        }
+        throw error("Oavslutad sträng");
+    }
+
+    // --- Grundläggande tecken ---
+
+    private boolean keyEquals(int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (in.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < limit) {
+            byte b = in.get(pos);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private byte peek() {
+        skipWhitespace();
+        if (pos >= limit) {
+            throw error("Oväntat slut på data");
+        }
+        return in.get(pos);
+    }
+
+    private byte next() {
+        byte b = peek();
+        pos++;
+        return b;
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw error("Förväntade '" + c + "'");
+        }
+    }
+
+    private void expectRaw(char c) {
+        if (pos >= limit || in.get(pos) != c) {
+            throw error("Förväntade '" + c + "'");
+        }
+        pos++;
+    }
+
+    private MalformedJsonException error(String message) {
+        return new MalformedJsonException(message, pos);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
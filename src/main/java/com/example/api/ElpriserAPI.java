@@ -1,19 +1,47 @@
 package com.example.api;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
 /**
  * Ett enkelt API för att hämta elpriser från elprisetjustnu.se.
@@ -25,14 +53,56 @@ public final class ElpriserAPI {
     private static final String API_BASE_URL = "https://www.elprisetjustnu.se/api/v1/prices";
     private static final DateTimeFormatter URL_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM-dd");
 
-    // En återanvändbar HttpClient-instans
+    // Diagnostik loggas på DEBUG-nivå och fel på WARNING, i stället för direkt till konsolen
+    private static final System.Logger LOG = System.getLogger(ElpriserAPI.class.getName());
+
+    // Högsta antal samtidiga hämtningar vid parallell hämtning om inget annat anges
+    private static final int DEFAULT_MAX_PARALLEL = 8;
+
+    // Antal dagar per prisklass som samlas innan en import skrivs till disk
+    private static final int IMPORT_BATCH_DAYS = 366;
+
+    // Standardkatalog för disk-cachen, en dold katalog i användarens hemkatalog
+    private static final Path DEFAULT_CACHE_DIR = Paths.get(System.getProperty("user.home"), ".elpriser_cache");
+
+    // En återanvändbar HttpClient-instans, null i offlineläge
     private final HttpClient httpClient;
 
     // Flagga för att styra cachlagring
     private final boolean cachingEnabled;
 
-    // Ett enkelt minnes-cache. Nyckeln är en kombination av datum och prisklass, t.ex. "2025-08-30_SE3"
-    private final Map<String, List<Elpris>> inMemoryCache;
+    // Ett begränsat minnes-cache. Nyckeln är en kombination av datum och prisklass, t.ex. "2025-08-30_SE3"
+    private final BoundedCache<String, CacheEntry> inMemoryCache;
+
+    // Hur länge en 404 kommer ihåg, och hur länge priser för idag och framåt används innan de hämtas om
+    private final Duration notFoundTtl;
+    private final Duration revalidateAfter;
+
+    // Avgör vilket datum som är "idag" när livslängden för en cachepost bestäms
+    private final Clock clock;
+    // Klocka i nanosekunder för när en cachad dag ska omvalideras
+    private final LongSupplier nanoClock;
+
+    // Bas-URL för API:et, utbytbar i tester
+    private final String apiBaseUrl;
+
+    // Längsta tid ett nätverksanrop får ta
+    private final Duration requestTimeout;
+
+    // Mätpunkter. Tider mäts bara när någon tar emot dem.
+    private final ApiMetrics metrics;
+    private final boolean timed;
+
+    // Pågående hämtningar per cachenyckel, så att samtidiga missar delar på en enda hämtning
+    private final Map<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+
+    // Binärt prislager på disk som överlever mellan körningar, null om cachning är avstängd
+    private final PriceStore diskCache;
+
+    // Förhämtning av morgondagens priser: starttid (svensk tid) och väntetider mellan försöken
+    private final LocalTime prefetchAt;
+    private final Duration prefetchBackoff;
+    private final Duration prefetchMaxBackoff;
 
     /**
      * En record som representerar ett enskilt elpris för en given tidsperiod.
@@ -72,6 +142,14 @@ public final class ElpriserAPI {
         mockResponseSupplier = () -> jsonResponse;
     }
 
+    /**
+     * FOR TESTS ONLY: Sets a supplier that is called for every mock request, so tests can
+     * count or delay the simulated network calls.
+     */
+    static void setMockResponseSupplier(Supplier<String> supplier) {
+        mockResponseSupplier = supplier;
+    }
+
     /**
      * FOR TESTS ONLY: Sets a mock JSON response for a specific date. This allows
      * tests to simulate availability for one day but not another.
@@ -106,13 +184,187 @@ public final class ElpriserAPI {
      * @param enableCaching Sätt till true för att aktivera minnes-cachning, annars false.
      */
     public ElpriserAPI(boolean enableCaching) {
-        this.httpClient = HttpClient.newBuilder()
+        this(enableCaching, DEFAULT_CACHE_DIR);
+    }
+
+    /**
+     * Konstruktor som även anger var disk-cachen ska ligga.
+     * @param enableCaching Sätt till true för att aktivera minnes- och disk-cachning, annars false.
+     * @param cacheDir Katalogen där cachade priser sparas mellan körningar.
+     */
+    public ElpriserAPI(boolean enableCaching, Path cacheDir) {
+        this(builder().caching(enableCaching).cacheDir(cacheDir));
+    }
+
+    private ElpriserAPI(Builder b) {
+        this.httpClient = b.offline ? null : HttpClient.newBuilder()
                 .followRedirects(HttpClient.Redirect.NORMAL)
                 .build();
-        this.cachingEnabled = enableCaching;
-        // ConcurrentHashMap är trådsäker om klassen skulle användas i flera trådar
-        this.inMemoryCache = new ConcurrentHashMap<>();
-        System.out.println("ElpriserAPI initialiserat. Cachning: " + (enableCaching ? "På" : "Av"));
+        this.cachingEnabled = b.caching;
+        this.inMemoryCache = new BoundedCache<>(b.maxEntries, b.maxBytes, CacheEntry::estimatedBytes, b.nanoClock);
+        this.notFoundTtl = b.notFoundTtl;
+        this.revalidateAfter = b.revalidateAfter;
+        this.clock = b.clock;
+        this.nanoClock = b.nanoClock;
+        this.apiBaseUrl = b.baseUrl;
+        this.requestTimeout = b.requestTimeout;
+        this.metrics = b.metrics;
+        this.timed = b.metrics != ApiMetrics.NONE;
+        this.diskCache = b.caching ? new PriceStore(b.cacheDir) : null;
+        this.prefetchAt = b.prefetchAt;
+        this.prefetchBackoff = b.prefetchBackoff;
+        this.prefetchMaxBackoff = b.prefetchMaxBackoff;
+        LOG.log(System.Logger.Level.DEBUG, () -> "ElpriserAPI initialiserat. Cachning: " + (b.caching ? "På" : "Av")
+                + (b.offline ? ", offline" : ""));
+    }
+
+    /**
+     * Skapar en builder för att konfigurera cachens storlek och livslängder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Konfiguration av ett {@link ElpriserAPI}. Standardvärdena passar ett kommandoradsprogram
+     * och räcker även för en långlivad tjänst.
+     */
+    public static final class Builder {
+        private boolean caching = true;
+        private Path cacheDir = DEFAULT_CACHE_DIR;
+        private int maxEntries = 4096;
+        private long maxBytes = 64L * 1024 * 1024;
+        private Duration notFoundTtl = Duration.ofMinutes(5);
+        private Duration revalidateAfter = Duration.ofHours(1);
+        private Clock clock = Clock.systemDefaultZone();
+        private LongSupplier nanoClock = System::nanoTime;
+        private String baseUrl = API_BASE_URL;
+        private Duration requestTimeout = Duration.ofSeconds(30);
+        private ApiMetrics metrics = ApiMetrics.NONE;
+        private LocalTime prefetchAt = LocalTime.of(12, 45);
+        private Duration prefetchBackoff = Duration.ofMinutes(1);
+        private Duration prefetchMaxBackoff = Duration.ofMinutes(15);
+        private boolean offline = false;
+
+        private Builder() {
+        }
+
+        /** Slår på eller av minnes- och disk-cachning. */
+        public Builder caching(boolean enabled) {
+            this.caching = enabled;
+            return this;
+        }
+
+        /** Katalogen där cachade priser sparas mellan körningar. */
+        public Builder cacheDir(Path dir) {
+            this.cacheDir = dir;
+            return this;
+        }
+
+        /** Högsta antal dagar (per prisklass) i minnes-cachen. */
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /** Ungefärlig högsta storlek på minnes-cachen i byte. */
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /** Hur länge ett svar om att priser saknas (HTTP 404) kommer ihåg innan nästa försök. */
+        public Builder notFoundTtl(Duration ttl) {
+            this.notFoundTtl = ttl;
+            return this;
+        }
+
+        /**
+         * Hur länge priser för idag och kommande dagar används innan de hämtas om.
+         * Omvalideringen sker med en villkorlig förfrågan, så oförändrade priser laddas
+         * inte ner igen. Priser för passerade dagar ändras aldrig och går inte ut.
+         */
+        public Builder revalidateAfter(Duration ttl) {
+            this.revalidateAfter = ttl;
+            return this;
+        }
+
+        /** Längsta tid ett nätverksanrop får ta innan det räknas som misslyckat. */
+        public Builder requestTimeout(Duration timeout) {
+            this.requestTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Tar emot räknare och tider för cache, disk och nätverk, t.ex. {@link ApiStatistics}.
+         * Standard är {@link ApiMetrics#NONE}, som inte kostar något.
+         */
+        public Builder metrics(ApiMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /** Klockan som avgör vilket datum som är idag. */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * När förhämtningen av morgondagens priser börjar, i svensk tid.
+         * Priserna publiceras normalt strax före 13:00.
+         */
+        public Builder prefetchAt(LocalTime time) {
+            this.prefetchAt = time;
+            return this;
+        }
+
+        /**
+         * Väntetid efter första misslyckade förhämtningen. Väntetiden fördubblas
+         * för varje nytt försök men blir aldrig längre än {@code max}.
+         */
+        public Builder prefetchBackoff(Duration initial, Duration max) {
+            if (initial.isNegative() || initial.isZero() || max.compareTo(initial) < 0) {
+                throw new IllegalArgumentException("Ogiltig väntetid för förhämtning");
+            }
+            this.prefetchBackoff = initial;
+            this.prefetchMaxBackoff = max;
+            return this;
+        }
+
+        /**
+         * Offlineläge för miljöer utan nätverk. Priser läses bara ur cachen, t.ex. efter
+         * {@link #importSnapshot(Path)}, och dagar som saknas rapporteras som saknade.
+         * Ingen HttpClient skapas och cachade dagar omvalideras aldrig. Kräver cachning.
+         */
+        public Builder offline(boolean offline) {
+            this.offline = offline;
+            return this;
+        }
+
+        // Endast för tester: klocka för cachens livslängder
+        Builder nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        // Endast för tester: hämta från en lokal server i stället för elprisetjustnu.se
+        Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * Skapar API:et.
+         * @throws IllegalStateException om offlineläge kombineras med avstängd cachning, eftersom
+         *         alla priser då saknas.
+         */
+        public ElpriserAPI build() {
+            if (offline && !caching) {
+                throw new IllegalStateException("Offlineläge kräver cachning, priserna läses bara ur cachen");
+            }
+            return new ElpriserAPI(this);
+        }
     }
 
     /**
@@ -128,7 +380,7 @@ public final class ElpriserAPI {
             LocalDate datum = LocalDate.parse(datumStr, DateTimeFormatter.ISO_LOCAL_DATE);
             return getPriser(datum, prisklass);
         } catch (Exception e) {
-            System.err.println("Ogiltigt datumformat. Använd YYYY-MM-DD. Fel: " + e.getMessage());
+            LOG.log(System.Logger.Level.WARNING, "Ogiltigt datumformat. Använd YYYY-MM-DD. Fel: " + e.getMessage());
             return Collections.emptyList();
         }
     }
@@ -141,161 +393,809 @@ public final class ElpriserAPI {
      * @return En lista av {@link Elpris}-objekt, eller en tom lista om data inte kunde hämtas.
      */
     public List<Elpris> getPriser(LocalDate datum, Prisklass prisklass) {
+        return hämta(datum, prisklass).priser();
+    }
+
+    /**
+     * Hämtar elpriser för ett specifikt datum och prisklass som en primitiv {@link PriceSeries}.
+     * Serien byggs en gång per cachad dag, så upprepade anrop kostar ingen konvertering.
+     *
+     * @param datum Dagen att hämta priser för.
+     * @param prisklass Elprisområdet (SE1, SE2, SE3 eller SE4).
+     * @return En serie med dagens priser, eller en tom serie om data inte kunde hämtas.
+     */
+    public PriceSeries getPriceSeries(LocalDate datum, Prisklass prisklass) {
+        return hämta(datum, prisklass).serie();
+    }
+
+    /**
+     * Hämtar ett index över dagens priser med sorterad ordning, prefixsummor och lägsta och
+     * högsta pris. Indexet byggs första gången dagen efterfrågas och följer sedan med dagen
+     * i cachen, så upprepade frågor om sortering, summor och billigaste fönster blir billiga.
+     *
+     * @param datum Dagen att hämta priser för.
+     * @param prisklass Elprisområdet (SE1, SE2, SE3 eller SE4).
+     * @return Indexet, tomt om data inte kunde hämtas.
+     */
+    public PriceIndex getPriceIndex(LocalDate datum, Prisklass prisklass) {
+        return hämta(datum, prisklass).index();
+    }
+
+    /**
+     * Hämtar elpriser utan att blockera den anropande tråden. Nätverksanropet görs med
+     * {@link HttpClient#sendAsync}, och samtidiga anrop för samma dag delar på en hämtning.
+     * <p>
+     * Att avbryta den returnerade framtiden påverkar bara anroparen. Hämtningen slutförs
+     * ändå och hamnar i cachen till nästa anrop.
+     *
+     * @param datum Datumet för vilket priser ska hämtas.
+     * @param prisklass Elprisområdet (SE1, SE2, SE3 eller SE4).
+     * @return Priserna, eller en tom lista om data inte kunde hämtas.
+     */
+    public CompletableFuture<List<Elpris>> getPriserAsync(LocalDate datum, Prisklass prisklass) {
+        return hämtaAsync(datum, prisklass).thenApply(outcome -> outcome.entry().priser());
+    }
+
+    /**
+     * Som {@link #getPriserAsync(LocalDate, Prisklass)}, men framtiden avslutas med
+     * {@link java.util.concurrent.TimeoutException} om priserna inte finns inom {@code timeout}.
+     */
+    public CompletableFuture<List<Elpris>> getPriserAsync(LocalDate datum, Prisklass prisklass, Duration timeout) {
+        return getPriserAsync(datum, prisklass).orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Som {@link #getPriserAsync(LocalDate, Prisklass)}, men returnerar priserna som en {@link PriceSeries}.
+     */
+    public CompletableFuture<PriceSeries> getPriceSeriesAsync(LocalDate datum, Prisklass prisklass) {
+        return hämtaAsync(datum, prisklass).thenApply(outcome -> outcome.entry().serie());
+    }
+
+    /**
+     * Hämtar priser för flera dagar i följd som en sammanhängande serie, t.ex. idag och imorgon.
+     * Serien avbryts vid första dag som saknar priser eller inte fortsätter där föregående slutar.
+     * En enda dag lämnas som den ligger i cachen. Flera dagar kopieras en gång till en ny serie.
+     *
+     * @param från Första datum (inklusive).
+     * @param till Sista datum (inklusive).
+     * @param prisklass Elprisområdet (SE1, SE2, SE3 eller SE4).
+     * @return Serien, tom om första dagen saknar priser.
+     */
+    public PriceSeries getPriceSeries(LocalDate från, LocalDate till, Prisklass prisklass) {
+        PriceSeries första = getPriceSeries(från, prisklass);
+        PriceSeries.Builder builder = null;
+        long slut = första.isEmpty() ? 0 : första.endEpochSecond(första.size() - 1);
+        for (LocalDate datum = från.plusDays(1); !första.isEmpty() && !datum.isAfter(till); datum = datum.plusDays(1)) {
+            PriceSeries nästa = getPriceSeries(datum, prisklass);
+            if (nästa.isEmpty() || nästa.startEpochSecond(0) < slut) {
+                break;
+            }
+            if (builder == null) {
+                // Dagarna ligger i olika arrayer, så de samlas i en enda kopia i stället för en per dag
+                builder = new PriceSeries.Builder(första.size() * 2).addAll(första);
+            }
+            builder.addAll(nästa);
+            slut = nästa.endEpochSecond(nästa.size() - 1);
+        }
+        return builder == null ? första : builder.build();
+    }
+
+    /**
+     * Tar emot en period i taget vid {@link #scan}, utan att några objekt skapas.
+     */
+    @FunctionalInterface
+    public interface PriceVisitor {
+        void visit(long startEpochSecond, int lengthSeconds, int startOffsetSeconds, double sekPerKWh);
+    }
+
+    /**
+     * Går igenom alla perioder för ett intervall av datum i tidsordning, dag för dag.
+     * Dagar som finns i disk-cachen läses direkt ur prislagret utan att några objekt skapas,
+     * övriga hämtas som vanligt och hamnar då i cachen. Minnesbehovet beror alltså inte på
+     * intervallets längd, så även flera års historik kan gås igenom.
+     *
+     * @param från Första datum (inklusive).
+     * @param till Sista datum (inklusive).
+     * @param prisklass Elprisområdet (SE1, SE2, SE3 eller SE4).
+     * @param visitor Tar emot varje period.
+     * @return Antal besökta perioder.
+     */
+    public long scan(LocalDate från, LocalDate till, Prisklass prisklass, PriceVisitor visitor) {
+        PriceStore.RowVisitor rows = (start, length, offset, sek, eur, exr) -> visitor.visit(start, length, offset, sek);
+        long visited = 0;
+        for (LocalDate datum = från; !datum.isAfter(till); datum = datum.plusDays(1)) {
+            long fromDisk = scanDiskCache(datum, prisklass, rows);
+            if (fromDisk > 0) {
+                visited += fromDisk;
+                continue;
+            }
+            PriceSeries serie = getPriceSeries(datum, prisklass);
+            for (int i = 0; i < serie.size(); i++) {
+                visitor.visit(serie.startEpochSecond(i), (int) serie.lengthSeconds(i), serie.startOffsetSeconds(i),
+                        serie.price(i));
+            }
+            visited += serie.size();
+        }
+        return visited;
+    }
+
+    /**
+     * Startar en bakgrundstråd som hämtar morgondagens priser för de angivna prisklasserna
+     * så snart de publicerats och lägger dem i cachen. Från {@link Builder#prefetchAt(LocalTime)}
+     * försöker den med ökande väntetid tills alla prisklasser finns, och väntar sedan till
+     * samma tid nästa dag. Anrop som efterfrågar morgondagen behöver då inte gå till nätverket.
+     *
+     * @param prisklasser Prisklasserna att förhämta.
+     * @return Förhämtningen, som stoppas med {@link NextDayPrefetcher#close()}.
+     * @throws IllegalStateException om cachning är avstängd eller API:et är offline.
+     */
+    public NextDayPrefetcher startPrefetch(Collection<Prisklass> prisklasser) {
+        if (!cachingEnabled) {
+            throw new IllegalStateException("Förhämtning kräver att cachning är på");
+        }
+        if (isOffline()) {
+            throw new IllegalStateException("Förhämtning är inte möjlig i offlineläge");
+        }
+        NextDayPrefetcher prefetcher = new NextDayPrefetcher(this, prisklasser, clock,
+                prefetchAt, prefetchBackoff, prefetchMaxBackoff);
+        prefetcher.start();
+        return prefetcher;
+    }
+
+    /**
+     * Ser till att priser för dagen finns i cachen. Ett sparat svar om att priserna saknas
+     * ignoreras, eftersom förhämtningen just frågar efter priser som ännu inte publicerats.
+     * @return true om priserna finns i cachen efter anropet.
+     */
+    boolean prefetch(LocalDate datum, Prisklass prisklass) {
         String cacheKey = getCacheKey(datum, prisklass);
+        CacheEntry cached = inMemoryCache.get(cacheKey);
+        if (cached != null) {
+            if (cached.notFound == null) {
+                return true;
+            }
+            inMemoryCache.remove(cacheKey);
+        }
+        Outcome outcome = hämtaMedStatus(datum, prisklass);
+        return outcome.status() == FetchResult.Status.OK && !outcome.entry().priser().isEmpty();
+    }
 
-        // Steg 1: Kolla minnes-cachen
-        if (cachingEnabled && inMemoryCache.containsKey(cacheKey)) {
-            System.out.println("Hämtar från minnes-cache för " + cacheKey);
-            return inMemoryCache.get(cacheKey);
+    /**
+     * Hämtar priser för ett intervall av datum och flera prisklasser parallellt.
+     * Varje kombination av datum och prisklass hämtas i en egen virtuell tråd, men högst
+     * {@code maxParallel} åt gången. Resultaten levereras till {@code onResult} i den ordning
+     * de blir klara, från de trådar som hämtade dem, så mottagaren måste vara trådsäker.
+     * Metoden returnerar när alla hämtningar är klara.
+     *
+     * @param från Första datum (inklusive).
+     * @param till Sista datum (inklusive).
+     * @param prisklasser Prisklasserna att hämta.
+     * @param maxParallel Högsta antal samtidiga hämtningar.
+     * @param onResult Tar emot ett resultat per datum och prisklass, även för misslyckade hämtningar.
+     */
+    public void getPriser(LocalDate från, LocalDate till, Collection<Prisklass> prisklasser, int maxParallel,
+                          Consumer<FetchResult> onResult) {
+        if (maxParallel < 1) {
+            throw new IllegalArgumentException("maxParallel måste vara minst 1");
         }
+        Semaphore permits = new Semaphore(maxParallel);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (LocalDate datum = från; !datum.isAfter(till); datum = datum.plusDays(1)) {
+                for (Prisklass prisklass : prisklasser) {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        // Inga fler hämtningar startas, de som redan pågår får bli klara
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    LocalDate d = datum;
+                    executor.execute(() -> {
+                        try {
+                            onResult.accept(hämtaMedStatus(d, prisklass).toResult(d, prisklass));
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+        }
+    }
 
-        // Steg 2: Försök ladda från disk-cache (framtida implementation)
-        var priserFrånDisk = loadFromDiskCache(cacheKey);
+    /**
+     * Hämtar priser för ett intervall av datum och flera prisklasser parallellt och väntar
+     * tills alla är klara.
+     *
+     * @return Ett resultat per datum och prisklass, sorterat på datum och sedan prisklass.
+     */
+    public List<FetchResult> getPriser(LocalDate från, LocalDate till, Collection<Prisklass> prisklasser) {
+        List<FetchResult> resultat = Collections.synchronizedList(new ArrayList<>());
+        getPriser(från, till, prisklasser, DEFAULT_MAX_PARALLEL, resultat::add);
+        List<FetchResult> sorterat = new ArrayList<>(resultat);
+        sorterat.sort(Comparator.comparing(FetchResult::datum).thenComparing(FetchResult::prisklass));
+        return sorterat;
+    }
+
+    private CacheEntry hämta(LocalDate datum, Prisklass prisklass) {
+        return hämtaMedStatus(datum, prisklass).entry();
+    }
+
+    private Outcome hämtaMedStatus(LocalDate datum, Prisklass prisklass) {
+        try {
+            return hämtaAsync(datum, prisklass).get();
+        } catch (InterruptedException e) {
+            // Bara väntan avbryts. Hämtningen fortsätter och hamnar i cachen till nästa anrop.
+            Thread.currentThread().interrupt();
+            return Outcome.failure(FetchResult.Status.FAILED, "Avbruten");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Skriver priserna för ett intervall av datum och prisklasser till en komprimerad
+     * ögonblicksbild, som sedan kan läsas in med {@link #importSnapshot(Path)} i en miljö
+     * utan nätverk. Dagarna hämtas som vanligt, så cachade dagar går inte till nätverket.
+     * Dagar utan priser hoppas över.
+     *
+     * @param fil Filen att skriva. En befintlig fil ersätts.
+     * @param från Första datum (inklusive).
+     * @param till Sista datum (inklusive).
+     * @param prisklasser Prisklasserna att ta med.
+     * @return Antal dagar (per prisklass) i ögonblicksbilden.
+     * @throws IOException om filen inte kunde skrivas. En halvskriven fil tas bort.
+     */
+    public int exportSnapshot(Path fil, LocalDate från, LocalDate till, Collection<Prisklass> prisklasser) throws IOException {
+        try {
+            try (PriceSnapshot.Writer writer = new PriceSnapshot.Writer(fil)) {
+                for (LocalDate datum = från; !datum.isAfter(till); datum = datum.plusDays(1)) {
+                    for (Prisklass prisklass : prisklasser) {
+                        List<Elpris> priser = hämta(datum, prisklass).priser();
+                        if (!priser.isEmpty()) {
+                            writer.add(datum, prisklass, priser);
+                        }
+                    }
+                }
+                return writer.days();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(fil);
+            throw e;
+        }
+    }
+
+    /**
+     * Läser in en ögonblicksbild från {@link #exportSnapshot} till disk-cachen. Dagarna skrivs
+     * med en skrivning per månadsfil och ersätter det som redan finns för samma dagar.
+     * Importerade dagar läses därefter ur cachen, även i offlineläge. Om bilden är trasig
+     * kastas ett undantag, men dagar som redan lästs in behålls.
+     *
+     * @param fil Ögonblicksbilden.
+     * @return Antal inlästa dagar (per prisklass).
+     * @throws IOException om filen inte kunde läsas eller inte är en giltig ögonblicksbild.
+     * @throws IllegalStateException om cachning är avstängd.
+     */
+    public int importSnapshot(Path fil) throws IOException {
+        if (diskCache == null) {
+            throw new IllegalStateException("Import kräver att cachning är på");
+        }
+        Map<Prisklass, Map<LocalDate, List<Elpris>>> väntande = new EnumMap<>(Prisklass.class);
+        try {
+            return PriceSnapshot.read(fil, (datum, prisklass, priser) -> {
+                Map<LocalDate, List<Elpris>> dagar = väntande.computeIfAbsent(prisklass, p -> new HashMap<>());
+                dagar.put(datum, priser);
+                // Begränsar minnesbehovet för ögonblicksbilder som sträcker sig över flera år
+                if (dagar.size() >= IMPORT_BATCH_DAYS) {
+                    spara(prisklass, dagar);
+                }
+            });
+        } finally {
+            for (Map.Entry<Prisklass, Map<LocalDate, List<Elpris>>> entry : väntande.entrySet()) {
+                spara(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void spara(Prisklass prisklass, Map<LocalDate, List<Elpris>> dagar) throws IOException {
+        if (dagar.isEmpty()) {
+            return;
+        }
+        diskCache.saveAll(prisklass, dagar);
+        // Minnet får inte fortsätta visa en äldre version eller ett sparat svar om att dagen saknas
+        for (LocalDate datum : dagar.keySet()) {
+            inMemoryCache.remove(getCacheKey(datum, prisklass));
+        }
+        dagar.clear();
+    }
+
+    /** Om API:et är i offlineläge, se {@link Builder#offline(boolean)}. */
+    public boolean isOffline() {
+        return httpClient == null;
+    }
+
+    /**
+     * Hämtar en dag utan att blockera. Framtiden delas av alla som väntar på samma nyckel
+     * och får därför inte avbrytas av anroparen.
+     */
+    private CompletableFuture<Outcome> hämtaAsync(LocalDate datum, Prisklass prisklass) {
+        String cacheKey = getCacheKey(datum, prisklass);
+
+        // Steg 1: Kolla minnes-cachen. En dag som ska omvalideras behålls som underlag för en villkorlig förfrågan.
+        long start = timed ? System.nanoTime() : 0L;
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        CacheEntry cached = cachingEnabled ? inMemoryCache.get(cacheKey) : null;
+        boolean hit = cached != null && cached.isFresh(nanoClock.getAsLong());
+        event.end();
+        if (event.shouldCommit()) {
+            commit(event, datum, prisklass, "minne", hit, hit ? cached.priser().size() : 0);
+        }
+        if (hit) {
+            if (timed) {
+                metrics.cacheHit(System.nanoTime() - start);
+            }
+            LOG.log(System.Logger.Level.DEBUG, "Hämtar från minnes-cache för {0}", cacheKey);
+            return CompletableFuture.completedFuture(cached.outcome());
+        }
+        metrics.cacheMiss();
+
+        // Steg 1b: Om samma nyckel redan hämtas väntar vi på den hämtningen
+        // i stället för att gå till nätverket igen (single-flight)
+        CompletableFuture<Outcome> egen = new CompletableFuture<>();
+        CompletableFuture<Outcome> pågående = inFlight.putIfAbsent(cacheKey, egen);
+        if (pågående != null) {
+            return pågående;
+        }
+        CompletableFuture<Outcome> laddning;
+        try {
+            // En annan hämtning kan ha hunnit bli klar mellan cachekollen och registreringen ovan
+            cached = cachingEnabled ? inMemoryCache.get(cacheKey) : null;
+            laddning = cached != null && cached.isFresh(nanoClock.getAsLong())
+                    ? CompletableFuture.completedFuture(cached.outcome()) : ladda(cacheKey, datum, prisklass, cached);
+        } catch (RuntimeException e) {
+            laddning = CompletableFuture.failedFuture(e);
+        }
+        laddning.whenComplete((outcome, fel) -> {
+            // Resultatet ligger redan i cachen, så nyckeln kan släppas innan de väntande släpps
+            inFlight.remove(cacheKey, egen);
+            if (fel != null) {
+                egen.completeExceptionally(fel);
+            } else {
+                egen.complete(outcome);
+            }
+        });
+        return egen;
+    }
+
+    /**
+     * Laddar en dag från disk, mock-data eller nätverket. Anropas bara av den som
+     * äger hämtningen för nyckeln. Disk och mock-data läses direkt, nätverket asynkront.
+     * @param stale En cachad dag som ska omvalideras, eller null.
+     */
+    private CompletableFuture<Outcome> ladda(String cacheKey, LocalDate datum, Prisklass prisklass, CacheEntry stale) {
+        // Steg 2: Försök ladda från disk-cache. Mock-data ska aldrig blandas med riktig cachad data.
+        // Vid omvalidering hoppas disken över, den är inte nyare än minnet.
+        long start = timed ? System.nanoTime() : 0L;
+        List<Elpris> priserFrånDisk = null;
+        if (!mockActive() && stale == null && diskCache != null) {
+            CacheEvent event = new CacheEvent();
+            event.begin();
+            priserFrånDisk = loadFromDiskCache(datum, prisklass);
+            event.end();
+            if (event.shouldCommit()) {
+                commit(event, datum, prisklass, "disk", priserFrånDisk != null, priserFrånDisk == null ? 0 : priserFrånDisk.size());
+            }
+        }
         if (cachingEnabled && priserFrånDisk != null && !priserFrånDisk.isEmpty()) {
-            System.out.println("Hämtar från disk-cache för " + cacheKey);
-            inMemoryCache.put(cacheKey, priserFrånDisk); // Lägg i minnes-cachen för snabbare åtkomst nästa gång
-            return priserFrånDisk;
+            if (timed) {
+                metrics.diskHit(System.nanoTime() - start);
+            }
+            LOG.log(System.Logger.Level.DEBUG, "Hämtar från disk-cache för {0}", cacheKey);
+            CacheEntry entry = new CacheEntry(priserFrånDisk, null, null, revalidateAt(datum));
+            inMemoryCache.put(cacheKey, entry, BoundedCache.NO_EXPIRY); // Lägg i minnes-cachen för snabbare åtkomst nästa gång
+            return CompletableFuture.completedFuture(Outcome.ok(entry));
         }
 
         // Check for a mock response before making a network call ---
-        if (mockResponseSupplier != null || !datedMockResponses.isEmpty()) {
-            System.out.println("!!! ANVÄNDER MOCK-DATA FÖR TEST !!!");
+        if (mockActive()) {
+            LOG.log(System.Logger.Level.DEBUG, "Använder mock-data för {0}", cacheKey);
             String mockJson = datedMockResponses.getOrDefault(datum, mockResponseSupplier == null ? null : mockResponseSupplier.get());
             if (mockJson == null || mockJson.isBlank()) {
-                return Collections.emptyList();
+                return CompletableFuture.completedFuture(notFound(cacheKey, "Ingen mock-data för " + cacheKey));
             }
-            List<Elpris> priser = parseSimpleJson(mockJson);
-            if (cachingEnabled && !priser.isEmpty()) {
-                inMemoryCache.put(cacheKey, priser);
-            }
-            return priser;
+            return CompletableFuture.completedFuture(parseAndCache(cacheKey,
+                    ByteBuffer.wrap(mockJson.getBytes(StandardCharsets.UTF_8)), datum, prisklass, false, null, null));
         }
         // --- End of mock check ---
 
+        // I offlineläge finns bara det som redan ligger i cachen
+        if (httpClient == null) {
+            return CompletableFuture.completedFuture(stale != null ? stale.outcome()
+                    : notFound(cacheKey, "Saknas i cachen (offline)"));
+        }
+
         // Steg 3: Hämta från nätverket om det inte finns i cachen
-        System.out.println("Hämtar från nätverket för " + cacheKey);
+        LOG.log(System.Logger.Level.DEBUG, "Hämtar från nätverket för {0}", cacheKey);
         String url = buildUrl(datum, prisklass);
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        // Villkorlig förfrågan: servern svarar 304 utan innehåll om priserna är oförändrade
+        if (stale != null && stale.etag != null) {
+            request.header("If-None-Match", stale.etag);
+        }
+        if (stale != null && stale.lastModified != null) {
+            request.header("If-Modified-Since", stale.lastModified);
+        }
+        long sent = timed ? System.nanoTime() : 0L;
+        FetchEvent event = new FetchEvent();
+        event.begin();
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, fel) -> {
+                    long nanos = timed ? System.nanoTime() - sent : 0L;
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.zone = prisklass.name();
+                        event.date = datum.toString();
+                        event.conditional = stale != null && (stale.etag != null || stale.lastModified != null);
+                        if (response != null) {
+                            event.statusCode = response.statusCode();
+                            event.bytes = response.body() == null ? 0 : response.body().length;
+                        }
+                        event.commit();
+                    }
+                    if (fel != null) {
+                        metrics.networkError(nanos);
+                        return hanteraFel(stale, fel);
+                    }
+                    metrics.networkFetch(response.statusCode(), response.body() == null ? 0 : response.body().length, nanos);
+                    return hanteraSvar(cacheKey, datum, prisklass, stale, response);
+                });
+    }
+
+    private Outcome hanteraSvar(String cacheKey, LocalDate datum, Prisklass prisklass, CacheEntry stale,
+                                HttpResponse<byte[]> response) {
+        if (response.statusCode() == 304 && stale != null) {
+            LOG.log(System.Logger.Level.DEBUG, "Priserna för {0} är oförändrade (HTTP 304).", cacheKey);
+            CacheEntry entry = stale.revalidated(revalidateAt(datum));
+            inMemoryCache.put(cacheKey, entry, BoundedCache.NO_EXPIRY);
+            return Outcome.ok(entry);
+        }
+
+        // Om sidan inte finns (t.ex. priser för morgondagen) returneras 404
+        if (response.statusCode() == 404) {
+            LOG.log(System.Logger.Level.DEBUG, "Inga priser hittades för {0} (HTTP 404).", cacheKey);
+            return notFound(cacheKey, "HTTP 404");
+        }
+        if (response.statusCode() != 200) {
+            LOG.log(System.Logger.Level.WARNING, "Misslyckades med att hämta priser för {0}. Statuskod: {1}",
+                    cacheKey, response.statusCode());
+            // Vid omvalidering är de cachade priserna bättre än inga priser alls
+            return stale != null ? stale.outcome()
+                    : Outcome.failure(FetchResult.Status.FAILED, "HTTP " + response.statusCode());
+        }
+
+        // Steg 4: Packa upp, tolka och spara i cache om cachning är på
+        byte[] body;
         try {
-            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            body = decode(response.body(), response.headers().firstValue("Content-Encoding").orElse(""));
+        } catch (IOException e) {
+            return hanteraFel(stale, e);
+        }
+        return parseAndCache(cacheKey, ByteBuffer.wrap(body), datum, prisklass, true,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+    }
 
-            // Om sidan inte finns (t.ex. priser för morgondagen) returneras 404
-            if (response.statusCode() == 404) {
-                System.out.println("Inga priser hittades för " + cacheKey + " (HTTP 404).");
-                return Collections.emptyList();
+    private Outcome hanteraFel(CacheEntry stale, Throwable fel) {
+        Throwable orsak = fel instanceof CompletionException && fel.getCause() != null ? fel.getCause() : fel;
+        // I ett produktionssystem skulle man vilja logga detta fel mer utförligt
+        LOG.log(System.Logger.Level.WARNING, "Ett fel inträffade vid hämtning av elpriser: " + orsak, orsak);
+        return stale != null ? stale.outcome()
+                : Outcome.failure(FetchResult.Status.FAILED, String.valueOf(orsak.getMessage()));
+    }
+
+    // Fälten sätts bara när händelsen faktiskt spelas in, så att inga strängar skapas annars
+
+    private static void commit(CacheEvent event, LocalDate datum, Prisklass prisklass, String layer, boolean hit, int slots) {
+        event.zone = prisklass.name();
+        event.date = datum.toString();
+        event.layer = layer;
+        event.hit = hit;
+        event.slots = slots;
+        event.commit();
+    }
+
+    private static void commit(ParseEvent event, LocalDate datum, Prisklass prisklass, long bytes, int slots,
+                               boolean success) {
+        event.zone = prisklass.name();
+        event.date = datum.toString();
+        event.bytes = bytes;
+        event.slots = slots;
+        event.success = success;
+        event.commit();
+    }
+
+    /**
+     * Kommer ihåg att priser saknas under en kort tid, så att t.ex. morgondagen inte
+     * efterfrågas om och om igen innan den publicerats.
+     */
+    private Outcome notFound(String cacheKey, String fel) {
+        Outcome outcome = Outcome.failure(FetchResult.Status.NOT_FOUND, fel);
+        if (cachingEnabled && !notFoundTtl.isZero()) {
+            inMemoryCache.put(cacheKey, CacheEntry.notFound(fel), notFoundTtl.toNanos());
+        }
+        return outcome;
+    }
+
+    /**
+     * När en cachad dag ska omvalideras, enligt {@code nanoClock}. Passerade dagar är slutgiltiga,
+     * medan idag och framåt omvalideras efter {@link Builder#revalidateAfter(Duration)}.
+     * I offlineläge finns inget att omvalidera mot.
+     */
+    private long revalidateAt(LocalDate datum) {
+        return isOffline() || datum.isBefore(LocalDate.now(clock)) ? BoundedCache.NO_EXPIRY : nanoClock.getAsLong() + revalidateAfter.toNanos();
+    }
+
+    /**
+     * Packar upp ett svar enligt dess Content-Encoding. HttpClient gör inte detta själv.
+     * @throws IOException om kodningen är okänd eller innehållet är trasigt.
+     */
+    static byte[] decode(byte[] body, String contentEncoding) throws IOException {
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "", "identity" -> {
+                return body;
             }
-            if (response.statusCode() != 200) {
-                System.err.println("Misslyckades med att hämta priser. Statuskod: " + response.statusCode());
-                return Collections.emptyList();
+            case "gzip", "x-gzip" -> {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    return in.readAllBytes();
+                }
+            }
+            case "deflate" -> {
+                // Ska vara zlib-format, men en del servrar skickar rå deflate utan huvud
+                try {
+                    return inflate(body, false);
+                } catch (ZipException e) {
+                    return inflate(body, true);
+                }
             }
+            default -> throw new IOException("Okänd Content-Encoding: " + contentEncoding);
+        }
+    }
 
-            List<Elpris> priser = parseSimpleJson(response.body());
+    private static byte[] inflate(byte[] body, boolean nowrap) throws IOException {
+        Inflater inflater = new Inflater(nowrap);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(body), inflater)) {
+            return in.readAllBytes();
+        } finally {
+            inflater.end();
+        }
+    }
 
-            // Steg 4: Spara i cache om cachning är på
-            if (cachingEnabled && !priser.isEmpty()) {
-                inMemoryCache.put(cacheKey, priser);
-                saveToDiskCache(cacheKey, response.body()); // Spara rådata till disk (framtida implementation)
+    /**
+     * Tolkar ett svar och lägger det i minnes-cachen tillsammans med svarets validerare.
+     * Med {@code sparaPåDisk} sparas priserna även i disk-cachen, vilket görs för riktiga svar
+     * men aldrig för mock-data.
+     */
+    private Outcome parseAndCache(String cacheKey, ByteBuffer json, LocalDate datum, Prisklass prisklass,
+                                  boolean sparaPåDisk, String etag, String lastModified) {
+        List<Elpris> priser;
+        ParseEvent event = new ParseEvent();
+        int bytes = json.remaining();
+        event.begin();
+        try {
+            priser = ElprisJsonParser.parse(json);
+            event.end();
+            if (event.shouldCommit()) {
+                commit(event, datum, prisklass, bytes, priser.size(), true);
             }
-            return priser;
-
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Ett fel inträffade vid hämtning av elpriser: " + e.getMessage());
-            // I ett produktionssystem skulle man vilja logga detta fel mer utförligt
-            Thread.currentThread().interrupt(); // Bra praxis vid InterruptedException
-            return Collections.emptyList();
+        } catch (ElprisJsonParser.MalformedJsonException e) {
+            event.end();
+            if (event.shouldCommit()) {
+                commit(event, datum, prisklass, bytes, 0, false);
+            }
+            metrics.parseError();
+            LOG.log(System.Logger.Level.WARNING, "Kunde inte tolka svaret för {0} som JSON: {1}", cacheKey, e.getMessage());
+            return Outcome.failure(FetchResult.Status.FAILED, "Ogiltig JSON: " + e.getMessage());
         }
+        CacheEntry entry = new CacheEntry(priser, etag, lastModified, revalidateAt(datum));
+        if (cachingEnabled && !priser.isEmpty()) {
+            inMemoryCache.put(cacheKey, entry, BoundedCache.NO_EXPIRY);
+            if (sparaPåDisk) {
+                saveToDiskCache(datum, prisklass, priser); // Spara binärt till disk för nästa körning
+            }
+        }
+        return Outcome.ok(entry);
     }
 
-    // --- Privata hjälpmetoder ---
+    /**
+     * Resultatet av en hämtning för ett datum och en prisklass i en parallell hämtning.
+     * @param status Om hämtningen lyckades, om priser saknades eller om något gick fel.
+     * @param priser Priserna, tom om hämtningen inte lyckades.
+     * @param fel En beskrivning av felet, eller null om hämtningen lyckades.
+     */
+    public record FetchResult(LocalDate datum, Prisklass prisklass, Status status, List<Elpris> priser, String fel) {
 
-    private String buildUrl(LocalDate datum, Prisklass prisklass) {
-        String formattedDate = datum.format(URL_DATE_FORMATTER);
-        return String.format("%s/%s_%s.json", API_BASE_URL, formattedDate, prisklass.name());
+        public enum Status {
+            /** Priserna hämtades (listan kan vara tom om API:et svarade med en tom array). */
+            OK,
+            /** Priser finns inte publicerade, t.ex. morgondagen före kl 13. */
+            NOT_FOUND,
+            /** Nätverksfel, oväntad statuskod eller ogiltig JSON. */
+            FAILED
+        }
+
+        public boolean ok() {
+            return status == Status.OK;
+        }
     }
 
-    private String getCacheKey(LocalDate datum, Prisklass prisklass) {
-        return datum.format(DateTimeFormatter.ISO_LOCAL_DATE) + "_" + prisklass.name();
+    /**
+     * Internt resultat av en hämtning: cacheposten samt status för den parallella hämtningen.
+     */
+    private record Outcome(CacheEntry entry, FetchResult.Status status, String fel) {
+
+        static Outcome ok(CacheEntry entry) {
+            return new Outcome(entry, FetchResult.Status.OK, null);
+        }
+
+        static Outcome failure(FetchResult.Status status, String fel) {
+            return new Outcome(CacheEntry.EMPTY, status, fel);
+        }
+
+        FetchResult toResult(LocalDate datum, Prisklass prisklass) {
+            return new FetchResult(datum, prisklass, status, entry.priser(), fel);
+        }
     }
 
     /**
-     * En mycket enkel JSON-parser som är skräddarsydd för just detta API:s svarsformat.
-     * Denna metod är inte en generell JSON-parser och är känslig för ändringar i formatet.
+     * En cachad dag: priserna som records och, skapad vid första behov, som primitiv serie,
+     * samt svarets validerare (ETag och Last-Modified) för villkorliga förfrågningar.
      */
-    private List<Elpris> parseSimpleJson(String json) {
-        List<Elpris> priser = new ArrayList<>();
-        // Ta bort yttre [ och ], samt eventuella blanksteg
-        String trimmedJson = json.trim();
-        if (!trimmedJson.startsWith("[") || !trimmedJson.endsWith("]")) {
-            return Collections.emptyList();
+    private static final class CacheEntry {
+        static final CacheEntry EMPTY = new CacheEntry(Collections.emptyList(), null, null, BoundedCache.NO_EXPIRY);
+
+        // Ungefärlig minnesåtgång per pris: record, två ZonedDateTime och plats i serien
+        private static final long BYTES_PER_PRIS = 240;
+
+        private final List<Elpris> priser;
+        // Satt för negativt cachade dagar, där priser ännu inte publicerats
+        private final String notFound;
+        private final String etag;
+        private final String lastModified;
+        // När priserna ska omvalideras, enligt nanoClock, eller NO_EXPIRY
+        private final long revalidateAt;
+        private volatile PriceSeries serie;
+        private volatile PriceIndex index;
+
+        CacheEntry(List<Elpris> priser, String etag, String lastModified, long revalidateAt) {
+            this(priser, null, etag, lastModified, revalidateAt);
         }
-        String content = trimmedJson.substring(1, trimmedJson.length() - 1).trim();
-        if (content.isEmpty()) {
-            return Collections.emptyList();
+
+        private CacheEntry(List<Elpris> priser, String notFound, String etag, String lastModified, long revalidateAt) {
+            this.priser = Collections.unmodifiableList(priser);
+            this.notFound = notFound;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.revalidateAt = revalidateAt;
         }
 
-        // Dela upp i enskilda JSON-objekt
-        String[] objects = content.split("}\\s*,\\s*\\{");
+        static CacheEntry notFound(String fel) {
+            return new CacheEntry(Collections.emptyList(), fel, null, null, BoundedCache.NO_EXPIRY);
+        }
 
-        for (String objStr : objects) {
-            // Rensa bort resterande { och }
-            String cleanObjStr = objStr.replace("{", "").replace("}", "");
+        boolean isFresh(long now) {
+            return revalidateAt == BoundedCache.NO_EXPIRY || now - revalidateAt < 0;
+        }
 
-            try {
-                // Skapa en temporär map för att hålla värdena för ett objekt
-                Map<String, String> valueMap = new java.util.HashMap<>();
-                String[] pairs = cleanObjStr.split(",");
-                for (String pair : pairs) {
-                    String[] keyValue = pair.split(":", 2);
-                    String key = keyValue[0].trim().replace("\"", "");
-                    String value = keyValue[1].trim().replace("\"", "");
-                    valueMap.put(key, value);
-                }
+        /** Samma priser och validerare, med en ny tidpunkt för omvalidering. */
+        CacheEntry revalidated(long revalidateAt) {
+            CacheEntry entry = new CacheEntry(priser, notFound, etag, lastModified, revalidateAt);
+            entry.serie = serie;
+            entry.index = index;
+            return entry;
+        }
+
+        Outcome outcome() {
+            return notFound == null ? Outcome.ok(this) : new Outcome(this, FetchResult.Status.NOT_FOUND, notFound);
+        }
+
+        long estimatedBytes() {
+            return 64 + priser.size() * BYTES_PER_PRIS;
+        }
 
-                // Skapa ett Elpris-objekt från värdena i mappen
-                priser.add(new Elpris(
-                        Double.parseDouble(valueMap.get("SEK_per_kWh")),
-                        Double.parseDouble(valueMap.get("EUR_per_kWh")),
-                        Double.parseDouble(valueMap.get("EXR")),
-                        ZonedDateTime.parse(valueMap.get("time_start")),
-                        ZonedDateTime.parse(valueMap.get("time_end"))
-                ));
-            } catch (Exception e) {
-                // Hoppa över objekt som inte kan parsas, logga ett fel
-                System.err.println("Kunde inte tolka ett elpris-objekt: " + cleanObjStr + " - Fel: " + e.getMessage());
+        List<Elpris> priser() {
+            return priser;
+        }
+
+        PriceSeries serie() {
+            PriceSeries s = serie;
+            if (s == null) {
+                s = PriceSeries.of(priser);
+                serie = s;
             }
+            return s;
+        }
+
+        PriceIndex index() {
+            PriceIndex i = index;
+            if (i == null) {
+                i = PriceIndex.of(serie());
+                index = i;
+            }
+            return i;
         }
-        return priser;
     }
 
-    // --- Stub-metoder för disk-cache ---
+    // --- Privata hjälpmetoder ---
+
+    private static boolean mockActive() {
+        return mockResponseSupplier != null || !datedMockResponses.isEmpty();
+    }
+
+    private String buildUrl(LocalDate datum, Prisklass prisklass) {
+        String formattedDate = datum.format(URL_DATE_FORMATTER);
+        return String.format("%s/%s_%s.json", apiBaseUrl, formattedDate, prisklass.name());
+    }
+
+    private String getCacheKey(LocalDate datum, Prisklass prisklass) {
+        return datum.format(DateTimeFormatter.ISO_LOCAL_DATE) + "_" + prisklass.name();
+    }
+
+    // --- Disk-cache ---
+
+    /**
+     * Sparar tolkade priser i det binära prislagret. Fel loggas men avbryter inte anropet,
+     * priserna finns ju redan i minnet.
+     */
+    private void saveToDiskCache(LocalDate datum, Prisklass prisklass, List<Elpris> priser) {
+        if (diskCache == null) {
+            return;
+        }
+        try {
+            diskCache.save(datum, prisklass, priser);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Kunde inte spara {0} till disk-cache: {1}",
+                    getCacheKey(datum, prisklass), e.getMessage());
+        }
+    }
 
     /**
-     * STUB: Spara data till en fil i en dold katalog i användarens hemkatalog.
-     * Oimplementerad tills vidare.
+     * Läser priser från det binära prislagret, utan någon JSON-tolkning.
+     * @return En lista av Elpris-objekt om dagen finns och filen är hel, annars null.
      */
-    private void saveToDiskCache(String cacheKey, String jsonData) {
-        // Framtida implementation:
-        // Path cacheDir = Paths.get(System.getProperty("user.home"), ".elpriser_cache");
-        // Files.createDirectories(cacheDir);
-        // Path cacheFile = cacheDir.resolve(cacheKey + ".json");
-        // Files.writeString(cacheFile, jsonData);
-        // System.out.println("Simulerar: Sparar " + cacheKey + " till disk.");
+    private List<Elpris> loadFromDiskCache(LocalDate datum, Prisklass prisklass) {
+        if (diskCache == null) {
+            return null;
+        }
+        try {
+            return diskCache.load(datum, prisklass);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Kunde inte läsa {0} från disk-cache: {1}",
+                    getCacheKey(datum, prisklass), e.getMessage());
+            return null;
+        }
     }
 
     /**
-     * STUB: Läs data från en fil i en dold katalog i användarens hemkatalog.
-     * Oimplementerad tills vidare.
-     * @return En lista av Elpris-objekt om filen finns och kan läsas, annars null.
+     * Går igenom en dag direkt ur prislagret. Mock-svar i tester går före disk-cachen.
+     * @return Antal besökta rader, 0 om dagen saknas eller inte kunde läsas.
      */
-    private List<Elpris> loadFromDiskCache(String cacheKey) {
-        // Framtida implementation:
-        // Path cacheFile = Paths.get(System.getProperty("user.home"), ".elpriser_cache", cacheKey + ".json");
-        // if (Files.exists(cacheFile)) {
-        //     String jsonData = Files.readString(cacheFile);
-        //     return parseSimpleJson(jsonData);
-        // }
-        // System.out.println("Simulerar: Försöker läsa " + cacheKey + " från disk. Fanns ej.");
-        return null;
+    private long scanDiskCache(LocalDate datum, Prisklass prisklass, PriceStore.RowVisitor visitor) {
+        if (diskCache == null || mockActive()) {
+            return 0;
+        }
+        try {
+            return diskCache.scan(prisklass, datum, datum, visitor);
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Kunde inte läsa {0} från disk-cache: {1}",
+                    getCacheKey(datum, prisklass), e.getMessage());
+            return 0;
+        }
     }
 
 
@@ -0,0 +1,37 @@
+package com.example.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-händelse för ett nätverksanrop, från förfrågan till mottaget svar. Tiden omfattar
+ * DNS, TLS och överföring, men inte tolkningen som har en egen {@link ParseEvent}.
+ */
+@Name("com.example.Fetch")
+@Label("Elpris-hämtning")
+@Category({"Elpriser", "Hämtning"})
+@Description("Ett HTTP-anrop mot elprisetjustnu.se")
+final class FetchEvent extends Event {
+
+    @Label("Prisklass")
+    String zone;
+
+    @Label("Datum")
+    String date;
+
+    @Label("Statuskod")
+    @Description("HTTP-statuskod, eller 0 om inget svar togs emot")
+    int statusCode;
+
+    @Label("Mottaget")
+    @DataAmount
+    long bytes;
+
+    @Label("Villkorlig")
+    @Description("Om förfrågan skickades med ETag eller Last-Modified")
+    boolean conditional;
+}
@@ -0,0 +1,64 @@
+package com.example.api;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ett histogram över tider i nanosekunder med ett fack per tvåpotens. Att registrera
+ * en tid är en enda atomär addition, och percentiler anges med en faktor två i noggrannhet,
+ * vilket räcker för att se om en hämtning tar mikrosekunder eller sekunder.
+ */
+public final class LatencyHistogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder sum = new LongAdder();
+
+    /** Registrerar en tid. Negativa tider räknas som noll. */
+    public void record(long nanos) {
+        long n = Math.max(0, nanos);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(n) - (n == 0 ? 0 : 1));
+        sum.add(n);
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /** Medeltiden i nanosekunder, eller 0 om inget registrerats. */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0.0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * En övre gräns för percentilen {@code q}, t.ex. 0.99, i nanosekunder.
+     * @return Övre gränsen för det fack där percentilen ligger, eller 0 om inget registrerats.
+     */
+    public long percentile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Percentilen måste ligga mellan 0 och 1");
+        }
+        long[] counts = new long[buckets.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i >= 62 ? Long.MAX_VALUE : (2L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Prisklass;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hämtar morgondagens priser i bakgrunden när de publiceras, så att de redan ligger i
+ * cachen när någon frågar efter dem. Skapas med {@link ElpriserAPI#startPrefetch(Collection)}.
+ * <p>
+ * Före starttiden väntar förhämtningen till starttiden. Därefter hämtas de prisklasser som
+ * saknas, med fördubblad väntetid mellan försöken tills alla finns. Sedan väntar den till
+ * starttiden nästa dag. Allt körs i en enda virtuell tråd.
+ */
+public final class NextDayPrefetcher implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(NextDayPrefetcher.class.getName());
+
+    /** Tidszonen som publiceringstiden anges i. */
+    static final ZoneId PUBLICERING = ZoneId.of("Europe/Stockholm");
+
+    private final ElpriserAPI api;
+    private final Set<Prisklass> prisklasser;
+    private final Clock clock;
+    private final LocalTime startAt;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final ScheduledExecutorService executor;
+    private Duration backoff;
+    private volatile boolean closed;
+
+    NextDayPrefetcher(ElpriserAPI api, Collection<Prisklass> prisklasser, Clock clock,
+                      LocalTime startAt, Duration initialBackoff, Duration maxBackoff) {
+        this.api = api;
+        this.prisklasser = prisklasser.isEmpty() ? EnumSet.noneOf(Prisklass.class) : EnumSet.copyOf(prisklasser);
+        this.clock = clock;
+        this.startAt = startAt;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.backoff = initialBackoff;
+        this.executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("elpris-prefetch").factory());
+    }
+
+    void start() {
+        executor.execute(this::runAndReschedule);
+    }
+
+    private void runAndReschedule() {
+        if (closed) {
+            return;
+        }
+        Duration delay;
+        try {
+            delay = poll();
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Förhämtning av morgondagens priser misslyckades: {0}", e.getMessage());
+            delay = nextBackoff();
+        }
+        if (!closed) {
+            executor.schedule(this::runAndReschedule, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gör ett försök att förhämta morgondagens priser.
+     * @return Tiden till nästa försök.
+     */
+    Duration poll() {
+        ZonedDateTime nu = ZonedDateTime.now(clock).withZoneSameInstant(PUBLICERING);
+        ZonedDateTime start = nu.toLocalDate().atTime(startAt).atZone(PUBLICERING);
+        if (nu.isBefore(start)) {
+            backoff = initialBackoff;
+            return Duration.between(nu, start);
+        }
+
+        LocalDate imorgon = nu.toLocalDate().plusDays(1);
+        boolean klart = true;
+        for (Prisklass prisklass : prisklasser) {
+            klart &= api.prefetch(imorgon, prisklass);
+        }
+        if (!klart) {
+            return nextBackoff();
+        }
+        backoff = initialBackoff;
+        return Duration.between(nu, start.plusDays(1));
+    }
+
+    private Duration nextBackoff() {
+        Duration delay = backoff;
+        Duration dubbel = backoff.multipliedBy(2);
+        backoff = dubbel.compareTo(maxBackoff) > 0 ? maxBackoff : dubbel;
+        return delay;
+    }
+
+    /** Stoppar förhämtningen. En pågående hämtning avbryts. */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+    }
+}
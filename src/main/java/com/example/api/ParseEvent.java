@@ -0,0 +1,34 @@
+package com.example.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-händelse för tolkningen av ett JSON-svar.
+ */
+@Name("com.example.Parse")
+@Label("Elpris-tolkning")
+@Category({"Elpriser", "Tolkning"})
+@Description("Tolkning av ett JSON-svar till priser")
+final class ParseEvent extends Event {
+
+    @Label("Prisklass")
+    String zone;
+
+    @Label("Datum")
+    String date;
+
+    @Label("Storlek")
+    @DataAmount
+    long bytes;
+
+    @Label("Perioder")
+    int slots;
+
+    @Label("Lyckades")
+    boolean success;
+}
@@ -0,0 +1,176 @@
+package com.example.api;
+
+import java.util.Arrays;
+
+/**
+ * Ett oföränderligt index över en prisserie, tänkt för dagar som frågas om många gånger,
+ * t.ex. i serverläget. Indexet byggs en gång i O(n log n) och svarar sedan på:
+ * <ul>
+ *   <li>sorterad ordning och rang för en period i O(1)</li>
+ *   <li>summa och medel för godtyckligt intervall i O(1) via prefixsummor</li>
+ *   <li>varians för godtyckligt intervall i O(längd), med två genomgångar så att resultatet
+ *       inte förlorar precision</li>
+ *   <li>lägsta och högsta pris med index i O(1)</li>
+ *   <li>antal perioder under ett givet pris i O(log n)</li>
+ *   <li>billigaste sammanhängande fönster i O(n) första gången per längd, sedan O(1)</li>
+ * </ul>
+ * Index avser perioder i serien, 0 är första perioden.
+ *
+ * @see ElpriserAPI#getPriceIndex
+ */
+public final class PriceIndex {
+
+    private final PriceSeries series;
+    // Periodernas index stigande efter pris, lika priser i tidsordning
+    private final int[] sorted;
+    // rank[i] är period i:s plats i sorted
+    private final int[] rank;
+    private final double[] sortedPrices;
+    // prefix[i] är summan av de i första priserna
+    private final double[] prefix;
+    private final int argMax;
+    // Billigaste fönstrets start per längd, -1 tills det räknats fram. Kapplöpningar är ofarliga,
+    // alla trådar räknar fram samma värde och int skrivs odelbart.
+    private final int[] cheapestStart;
+
+    private PriceIndex(PriceSeries series) {
+        int n = series.size();
+        this.series = series;
+        this.sorted = series.sortedIndices();
+        this.rank = new int[n];
+        this.sortedPrices = new double[n];
+        for (int k = 0; k < n; k++) {
+            rank[sorted[k]] = k;
+            sortedPrices[k] = series.price(sorted[k]);
+        }
+        this.prefix = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            prefix[i + 1] = prefix[i] + series.price(i);
+        }
+        // Sorteringen är stabil, så det tidigaste högsta priset är det första i den sista gruppen lika priser
+        int k = n - 1;
+        while (k > 0 && sortedPrices[k - 1] == sortedPrices[n - 1]) {
+            k--;
+        }
+        this.argMax = n == 0 ? -1 : sorted[k];
+        this.cheapestStart = new int[n + 1];
+        Arrays.fill(cheapestStart, -1);
+    }
+
+    /** Bygger ett index över serien. */
+    public static PriceIndex of(PriceSeries series) {
+        return new PriceIndex(series);
+    }
+
+    public PriceSeries series() {
+        return series;
+    }
+
+    public int size() {
+        return sorted.length;
+    }
+
+    /** Perioden på plats {@code k} i prisordning, 0 är den billigaste. */
+    public int sortedIndex(int k) {
+        return sorted[k];
+    }
+
+    /** Platsen i prisordning för period {@code i}, 0 är den billigaste. */
+    public int rank(int i) {
+        return rank[i];
+    }
+
+    /** Antal perioder med pris strikt lägre än {@code price}. */
+    public int countBelow(double price) {
+        int lo = 0;
+        int hi = sortedPrices.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedPrices[mid] < price) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Index för lägsta pris, det tidigaste vid lika, eller -1 för en tom serie. */
+    public int argMin() {
+        return sorted.length == 0 ? -1 : sorted[0];
+    }
+
+    /** Index för högsta pris, det tidigaste vid lika, eller -1 för en tom serie. */
+    public int argMax() {
+        return argMax;
+    }
+
+    public double min() {
+        return sortedPrices[0];
+    }
+
+    public double max() {
+        return sortedPrices[sortedPrices.length - 1];
+    }
+
+    /** Summan av priserna i {@code [from, to)}. */
+    public double sum(int from, int to) {
+        checkRange(from, to);
+        return prefix[to] - prefix[from];
+    }
+
+    /** Medelpriset i {@code [from, to)}, oviktat. */
+    public double average(int from, int to) {
+        return sum(from, to) / (to - from);
+    }
+
+    /**
+     * Populationsvariansen för priserna i {@code [from, to)}. Avvikelserna summeras i en andra
+     * genomgång, precis som i PriceStatistics, i stället för att räknas fram ur kvadratsummor
+     * där nästan lika stora tal tar ut varandra.
+     */
+    public double variance(int from, int to) {
+        double mean = average(from, to);
+        double sum = 0.0;
+        for (int i = from; i < to; i++) {
+            double d = series.price(i) - mean;
+            sum += d * d;
+        }
+        return sum / (to - from);
+    }
+
+    /**
+     * Start för det billigaste sammanhängande fönstret med {@code length} perioder, det
+     * tidigaste vid lika summa.
+     * @return Startindex, eller -1 om serien är kortare än fönstret.
+     */
+    public int cheapestWindow(int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Längden måste vara positiv");
+        }
+        int n = sorted.length;
+        if (length > n) {
+            return -1;
+        }
+        int start = cheapestStart[length];
+        if (start < 0) {
+            start = 0;
+            double best = prefix[length];
+            for (int i = 1; i + length <= n; i++) {
+                double sum = prefix[i + length] - prefix[i];
+                if (sum < best) {
+                    best = sum;
+                    start = i;
+                }
+            }
+            cheapestStart[length] = start;
+        }
+        return start;
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > sorted.length || from >= to) {
+            throw new IndexOutOfBoundsException("Ogiltigt intervall [" + from + ", " + to + ")");
+        }
+    }
+}
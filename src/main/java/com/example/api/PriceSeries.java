@@ -0,0 +1,434 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * En tidsserie av elpriser lagrad i primitiva arrayer i stället för som en lista av {@link Elpris}.
+ * <p>
+ * Priserna (SEK/kWh) ligger i en {@code double[]} och starttiderna som epoksekunder i en
+ * {@code long[]}, så att statistik, sortering och fönstersökning kan köras utan boxning.
+ * Serien är oföränderlig. {@link #slice(int, int)} delar arrayerna med originalet.
+ * {@link #concat(PriceSeries)} delar dem bara när båda är intilliggande delar av samma serie.
+ * Dagar ur cachen har egna arrayer, så idag och imorgon kopieras till nya arrayer när de slås ihop.
+ */
+public final class PriceSeries {
+
+    private static final PriceSeries EMPTY = new PriceSeries(new double[0], new long[0], new long[0], new int[0], 0, 0);
+
+    private final double[] prices;
+    private final long[] starts;
+    private final long[] ends;
+    // UTC-offset i minuter för start (övre 16 bitar) och slut (nedre 16 bitar)
+    private final int[] offsets;
+    private final int from;
+    private final int size;
+
+    private PriceSeries(double[] prices, long[] starts, long[] ends, int[] offsets, int from, int size) {
+        this.prices = prices;
+        this.starts = starts;
+        this.ends = ends;
+        this.offsets = offsets;
+        this.from = from;
+        this.size = size;
+    }
+
+    /**
+     * En tom serie.
+     */
+    public static PriceSeries empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Skapar en serie från en lista av priser, i listans ordning.
+     */
+    public static PriceSeries of(List<Elpris> priser) {
+        Builder builder = new Builder(priser.size());
+        for (Elpris pris : priser) {
+            builder.add(pris);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Skapar en serie med lika långa perioder i följd, t.ex. en prognos. UTC-offset för varje
+     * period tas från tidszonens regler, så serien kan sträcka sig över en sommartidsomställning.
+     *
+     * @param firstStart Första periodens start i epoksekunder.
+     * @param slotSeconds Periodlängden i sekunder.
+     * @param prices Priserna i SEK/kWh, en per period.
+     * @param zone Tidszonen som perioderna visas i.
+     */
+    public static PriceSeries of(long firstStart, long slotSeconds, double[] prices, ZoneId zone) {
+        if (slotSeconds <= 0) {
+            throw new IllegalArgumentException("Periodlängden måste vara positiv");
+        }
+        ZoneRules rules = zone.getRules();
+        Builder builder = new Builder(prices.length);
+        for (int i = 0; i < prices.length; i++) {
+            long start = firstStart + i * slotSeconds;
+            long end = start + slotSeconds;
+            builder.add(prices[i], start, rules.getOffset(Instant.ofEpochSecond(start)).getTotalSeconds(),
+                    end, rules.getOffset(Instant.ofEpochSecond(end)).getTotalSeconds());
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Pris i SEK/kWh för period {@code i}. */
+    public double price(int i) {
+        return prices[index(i)];
+    }
+
+    /** Periodens starttid i epoksekunder. */
+    public long startEpochSecond(int i) {
+        return starts[index(i)];
+    }
+
+    /** Periodens sluttid i epoksekunder. */
+    public long endEpochSecond(int i) {
+        return ends[index(i)];
+    }
+
+    /** Periodens längd i sekunder. */
+    public long lengthSeconds(int i) {
+        int k = index(i);
+        return ends[k] - starts[k];
+    }
+
+    /** Starttidens UTC-offset i sekunder, t.ex. 7200 för svensk sommartid. */
+    public int startOffsetSeconds(int i) {
+        return (offsets[index(i)] >> 16) * 60;
+    }
+
+    /** Starttiden med sin ursprungliga UTC-offset. Skapar ett nytt objekt, tänkt för utskrift. */
+    public ZonedDateTime timeStart(int i) {
+        int k = index(i);
+        return zoned(starts[k], (offsets[k] >> 16) * 60);
+    }
+
+    /** Sluttiden med sin ursprungliga UTC-offset. Skapar ett nytt objekt, tänkt för utskrift. */
+    public ZonedDateTime timeEnd(int i) {
+        int k = index(i);
+        return zoned(ends[k], (short) offsets[k] * 60);
+    }
+
+    /**
+     * Kopierar priserna till en ny array.
+     */
+    public double[] toPriceArray() {
+        return Arrays.copyOfRange(prices, from, from + size);
+    }
+
+    /**
+     * Kopierar priserna till {@code dst} med start på {@code dstPos}.
+     */
+    public void copyPrices(double[] dst, int dstPos) {
+        System.arraycopy(prices, from, dst, dstPos, size);
+    }
+
+    /**
+     * Delserie för perioderna {@code [fromIndex, toIndex)}. Delar arrayer med denna serie.
+     */
+    public PriceSeries slice(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("Ogiltigt intervall [" + fromIndex + ", " + toIndex + ") för storlek " + size);
+        }
+        if (fromIndex == 0 && toIndex == size) {
+            return this;
+        }
+        return new PriceSeries(prices, starts, ends, offsets, from + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * Slår ihop denna serie med en efterföljande, t.ex. dagens och morgondagens priser.
+     * Om båda är intilliggande delar av samma arrayer skapas ingen kopia, annars kopieras
+     * båda serierna en gång till nya arrayer.
+     */
+    public PriceSeries concat(PriceSeries next) {
+        if (next.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            return next;
+        }
+        if (next.prices == prices && next.from == from + size) {
+            return new PriceSeries(prices, starts, ends, offsets, from, size + next.size);
+        }
+        int n = size + next.size;
+        double[] p = Arrays.copyOfRange(prices, from, from + n);
+        long[] s = Arrays.copyOfRange(starts, from, from + n);
+        long[] e = Arrays.copyOfRange(ends, from, from + n);
+        int[] o = Arrays.copyOfRange(offsets, from, from + n);
+        System.arraycopy(next.prices, next.from, p, size, next.size);
+        System.arraycopy(next.starts, next.from, s, size, next.size);
+        System.arraycopy(next.ends, next.from, e, size, next.size);
+        System.arraycopy(next.offsets, next.from, o, size, next.size);
+        return new PriceSeries(p, s, e, o, 0, n);
+    }
+
+    /**
+     * Periodlängden i sekunder om alla perioder är lika långa, t.ex. 900 för kvartspriser,
+     * annars -1. En tom serie ger 0.
+     */
+    public long resolutionSeconds() {
+        if (size == 0) {
+            return 0;
+        }
+        long length = ends[from] - starts[from];
+        for (int k = from + 1; k < from + size; k++) {
+            if (ends[k] - starts[k] != length) {
+                return -1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Tidsviktat medelpris i SEK/kWh, där varje period väger efter sin längd.
+     * För en serie med lika långa perioder är det samma som det vanliga medelvärdet.
+     */
+    public double averagePrice() {
+        double weighted = 0.0;
+        long total = 0;
+        for (int k = from; k < from + size; k++) {
+            long length = ends[k] - starts[k];
+            weighted += prices[k] * length;
+            total += length;
+        }
+        return total == 0 ? 0.0 : weighted / total;
+    }
+
+    /**
+     * Tidsviktad varians i (SEK/kWh)², med samma vikter som {@link #averagePrice()}.
+     * Räknas i två pass kring medelpriset, så att den inte tappar precision för höga priser.
+     */
+    public double priceVariance() {
+        double mean = averagePrice();
+        double weighted = 0.0;
+        long total = 0;
+        for (int k = from; k < from + size; k++) {
+            long length = ends[k] - starts[k];
+            double d = prices[k] - mean;
+            weighted += d * d * length;
+            total += length;
+        }
+        return total == 0 ? 0.0 : weighted / total;
+    }
+
+    /**
+     * Slår ihop perioderna till längre perioder, t.ex. kvartspriser till timpriser, i en
+     * enda genomgång. Perioderna delas in efter lokal tid, så en timme börjar alltid på
+     * hel timme även runt sommartidsomställningen. Priset för en sammanslagen period är
+     * det tidsviktade medelvärdet. Perioder som redan är minst lika långa lämnas orörda.
+     *
+     * @param bucket Den nya periodlängden. Ett dygn måste vara jämnt delbart med den.
+     * @return En ny serie, eller denna om ingen period behövde slås ihop.
+     */
+    public PriceSeries resample(Duration bucket) {
+        long b = bucket.getSeconds();
+        if (b <= 0 || 86_400 % b != 0 || bucket.getNano() != 0) {
+            throw new IllegalArgumentException("Periodlängden måste dela ett dygn jämnt: " + bucket);
+        }
+        Builder out = new Builder(size);
+        int k = from;
+        int end = from + size;
+        while (k < end) {
+            int startOffset = (offsets[k] >> 16) * 60;
+            long bucketStart = Math.floorDiv(starts[k] + startOffset, b) * b - startOffset;
+            long bucketEnd = bucketStart + b;
+            int first = k;
+            double weighted = 0.0;
+            long covered = 0;
+            do {
+                long length = ends[k] - starts[k];
+                weighted += prices[k] * length;
+                covered += length;
+                k++;
+            } while (k < end && starts[k] >= bucketStart && starts[k] < bucketEnd && ends[k - 1] <= bucketEnd);
+            int last = k - 1;
+            out.add(weighted / covered, starts[first], startOffset, ends[last], (short) offsets[last] * 60);
+        }
+        return out.size == size ? this : out.build();
+    }
+
+    /**
+     * Serien med lika långa perioder. Om den blandar upplösningar, t.ex. timpriser idag och
+     * kvartspriser imorgon, slås de kortare perioderna ihop till den längsta periodlängden.
+     */
+    public PriceSeries uniform() {
+        if (resolutionSeconds() >= 0) {
+            return this;
+        }
+        long longest = 0;
+        for (int k = from; k < from + size; k++) {
+            longest = Math.max(longest, ends[k] - starts[k]);
+        }
+        return resample(Duration.ofSeconds(longest));
+    }
+
+    /**
+     * Periodernas index sorterade stigande efter pris. Lika priser behåller tidsordningen.
+     */
+    public int[] sortedIndices() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[size], 0, size);
+        return order;
+    }
+
+    /**
+     * Index för den period som innehåller tidpunkten, eller -1 om ingen gör det.
+     */
+    public int indexAt(long epochSecond) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int k = from + mid;
+            if (ends[k] <= epochSecond) {
+                lo = mid + 1;
+            } else if (starts[k] > epochSecond) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " utanför serie av storlek " + size);
+        }
+        return from + i;
+    }
+
+    // Stabil mergesort på index, så att lika priser behåller sin ordning utan boxning
+    private void mergeSort(int[] a, int[] tmp, int lo, int hi) {
+        if (hi - lo < 16) {
+            for (int i = lo + 1; i < hi; i++) {
+                int v = a[i];
+                double pv = prices[from + v];
+                int j = i - 1;
+                while (j >= lo && prices[from + a[j]] > pv) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(a, tmp, lo, mid);
+        mergeSort(a, tmp, mid, hi);
+        if (prices[from + a[mid - 1]] <= prices[from + a[mid]]) {
+            return;
+        }
+        System.arraycopy(a, lo, tmp, lo, hi - lo);
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (j >= hi || (i < mid && prices[from + tmp[i]] <= prices[from + tmp[j]])) {
+                a[k] = tmp[i++];
+            } else {
+                a[k] = tmp[j++];
+            }
+        }
+    }
+
+    private static ZonedDateTime zoned(long epochSecond, int offsetSeconds) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+
+    @Override
+    public String toString() {
+        return "PriceSeries[size=" + size + "]";
+    }
+
+    /**
+     * Bygger en serie period för period. Används direkt som mottagare av den strömmande
+     * JSON-tolken, så att inga {@link Elpris}-objekt behöver skapas på vägen.
+     */
+    static final class Builder implements ElprisJsonParser.Sink {
+        private double[] prices;
+        private long[] starts;
+        private long[] ends;
+        private int[] offsets;
+        private int size;
+
+        Builder(int capacity) {
+            int c = Math.max(capacity, 4);
+            prices = new double[c];
+            starts = new long[c];
+            ends = new long[c];
+            offsets = new int[c];
+        }
+
+        Builder add(Elpris pris) {
+            add(pris.sekPerKWh(), pris.timeStart().toEpochSecond(), pris.timeStart().getOffset().getTotalSeconds(),
+                    pris.timeEnd().toEpochSecond(), pris.timeEnd().getOffset().getTotalSeconds());
+            return this;
+        }
+
+        Builder add(double sek, long start, int startOffsetSeconds, long end, int endOffsetSeconds) {
+            if (size == prices.length) {
+                int c = size * 2;
+                prices = Arrays.copyOf(prices, c);
+                starts = Arrays.copyOf(starts, c);
+                ends = Arrays.copyOf(ends, c);
+                offsets = Arrays.copyOf(offsets, c);
+            }
+            prices[size] = sek;
+            starts[size] = start;
+            ends[size] = end;
+            offsets[size] = ((startOffsetSeconds / 60) << 16) | ((endOffsetSeconds / 60) & 0xFFFF);
+            size++;
+            return this;
+        }
+
+        /**
+         * Lägger till alla perioder i en befintlig serie.
+         */
+        Builder addAll(PriceSeries series) {
+            for (int i = 0; i < series.size; i++) {
+                int k = series.from + i;
+                add(series.prices[k], series.starts[k], (series.offsets[k] >> 16) * 60,
+                        series.ends[k], (short) series.offsets[k] * 60);
+            }
+            return this;
+        }
+
+        @Override
+        public void accept(double sek, double eur, double exr,
+                           long startEpochSecond, int startOffsetSeconds,
+                           long endEpochSecond, int endOffsetSeconds) {
+            add(sek, startEpochSecond, startOffsetSeconds, endEpochSecond, endOffsetSeconds);
+        }
+
+        PriceSeries build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new PriceSeries(prices, starts, ends, offsets, 0, size);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+import com.example.api.ElpriserAPI.Prisklass;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ögonblicksbild av prislagret som kan flyttas till en miljö utan nätverk, t.ex. en testmiljö.
+ * En bild innehåller flera dagar och prisklasser i en gzip-komprimerad fil (big-endian):
+ * <pre>
+ *   rubrik   magic (int), version (short)
+ *   dag      prisklass (byte), epokdag (int), antal rader n (int), sedan n rader med
+ *            start (long), längd (int), offset (int, packad som i {@link PriceStore}), sek, eur, exr (double)
+ *   slut     -1 (byte), antal dagar (int)
+ * </pre>
+ * Gzip-formatets checksumma skyddar innehållet och antalet dagar i slutet avslöjar en avkortad fil.
+ */
+final class PriceSnapshot {
+
+    private static final int MAGIC = 0x454C5053; // "ELPS"
+    private static final short VERSION = 1;
+    private static final int END = -1;
+
+    private PriceSnapshot() {
+    }
+
+    /** Tar emot en dag i taget när en ögonblicksbild läses. */
+    @FunctionalInterface
+    interface DayVisitor {
+        void day(LocalDate datum, Prisklass prisklass, List<Elpris> priser) throws IOException;
+    }
+
+    /**
+     * Skriver en ögonblicksbild. Filen är bara giltig när skrivaren stängts utan fel.
+     */
+    static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private int days;
+
+        Writer(Path file) throws IOException {
+            OutputStream fil = Files.newOutputStream(file);
+            DataOutputStream data = null;
+            try {
+                data = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(fil, 1 << 16), 1 << 16));
+                data.writeInt(MAGIC);
+                data.writeShort(VERSION);
+            } catch (IOException | RuntimeException e) {
+                // Ingen skrivare lämnas tillbaka, så strömmarna och den påbörjade filen städas här
+                discard(data, fil, file, e);
+                throw e;
+            }
+            this.out = data;
+        }
+
+        private static void discard(DataOutputStream data, OutputStream fil, Path file, Exception e) {
+            for (Closeable ström : new Closeable[]{data, fil}) {
+                try {
+                    if (ström != null) {
+                        ström.close();
+                    }
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+        }
+
+        void add(LocalDate datum, Prisklass prisklass, List<Elpris> priser) throws IOException {
+            out.writeByte(prisklass.ordinal());
+            out.writeInt((int) datum.toEpochDay());
+            out.writeInt(priser.size());
+            for (Elpris pris : priser) {
+                long start = pris.timeStart().toEpochSecond();
+                int startOffsetMinutes = pris.timeStart().getOffset().getTotalSeconds() / 60;
+                int endOffsetMinutes = pris.timeEnd().getOffset().getTotalSeconds() / 60;
+                out.writeLong(start);
+                out.writeInt((int) (pris.timeEnd().toEpochSecond() - start));
+                out.writeInt((startOffsetMinutes << 16) | (endOffsetMinutes & 0xFFFF));
+                out.writeDouble(pris.sekPerKWh());
+                out.writeDouble(pris.eurPerKWh());
+                out.writeDouble(pris.exr());
+            }
+            days++;
+        }
+
+        /** Antal dagar som skrivits hittills. */
+        int days() {
+            return days;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                out.writeByte(END);
+                out.writeInt(days);
+            }
+        }
+    }
+
+    /**
+     * Läser en ögonblicksbild och lämnar dagarna till {@code visitor} i den ordning de skrevs.
+     * @return Antal dagar i bilden.
+     * @throws IOException om filen inte är en ögonblicksbild, är av en okänd version eller är trasig.
+     */
+    static int read(Path file, DayVisitor visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 1 << 16), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Inte en ögonblicksbild av elpriser: " + file);
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Okänd version " + version + " av ögonblicksbild: " + file);
+            }
+            Prisklass[] prisklasser = Prisklass.values();
+            int days = 0;
+            for (int zone = in.readByte(); zone != END; zone = in.readByte()) {
+                if (zone < 0 || zone >= prisklasser.length) {
+                    throw new IOException("Ogiltig prisklass " + zone + " i ögonblicksbild: " + file);
+                }
+                LocalDate datum = LocalDate.ofEpochDay(in.readInt());
+                int n = in.readInt();
+                if (n < 0) {
+                    throw new IOException("Ogiltigt antal rader " + n + " i ögonblicksbild: " + file);
+                }
+                List<Elpris> priser = new ArrayList<>(Math.min(n, 1 << 10));
+                for (int i = 0; i < n; i++) {
+                    long start = in.readLong();
+                    int length = in.readInt();
+                    int offsets = in.readInt();
+                    double sek = in.readDouble();
+                    double eur = in.readDouble();
+                    double exr = in.readDouble();
+                    priser.add(new Elpris(sek, eur, exr,
+                            zoned(start, (offsets >> 16) * 60),
+                            zoned(start + length, (short) offsets * 60)));
+                }
+                visitor.day(datum, prisklasser[zone], priser);
+                days++;
+            }
+            int expected = in.readInt();
+            if (expected != days) {
+                throw new IOException("Ögonblicksbilden är ofullständig, " + days + " av " + expected + " dagar: " + file);
+            }
+            return days;
+        }
+    }
+
+    private static ZonedDateTime zoned(long epochSecond, int offsetSeconds) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+}
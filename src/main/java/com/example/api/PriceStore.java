@@ -0,0 +1,366 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+import com.example.api.ElpriserAPI.Prisklass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Binärt, kolumnorienterat prislager på disk. Varje prisklass och månad lagras i en egen fil,
+ * t.ex. "SE3_2025-09.elpb", så att historik kan läsas utan någon tolkning av text.
+ * <p>
+ * Filformat (big-endian):
+ * <pre>
+ *   rubrik   magic (int), version (short), reserverat (short), antal rader n (int), crc32 (int)
+ *   start    long[n]   starttid i epoksekunder, sorterat stigande
+ *   längd    int[n]    periodens längd i sekunder
+ *   offset   int[n]    UTC-offset i minuter för start (övre 16 bitar) och slut (nedre 16 bitar)
+ *   sek      double[n]
+ *   eur      double[n]
+ *   exr      double[n]
+ * </pre>
+ * Checksumman täcker allt efter rubriken. Filerna läses via minnesmappning och skrivs
+ * atomiskt via en temporär fil. Korrupta filer tas bort vid läsning.
+ * <p>
+ * Flera processer kan dela katalogen, t.ex. servern och en körning från kommandoraden. En
+ * skrivning läser månadsfilen, lägger till sina dagar och ersätter filen, så den håller ett
+ * fillås på "elpb.lock" i katalogen hela vägen, annars kan två processer tappa varandras dagar.
+ */
+final class PriceStore {
+
+    private static final System.Logger LOG = System.getLogger(PriceStore.class.getName());
+
+    private static final int MAGIC = 0x454C5042; // "ELPB"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ROW_BYTES = Long.BYTES + Integer.BYTES * 2 + Double.BYTES * 3;
+    private static final String SUFFIX = ".elpb";
+    private static final String LOCK_FILE = "elpb.lock";
+
+    // Fillås gäller hela JVM:en, så lager i samma process som delar katalog turas om här först
+    private static final Map<Path, Object> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Tar emot en rad i taget vid genomläsning av lagret, utan att några objekt skapas.
+     */
+    @FunctionalInterface
+    interface RowVisitor {
+        void visit(long startEpochSecond, int lengthSeconds, int startOffsetSeconds, double sek, double eur, double exr);
+    }
+
+    private final Path directory;
+
+    // Redan verifierade minnesmappningar, så att samma månadsfil inte kontrolleras om vid varje anrop
+    private final Map<Path, MonthFile> mapped = new ConcurrentHashMap<>();
+
+    PriceStore(Path directory) {
+        this.directory = directory;
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Läser priserna för en dag.
+     * @return Priserna i tidsordning, eller null om dagen inte finns i lagret.
+     */
+    List<Elpris> load(LocalDate datum, Prisklass prisklass) throws IOException {
+        MonthFile month = open(prisklass, YearMonth.from(datum));
+        if (month == null) {
+            return null;
+        }
+        long epochDay = datum.toEpochDay();
+        int from = month.firstRowOfDay(epochDay);
+        int to = from;
+        while (to < month.rows && month.epochDay(to) == epochDay) {
+            to++;
+        }
+        if (from == to) {
+            return null;
+        }
+        List<Elpris> priser = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            priser.add(month.elpris(row));
+        }
+        return priser;
+    }
+
+    /**
+     * Går igenom alla lagrade rader för en prisklass mellan två datum (inklusive) i tidsordning.
+     * @return Antal besökta rader.
+     */
+    long scan(Prisklass prisklass, LocalDate from, LocalDate to, RowVisitor visitor) throws IOException {
+        long firstDay = from.toEpochDay();
+        long lastDay = to.toEpochDay();
+        long visited = 0;
+        for (YearMonth ym = YearMonth.from(from); !ym.isAfter(YearMonth.from(to)); ym = ym.plusMonths(1)) {
+            MonthFile month = open(prisklass, ym);
+            if (month == null) {
+                continue;
+            }
+            for (int row = month.firstRowOfDay(firstDay); row < month.rows; row++) {
+                if (month.epochDay(row) > lastDay) {
+                    break;
+                }
+                visitor.visit(month.start(row), month.length(row), month.startOffset(row),
+                        month.sek(row), month.eur(row), month.exr(row));
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Sparar priserna för en dag i rätt månadsfil. Befintliga rader för samma dag ersätts.
+     */
+    synchronized void save(LocalDate datum, Prisklass prisklass, List<Elpris> priser) throws IOException {
+        saveAll(prisklass, Map.of(datum, priser));
+    }
+
+    /**
+     * Sparar flera dagar med en skrivning per berörd månadsfil, t.ex. vid import av en
+     * ögonblicksbild. Befintliga rader för samma dagar ersätts.
+     */
+    synchronized void saveAll(Prisklass prisklass, Map<LocalDate, List<Elpris>> dagar) throws IOException {
+        Map<YearMonth, List<LocalDate>> perMånad = new TreeMap<>();
+        for (LocalDate datum : dagar.keySet()) {
+            perMånad.computeIfAbsent(YearMonth.from(datum), ym -> new ArrayList<>()).add(datum);
+        }
+        Files.createDirectories(directory);
+        Object processLock = PROCESS_LOCKS.computeIfAbsent(directory.toAbsolutePath().normalize(), d -> new Object());
+        synchronized (processLock) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                merge(prisklass, dagar, perMånad);
+            }
+        }
+    }
+
+    private void merge(Prisklass prisklass, Map<LocalDate, List<Elpris>> dagar,
+                       Map<YearMonth, List<LocalDate>> perMånad) throws IOException {
+        for (Map.Entry<YearMonth, List<LocalDate>> entry : perMånad.entrySet()) {
+            Set<Long> ersatta = new HashSet<>();
+            List<Elpris> rows = new ArrayList<>();
+            for (LocalDate datum : entry.getValue()) {
+                ersatta.add(datum.toEpochDay());
+                rows.addAll(dagar.get(datum));
+            }
+            // En annan process kan ha ersatt filen, så den verifieras om under låset
+            mapped.remove(file(prisklass, entry.getKey()));
+            MonthFile month = open(prisklass, entry.getKey());
+            if (month != null) {
+                for (int row = 0; row < month.rows; row++) {
+                    if (!ersatta.contains(month.epochDay(row))) {
+                        rows.add(month.elpris(row));
+                    }
+                }
+            }
+            rows.sort(Comparator.comparing(Elpris::timeStart));
+            write(file(prisklass, entry.getKey()), rows);
+        }
+    }
+
+    private Path file(Prisklass prisklass, YearMonth ym) {
+        return directory.resolve(prisklass.name() + "_" + ym + SUFFIX);
+    }
+
+    private MonthFile open(Prisklass prisklass, YearMonth ym) throws IOException {
+        Path file = file(prisklass, ym);
+        if (!Files.isRegularFile(file)) {
+            mapped.remove(file);
+            return null;
+        }
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        MonthFile cached = mapped.get(file);
+        if (cached != null && cached.size == size && cached.modified == modified) {
+            return cached;
+        }
+        MonthFile month = map(file, size, modified);
+        if (month == null) {
+            LOG.log(System.Logger.Level.WARNING, "Korrupt prisfil {0}, tas bort.", file.getFileName());
+            mapped.remove(file);
+            Files.deleteIfExists(file);
+            return null;
+        }
+        mapped.put(file, month);
+        return month;
+    }
+
+    private static MonthFile map(Path file, long size, long modified) throws IOException {
+        if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            return null;
+        }
+        int rows = buffer.getInt(8);
+        if (rows < 0 || HEADER_BYTES + (long) rows * ROW_BYTES != size) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(HEADER_BYTES, (int) size - HEADER_BYTES));
+        if ((int) crc.getValue() != buffer.getInt(12)) {
+            return null;
+        }
+        return new MonthFile(buffer, rows, size, modified);
+    }
+
+    private void write(Path target, List<Elpris> rows) throws IOException {
+        int n = rows.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + n * ROW_BYTES);
+        int startCol = HEADER_BYTES;
+        int lengthCol = startCol + n * Long.BYTES;
+        int offsetCol = lengthCol + n * Integer.BYTES;
+        int sekCol = offsetCol + n * Integer.BYTES;
+        int eurCol = sekCol + n * Double.BYTES;
+        int exrCol = eurCol + n * Double.BYTES;
+        for (int i = 0; i < n; i++) {
+            Elpris pris = rows.get(i);
+            long start = pris.timeStart().toEpochSecond();
+            int startOffsetMinutes = pris.timeStart().getOffset().getTotalSeconds() / 60;
+            int endOffsetMinutes = pris.timeEnd().getOffset().getTotalSeconds() / 60;
+            buffer.putLong(startCol + i * Long.BYTES, start);
+            buffer.putInt(lengthCol + i * Integer.BYTES, (int) (pris.timeEnd().toEpochSecond() - start));
+            buffer.putInt(offsetCol + i * Integer.BYTES, (startOffsetMinutes << 16) | (endOffsetMinutes & 0xFFFF));
+            buffer.putDouble(sekCol + i * Double.BYTES, pris.sekPerKWh());
+            buffer.putDouble(eurCol + i * Double.BYTES, pris.eurPerKWh());
+            buffer.putDouble(exrCol + i * Double.BYTES, pris.exr());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, buffer.capacity() - HEADER_BYTES);
+        buffer.putInt(0, MAGIC).putShort(4, VERSION).putShort(6, (short) 0)
+                .putInt(8, n).putInt(12, (int) crc.getValue());
+
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // Vissa filsystem saknar atomisk flytt, då får en vanlig ersättning duga
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        mapped.remove(target);
+    }
+
+    /**
+     * En verifierad, minnesmappad månadsfil. Alla läsningar är absoluta och allokerar inget.
+     */
+    private static final class MonthFile {
+        final ByteBuffer buffer;
+        final int rows;
+        final long size;
+        final long modified;
+        private final int lengthCol;
+        private final int offsetCol;
+        private final int sekCol;
+        private final int eurCol;
+        private final int exrCol;
+
+        MonthFile(ByteBuffer buffer, int rows, long size, long modified) {
+            this.buffer = buffer;
+            this.rows = rows;
+            this.size = size;
+            this.modified = modified;
+            this.lengthCol = HEADER_BYTES + rows * Long.BYTES;
+            this.offsetCol = lengthCol + rows * Integer.BYTES;
+            this.sekCol = offsetCol + rows * Integer.BYTES;
+            this.eurCol = sekCol + rows * Double.BYTES;
+            this.exrCol = eurCol + rows * Double.BYTES;
+        }
+
+        long start(int row) {
+            return buffer.getLong(HEADER_BYTES + row * Long.BYTES);
+        }
+
+        int length(int row) {
+            return buffer.getInt(lengthCol + row * Integer.BYTES);
+        }
+
+        int startOffset(int row) {
+            return (buffer.getInt(offsetCol + row * Integer.BYTES) >> 16) * 60;
+        }
+
+        int endOffset(int row) {
+            return (short) buffer.getInt(offsetCol + row * Integer.BYTES) * 60;
+        }
+
+        double sek(int row) {
+            return buffer.getDouble(sekCol + row * Double.BYTES);
+        }
+
+        double eur(int row) {
+            return buffer.getDouble(eurCol + row * Double.BYTES);
+        }
+
+        double exr(int row) {
+            return buffer.getDouble(exrCol + row * Double.BYTES);
+        }
+
+        /** Lokalt datum (enligt radens egen offset) uttryckt som epokdag. */
+        long epochDay(int row) {
+            return Math.floorDiv(start(row) + startOffset(row), 86_400L);
+        }
+
+        /** Binärsökning efter första raden vars lokala datum är minst {@code epochDay}. */
+        int firstRowOfDay(long epochDay) {
+            int lo = 0;
+            int hi = rows;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (epochDay(mid) < epochDay) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        Elpris elpris(int row) {
+            long start = start(row);
+            return new Elpris(sek(row), eur(row), exr(row),
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(start), ZoneOffset.ofTotalSeconds(startOffset(row))),
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(start + length(row)), ZoneOffset.ofTotalSeconds(endOffset(row))));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example;
+
+import com.example.api.ApiStatistics;
+import com.example.api.ElpriserAPI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.example.api.TestPrices.hourlyJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChargingBatchTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        // Billigt 02-04 båda dagarna i SE3, i SE1 är 00-02 billigast
+        ElpriserAPI.setMockResponseForDate(LocalDate.of(2025, 9, 4), hourlyJson(LocalDate.of(2025, 9, 4),
+                0.9, 0.9, 0.2, 0.2));
+        ElpriserAPI.setMockResponseForDate(LocalDate.of(2025, 9, 5), hourlyJson(LocalDate.of(2025, 9, 5),
+                0.5, 0.5, 0.1, 0.1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ElpriserAPI.clearMockResponse();
+    }
+
+    @Test
+    void csvRequests_areSolvedInInputOrder() throws Exception {
+        Path in = Files.writeString(dir.resolve("in.csv"), """
+                id,zone,earliest,deadline,duration,energy
+                bil-1,SE3,2025-09-04T18:00+02:00,2025-09-05T07:00+02:00,2h,20
+                bil-2,SE3,2025-09-04T00:00+02:00,2025-09-04T12:00+02:00,2h,10
+                # kommentar
+                bil-3;se3;2025-09-04T01:30;2025-09-04T04:00;90m;7,5
+                bil-4,SE3,2025-09-04T10:00+02:00,2025-09-04T11:00+02:00,2h,1
+                bil-5,SE9,2025-09-04T10:00+02:00,2025-09-04T11:00+02:00,2h,1
+                """);
+        Path ut = dir.resolve("ut.csv");
+
+        ChargingBatch.Summary summering = ChargingBatch.run(in, ut, new ElpriserAPI(false));
+
+        assertThat(summering.requests()).isEqualTo(5);
+        assertThat(summering.solved()).isEqualTo(3);
+        List<String> rader = Files.readAllLines(ut);
+        assertThat(rader).hasSize(6);
+        assertThat(rader.get(0)).isEqualTo("id,zone,start,end,averageSekPerKWh,costSek,error");
+        assertThat(rader.get(1)).isEqualTo("bil-1,SE3,2025-09-05T02:00+02:00,2025-09-05T04:00+02:00,0.1,2.0,");
+        assertThat(rader.get(2)).isEqualTo("bil-2,SE3,2025-09-04T02:00+02:00,2025-09-04T04:00+02:00,0.2,2.0,");
+        // Utan offset gäller svensk tid, och bara hela perioder efter 01:30 räknas
+        assertThat(rader.get(3)).startsWith("bil-3,SE3,2025-09-04T02:00+02:00,2025-09-04T04:00+02:00,0.2,1.5,");
+        assertThat(rader.get(4)).startsWith("bil-4,SE3,,,,,Fönstret får inte plats");
+        assertThat(rader.get(5)).startsWith("bil-5,,,,,,Ogiltig zon: SE9");
+    }
+
+    @Test
+    void jsonLines_inAndOut() throws Exception {
+        Path in = Files.writeString(dir.resolve("in.jsonl"), """
+                {"id":"a","zone":"SE3","earliest":"2025-09-04T00:00+02:00","deadline":"2025-09-05T00:00+02:00","duration":"1h","energy":11}
+                {"id":"b \\"citat\\"","zone":"SE3","earliest":"2025-09-04T00:00+02:00","deadline":"2025-09-03T00:00+02:00","duration":"1h"}
+                inte json
+                """);
+        Path ut = dir.resolve("ut.jsonl");
+
+        ChargingBatch.Summary summering = ChargingBatch.run(in, ut, new ElpriserAPI(false));
+
+        assertThat(summering.failed()).isEqualTo(2);
+        List<String> rader = Files.readAllLines(ut);
+        assertThat(rader).containsExactly(
+                "{\"id\":\"a\",\"zone\":\"SE3\",\"start\":\"2025-09-04T02:00+02:00\",\"end\":\"2025-09-04T03:00+02:00\","
+                        + "\"averageSekPerKWh\":0.2,\"costSek\":2.2}",
+                "{\"id\":\"b \\\"citat\\\"\",\"error\":\"deadline måste vara efter earliest\"}",
+                "{\"id\":\"rad 3\",\"error\":\"Förväntade '{' vid position 0\"}");
+    }
+
+    @Test
+    void onlyDaysOfEachZonesRequestsAreFetched() throws Exception {
+        Path in = Files.writeString(dir.resolve("in.csv"), """
+                id,zone,earliest,deadline,duration,energy
+                bil-1,SE3,2025-09-04T00:00+02:00,2025-09-04T12:00+02:00,2h,10
+                bil-2,SE1,2025-09-05T00:00+02:00,2025-09-05T12:00+02:00,1h,10
+                bil-3,SE3,2052-09-04T00:00+02:00,2052-09-04T06:00+02:00,1h,10
+                bil-4,SE3,2025-09-04T00:00+02:00,2052-09-05T00:00+02:00,1h,10
+                """);
+        Path ut = dir.resolve("ut.csv");
+        ApiStatistics statistik = new ApiStatistics();
+        ElpriserAPI api = ElpriserAPI.builder().caching(false).metrics(statistik).build();
+
+        ChargingBatch.Summary summering = ChargingBatch.run(in, ut, api);
+
+        assertThat(summering.solved()).isEqualTo(2);
+        List<String> rader = Files.readAllLines(ut);
+        assertThat(rader.get(2)).startsWith("bil-2,SE1,2025-09-05T02:00+02:00,");
+        assertThat(rader.get(3)).startsWith("bil-3,SE3,,,,,Inga priser");
+        assertThat(rader.get(4)).startsWith("bil-4,,,,,,Högst 3 dygn");
+        // Tre dagar, var och en hämtad till cachen och sedan som serie, i stället för 27 år per zon
+        assertThat(statistik.getCacheMisses()).isEqualTo(6);
+    }
+
+    @Test
+    void parseFlatObject_handlesLiteralsAndRejectsTrailingText() {
+        assertThat(ChargingBatch.parseFlatObject(" { \"a\" : 1.5 , \"b\":null, \"c\":\"x\\u0041\" } "))
+                .containsEntry("a", "1.5").containsEntry("c", "xA").doesNotContainKey("b");
+        assertThat(ChargingBatch.parseFlatObject("{}")).isEmpty();
+        assertThatThrownBy(() -> ChargingBatch.parseFlatObject("{\"a\":1} x"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
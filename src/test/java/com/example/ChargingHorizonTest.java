@@ -0,0 +1,185 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+import com.example.api.ElpriserAPI.Prisklass;
+import com.example.api.MutableClock;
+import com.example.api.PriceSeries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.example.api.TestPrices.hourlyJson;
+import static com.example.api.TestPrices.slotJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ChargingHorizonTest {
+
+    private static final ZoneId STOCKHOLM = ZoneId.of("Europe/Stockholm");
+    private static final LocalDate TODAY = LocalDate.of(2025, 9, 4);
+
+    private static double[] constant(double pris) {
+        double[] priser = new double[24];
+        Arrays.fill(priser, pris);
+        return priser;
+    }
+
+    private static ZonedDateTime at(LocalDate datum, int hour, int minute) {
+        return datum.atTime(hour, minute).atZone(STOCKHOLM);
+    }
+
+    /** Det billigaste fönstret från index {@code from}, räknat rakt av. */
+    private static int bruteForce(PriceSeries serie, int from, int length) {
+        int best = from;
+        double bestSum = Double.MAX_VALUE;
+        for (int s = from; s + length <= serie.size(); s++) {
+            double sum = 0;
+            for (int i = s; i < s + length; i++) {
+                sum += serie.price(i);
+            }
+            if (sum < bestSum - 1e-12) {
+                bestSum = sum;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    @AfterEach
+    void tearDown() {
+        ElpriserAPI.clearMockResponse();
+    }
+
+    @Test
+    void windowsStartInCurrentSlot() {
+        double[] priser = constant(1.0);
+        priser[2] = 0.01;
+        priser[3] = 0.01;
+        priser[20] = 0.5;
+        priser[21] = 0.5;
+        ElpriserAPI.setMockResponseForDate(TODAY, hourlyJson(TODAY, priser));
+        ChargingHorizon horisont = new ChargingHorizon(new ElpriserAPI(false), Prisklass.SE3,
+                new MutableClock(at(TODAY, 10, 30)), 0);
+
+        assertThat(horisont.refresh()).isTrue();
+
+        assertThat(horisont.currentIndex()).isEqualTo(10);
+        assertThat(horisont.remaining().size()).isEqualTo(14);
+        assertThat(horisont.remaining().timeStart(0).getHour()).isEqualTo(10);
+        ChargingHorizon.Plan plan = horisont.cheapest(2);
+        assertThat(plan.start()).isEqualTo(20);
+        assertThat(plan.sum()).isCloseTo(1.0, within(1e-12));
+        assertThat(plan.forecast()).isFalse();
+        assertThat(horisont.cheapest(15)).isNull();
+    }
+
+    @Test
+    void forecastExtendsHorizonFromSameWeekday() {
+        ElpriserAPI.setMockResponseForDate(TODAY, hourlyJson(TODAY, constant(1.0)));
+        LocalDate morgon = TODAY.plusDays(1);
+        double[] förraVeckan = constant(0.8);
+        förraVeckan[3] = 0.2;
+        double[] tvåVeckorSedan = constant(0.6);
+        tvåVeckorSedan[3] = 0.4;
+        ElpriserAPI.setMockResponseForDate(morgon.minusWeeks(1), hourlyJson(morgon.minusWeeks(1), förraVeckan));
+        ElpriserAPI.setMockResponseForDate(morgon.minusWeeks(2), hourlyJson(morgon.minusWeeks(2), tvåVeckorSedan));
+        ChargingHorizon horisont = new ChargingHorizon(new ElpriserAPI(false), Prisklass.SE3,
+                new MutableClock(at(TODAY, 12, 0)), 2);
+
+        horisont.refresh();
+
+        PriceSeries hela = horisont.horizon();
+        assertThat(hela.size()).isEqualTo(48);
+        assertThat(horisont.forecastFrom()).isEqualTo(24);
+        assertThat(hela.timeStart(24)).isEqualTo(at(morgon, 0, 0));
+        assertThat(hela.price(24)).isCloseTo(0.7, within(1e-12));
+        assertThat(hela.price(27)).isCloseTo(0.3, within(1e-12));
+        ChargingHorizon.Plan plan = horisont.cheapest(1);
+        assertThat(plan.start()).isEqualTo(27);
+        assertThat(plan.forecast()).isTrue();
+    }
+
+    @Test
+    void quarterHourForecastFromHourlyHistory_coversWholeDay() {
+        double[] kvartar = new double[96];
+        Arrays.fill(kvartar, 1.0);
+        ElpriserAPI.setMockResponseForDate(TODAY, slotJson(TODAY, 15, kvartar));
+        LocalDate morgon = TODAY.plusDays(1);
+        double[] förraVeckan = constant(0.8);
+        förraVeckan[3] = 0.2;
+        ElpriserAPI.setMockResponseForDate(morgon.minusWeeks(1), hourlyJson(morgon.minusWeeks(1), förraVeckan));
+        ChargingHorizon horisont = new ChargingHorizon(new ElpriserAPI(false), Prisklass.SE3,
+                new MutableClock(at(TODAY, 12, 0)), 1);
+
+        horisont.refresh();
+
+        PriceSeries hela = horisont.horizon();
+        assertThat(horisont.forecastFrom()).isEqualTo(96);
+        assertThat(hela.size()).isEqualTo(192);
+        assertThat(hela.resolutionSeconds()).isEqualTo(900);
+        for (int q = 0; q < 96; q++) {
+            assertThat(hela.price(96 + q)).as("kvart %d", q).isCloseTo(q / 4 == 3 ? 0.2 : 0.8, within(1e-12));
+        }
+        ChargingHorizon.Plan plan = horisont.cheapest(4);
+        assertThat(plan.start()).isEqualTo(96 + 12);
+        assertThat(plan.forecast()).isTrue();
+    }
+
+    @Test
+    void incrementalRefreshMatchesFullRecompute() {
+        Random random = new Random(7);
+        double[] idag = new double[24];
+        double[] imorgon = new double[24];
+        for (int h = 0; h < 24; h++) {
+            idag[h] = random.nextDouble();
+            imorgon[h] = random.nextDouble();
+        }
+        LocalDate morgon = TODAY.plusDays(1);
+        ElpriserAPI.setMockResponseForDate(TODAY, hourlyJson(TODAY, idag));
+        // Historik för prognosen av morgondagen, och sedan av dagen efter
+        ElpriserAPI.setMockResponseForDate(morgon.minusWeeks(1), hourlyJson(morgon.minusWeeks(1), constant(0.3)));
+        ElpriserAPI.setMockResponseForDate(morgon.plusDays(1).minusWeeks(1),
+                hourlyJson(morgon.plusDays(1).minusWeeks(1), constant(0.9)));
+        MutableClock klocka = new MutableClock(at(TODAY, 8, 15));
+        ChargingHorizon horisont = new ChargingHorizon(new ElpriserAPI(false), Prisklass.SE3, klocka, 1);
+        horisont.refresh();
+        for (int length = 1; length <= 6; length++) {
+            horisont.cheapest(length);
+        }
+
+        // Morgondagens priser publiceras och klockan går vidare
+        ElpriserAPI.setMockResponseForDate(morgon, hourlyJson(morgon, imorgon));
+        assertThat(horisont.refresh()).isTrue();
+        assertThat(horisont.refresh()).isFalse();
+        for (int hour = 8; hour < 24; hour += 3) {
+            klocka.set(at(TODAY, hour, 5));
+            ChargingHorizon nyHorisont = new ChargingHorizon(new ElpriserAPI(false), Prisklass.SE3, klocka, 1);
+            nyHorisont.refresh();
+            for (int length = 1; length <= 6; length++) {
+                ChargingHorizon.Plan plan = horisont.cheapest(length);
+                assertThat(plan).isEqualTo(nyHorisont.cheapest(length));
+                assertThat(plan.start()).isEqualTo(bruteForce(horisont.horizon(), hour, length));
+            }
+        }
+        assertThat(horisont.horizon().size()).isEqualTo(72);
+        assertThat(horisont.forecastFrom()).isEqualTo(48);
+    }
+
+    @Test
+    void forecastWeeks_isBounded() {
+        ElpriserAPI api = new ElpriserAPI(false);
+        Clock klocka = new MutableClock(at(TODAY, 12, 0));
+
+        assertThatThrownBy(() -> new ChargingHorizon(api, Prisklass.SE3, klocka, ChargingHorizon.MAX_FORECAST_WEEKS + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ChargingHorizon(api, Prisklass.SE3, klocka, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
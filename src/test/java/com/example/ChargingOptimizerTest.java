@@ -0,0 +1,86 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ChargingOptimizerTest {
+
+    @Test
+    void cheapest_findsLowestSumWindow() {
+        double[] prices = {0.50, 0.10, 0.05, 0.15, 0.08, 0.12, 0.06, 0.09, 0.25, 0.30, 0.35, 0.40};
+
+        ChargingOptimizer.Window window = ChargingOptimizer.cheapest(prices, 8);
+
+        assertThat(window.start()).isEqualTo(1);
+        assertThat(window.end()).isEqualTo(9);
+        assertThat(window.average()).isCloseTo(0.1125, within(1e-12));
+    }
+
+    @Test
+    void cheapest_prefersEarliestOnTies() {
+        double[] prices = {0.3, 0.1, 0.1, 0.3, 0.1, 0.1};
+
+        assertThat(ChargingOptimizer.cheapest(prices, 2).start()).isEqualTo(1);
+    }
+
+    @Test
+    void cheapest_returnsNullWhenSeriesIsTooShort() {
+        assertThat(ChargingOptimizer.cheapest(new double[]{0.1, 0.2}, 3)).isNull();
+    }
+
+    @Test
+    void cheapest_matchesBruteForceForLongWindows() {
+        Random random = new Random(1);
+        double[] prices = new double[192];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = random.nextGaussian();
+        }
+        for (int length : new int[]{1, 8, 37, 96, 192}) {
+            int bruteStart = 0;
+            double bruteBest = Double.MAX_VALUE;
+            for (int s = 0; s + length <= prices.length; s++) {
+                double sum = 0;
+                for (int j = s; j < s + length; j++) {
+                    sum += prices[j];
+                }
+                if (sum < bruteBest - 1e-9) {
+                    bruteBest = sum;
+                    bruteStart = s;
+                }
+            }
+            assertThat(ChargingOptimizer.cheapest(prices, length).start()).isEqualTo(bruteStart);
+        }
+    }
+
+    @Test
+    void cheapestTopK_returnsNonOverlappingWindowsCheapestFirst() {
+        double[] prices = {0.9, 0.1, 0.1, 0.9, 0.2, 0.2, 0.9, 0.9, 0.3, 0.3};
+
+        List<ChargingOptimizer.Window> windows = ChargingOptimizer.cheapest(prices, 2, 3);
+
+        assertThat(windows).extracting(ChargingOptimizer.Window::start).containsExactly(1, 4, 8);
+        for (int i = 1; i < windows.size(); i++) {
+            assertThat(windows.get(i).sum()).isGreaterThanOrEqualTo(windows.get(i - 1).sum());
+        }
+    }
+
+    @Test
+    void cheapestTopK_stopsWhenNoMoreRoom() {
+        double[] prices = {0.1, 0.2, 0.3, 0.4, 0.5};
+
+        assertThat(ChargingOptimizer.cheapest(prices, 2, 10)).hasSize(2);
+    }
+
+    @Test
+    void slotsFor_roundsUpToWholeSlots() {
+        assertThat(ChargingOptimizer.slotsFor(120, 3600)).isEqualTo(2);
+        assertThat(ChargingOptimizer.slotsFor(90, 3600)).isEqualTo(2);
+        assertThat(ChargingOptimizer.slotsFor(90, 900)).isEqualTo(6);
+        assertThat(ChargingOptimizer.slotsFor(24 * 60, 900)).isEqualTo(96);
+    }
+}
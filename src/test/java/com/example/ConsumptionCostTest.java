@@ -0,0 +1,183 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+import com.example.api.ElpriserAPI.Prisklass;
+import com.example.api.TestPrices;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ConsumptionCostTest {
+
+    private static final ZoneId STOCKHOLM = ZoneId.of("Europe/Stockholm");
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        ElpriserAPI.clearMockResponse();
+    }
+
+    /** Timpriser för ett dygn där priset är timmens nummer / 10, räknat från dygnets början. */
+    private static void mockHourlyDay(LocalDate datum) {
+        StringBuilder json = new StringBuilder("[");
+        ZonedDateTime t = datum.atStartOfDay(STOCKHOLM);
+        for (int h = 0; t.isBefore(datum.plusDays(1).atStartOfDay(STOCKHOLM)); h++, t = t.plusHours(1)) {
+            if (h > 0) {
+                json.append(',');
+            }
+            json.append("{\"SEK_per_kWh\":").append(h / 10.0)
+                    .append(",\"EUR_per_kWh\":0.0,\"EXR\":10.0,\"time_start\":\"").append(t.toOffsetDateTime())
+                    .append("\",\"time_end\":\"").append(t.plusHours(1).toOffsetDateTime()).append("\"}");
+        }
+        ElpriserAPI.setMockResponseForDate(datum, json.append(']').toString());
+    }
+
+    /** En avläsning om {@code kWh} per kvart under hela dygnet. */
+    private static void appendQuarters(StringBuilder csv, LocalDate datum, double kWh) {
+        ZonedDateTime end = datum.plusDays(1).atStartOfDay(STOCKHOLM);
+        for (ZonedDateTime t = datum.atStartOfDay(STOCKHOLM); t.isBefore(end); t = t.plusMinutes(15)) {
+            csv.append(t.toOffsetDateTime()).append(',').append(kWh).append('\n');
+        }
+    }
+
+    @Test
+    void dailyCosts_areTheSameForAnyNumberOfChunks() throws Exception {
+        LocalDate dag1 = LocalDate.of(2025, 9, 4);
+        LocalDate dag2 = LocalDate.of(2025, 9, 5);
+        mockHourlyDay(dag1);
+        mockHourlyDay(dag2);
+        StringBuilder csv = new StringBuilder("tid,kWh,avdelning\n");
+        appendQuarters(csv, dag1, 1.0);
+        appendQuarters(csv, dag2, 0.5);
+        Path fil = Files.writeString(dir.resolve("el.csv"), csv);
+        ElpriserAPI api = new ElpriserAPI(false);
+
+        ConsumptionCost.Result resultat = ConsumptionCost.compute(fil, api, Prisklass.SE3, ConsumptionCost.Period.DAY, 1);
+
+        // Fyra kvartar per timme à 1 kWh och timpris h / 10 ger 0,4 * (0 + 1 + ... + 23) = 110,4 kr
+        assertThat(resultat.lines()).hasSize(2);
+        assertThat(resultat.lines().get(0).start()).isEqualTo(LocalDateTime.of(2025, 9, 4, 0, 0));
+        assertThat(resultat.lines().get(0).kWh()).isCloseTo(96.0, within(1e-9));
+        assertThat(resultat.lines().get(0).sek()).isCloseTo(110.4, within(1e-9));
+        assertThat(resultat.lines().get(1).sek()).isCloseTo(55.2, within(1e-9));
+        assertThat(resultat.readings()).isEqualTo(192);
+        assertThat(resultat.averagePrice()).isCloseTo(1.15, within(1e-9));
+        for (int parts : new int[]{2, 7, 64}) {
+            ConsumptionCost.Result delat = ConsumptionCost.compute(fil, api, Prisklass.SE3, ConsumptionCost.Period.DAY, parts);
+            assertThat(delat.readings()).isEqualTo(192);
+            assertThat(delat.totalSek()).isCloseTo(resultat.totalSek(), within(1e-9));
+        }
+    }
+
+    @Test
+    void semicolonsCommaDecimalsAndBadRows() throws Exception {
+        mockHourlyDay(LocalDate.of(2025, 9, 4));
+        Path fil = Files.writeString(dir.resolve("el.csv"), """
+                Tidpunkt;Förbrukning
+                2025-09-04 10:00+02:00;1,5\r
+                2025-09-04T10:15:00+02:00;2
+                2025-09-04T08:30Z;1,0
+                2025-09-04T11:00:00;1,0
+                2025-02-30T11:00:00+01:00;1,0
+                2025-09-06T00:00:00+02:00;3
+                """);
+
+        ConsumptionCost.Result resultat = ConsumptionCost.compute(fil, new ElpriserAPI(false), Prisklass.SE3,
+                ConsumptionCost.Period.HOUR, 3);
+
+        // 08:30Z är 10:30 svensk tid, så alla tre avläsningar hamnar i timmen 10
+        assertThat(resultat.lines()).hasSize(1);
+        assertThat(resultat.lines().get(0).start()).isEqualTo(LocalDateTime.of(2025, 9, 4, 10, 0));
+        assertThat(resultat.lines().get(0).kWh()).isCloseTo(4.5, within(1e-12));
+        assertThat(resultat.totalSek()).isCloseTo(4.5, within(1e-12));
+        assertThat(resultat.unmatched()).isEqualTo(1);
+        assertThat(resultat.invalid()).isEqualTo(2);
+    }
+
+    @Test
+    void repeatedHourAtEndOfSummerTime_isItsOwnPeriod() throws Exception {
+        LocalDate dag = LocalDate.of(2025, 10, 26);
+        mockHourlyDay(dag);
+        StringBuilder csv = new StringBuilder();
+        appendQuarters(csv, dag, 1.0);
+        Path fil = Files.writeString(dir.resolve("el.csv"), csv);
+
+        ConsumptionCost.Result perTimme = ConsumptionCost.compute(fil, new ElpriserAPI(false), Prisklass.SE3,
+                ConsumptionCost.Period.HOUR, 4);
+
+        assertThat(perTimme.lines()).hasSize(25);
+        assertThat(perTimme.lines().get(2).start()).isEqualTo(perTimme.lines().get(3).start());
+        assertThat(perTimme.lines().get(3).sek()).isCloseTo(4 * 0.3, within(1e-12));
+        assertThat(perTimme.readings()).isEqualTo(100);
+    }
+
+    @Test
+    void readingsWithWrongYear_areUnmatchedAndDoNotWidenTheRange() throws Exception {
+        LocalDate dag = LocalDate.of(2025, 9, 4);
+        mockHourlyDay(dag);
+        StringBuilder csv = new StringBuilder();
+        appendQuarters(csv, dag, 1.0);
+        csv.append("1925-09-04T10:00:00+01:00,1.0\n");
+        csv.append("2052-09-04T10:00:00+02:00,1.0\n");
+        Path fil = Files.writeString(dir.resolve("el.csv"), csv);
+
+        // Utan begränsning skulle 127 år av dagar sakna mock-data och hämtas en och en
+        ConsumptionCost.Result resultat = ConsumptionCost.compute(fil, new ElpriserAPI(false), Prisklass.SE3,
+                ConsumptionCost.Period.MONTH, 2);
+
+        assertThat(resultat.lines()).hasSize(1);
+        assertThat(resultat.readings()).isEqualTo(96);
+        assertThat(resultat.totalSek()).isCloseTo(110.4, within(1e-9));
+        assertThat(resultat.unmatched()).isEqualTo(2);
+    }
+
+    @Test
+    void hourlyReadings_areSplitOverQuarterHourPrices() throws Exception {
+        LocalDate dag = LocalDate.of(2025, 9, 4);
+        double[] kvartar = new double[96];
+        for (int q = 0; q < 96; q++) {
+            kvartar[q] = q / 100.0;
+        }
+        ElpriserAPI.setMockResponseForDate(dag, TestPrices.slotJson(dag, 15, kvartar));
+        StringBuilder csv = new StringBuilder();
+        ZonedDateTime end = dag.plusDays(1).atStartOfDay(STOCKHOLM);
+        for (ZonedDateTime t = dag.atStartOfDay(STOCKHOLM); t.isBefore(end); t = t.plusHours(1)) {
+            csv.append(t.toOffsetDateTime()).append(',').append(4.0).append('\n');
+        }
+        Path fil = Files.writeString(dir.resolve("el.csv"), csv);
+
+        ConsumptionCost.Result resultat = ConsumptionCost.compute(fil, new ElpriserAPI(false), Prisklass.SE3,
+                ConsumptionCost.Period.HOUR, 3);
+
+        // 1 kWh per kvart ger (16h + 6) / 100 kr för timme h, inte 16h / 100 med första kvartens pris
+        assertThat(resultat.lines()).hasSize(24);
+        assertThat(resultat.lines().get(2).sek()).isCloseTo(0.38, within(1e-12));
+        assertThat(resultat.lines().get(2).kWh()).isCloseTo(4.0, within(1e-12));
+        assertThat(resultat.readings()).isEqualTo(24);
+        assertThat(resultat.totalSek()).isCloseTo(45.6, within(1e-9));
+        assertThat(resultat.unmatched()).isZero();
+    }
+
+    @Test
+    void onlyFutureReadings_areUnmatched() throws Exception {
+        Path fil = Files.writeString(dir.resolve("el.csv"), "2052-09-04T10:00:00+02:00,1.0\n");
+
+        ConsumptionCost.Result resultat = ConsumptionCost.compute(fil, new ElpriserAPI(false), Prisklass.SE3,
+                ConsumptionCost.Period.DAY, 1);
+
+        assertThat(resultat.lines()).isEmpty();
+        assertThat(resultat.unmatched()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+import com.example.api.ElpriserAPI.Prisklass;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JfrEventsTest {
+
+    @TempDir
+    Path tmp;
+
+    @AfterEach
+    void tearDown() {
+        ElpriserAPI.clearMockResponse();
+    }
+
+    @Test
+    void recordsCacheParseAndOptimizeEventsWithFields() throws Exception {
+        LocalDate datum = LocalDate.of(2025, 9, 4);
+        ElpriserAPI.setMockResponse("""
+                [{"SEK_per_kWh":0.3,"EUR_per_kWh":0.03,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.1,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"}]
+                """);
+        Path fil = tmp.resolve("elpriser.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.Cache").withoutThreshold();
+            recording.enable("com.example.Parse").withoutThreshold();
+            recording.enable("com.example.Optimize").withoutThreshold();
+            recording.start();
+
+            ElpriserAPI api = ElpriserAPI.builder().cacheDir(tmp.resolve("cache")).build();
+            double[] priser = api.getPriceSeries(datum, Prisklass.SE4).toPriceArray();
+            api.getPriceSeries(datum, Prisklass.SE4);
+            ChargingOptimizer.cheapest(priser, 1, 2);
+
+            recording.stop();
+            recording.dump(fil);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(fil);
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.example.Cache"))
+                .extracting(e -> e.getString("layer") + " " + e.getBoolean("hit") + " " + e.getInt("slots"))
+                .containsExactly("minne false 0", "minne true 2");
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.example.Parse"))
+                .singleElement()
+                .satisfies(e -> {
+                    assertThat(e.getString("zone")).isEqualTo("SE4");
+                    assertThat(e.getString("date")).isEqualTo("2025-09-04");
+                    assertThat(e.getInt("slots")).isEqualTo(2);
+                    assertThat(e.getLong("bytes")).isPositive();
+                });
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.example.Optimize"))
+                .singleElement()
+                .satisfies(e -> {
+                    assertThat(e.getString("algorithm")).isEqualTo("fönster-topp");
+                    assertThat(e.getInt("slots")).isEqualTo(2);
+                    assertThat(e.getInt("count")).isEqualTo(2);
+                });
+    }
+}
@@ -7,9 +7,13 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -142,6 +146,22 @@ class MainTest {
         assertThat(output).contains("80,00"); // 42,50 öre (medelpris)
     }
 
+    @Test
+    void displayMinMaxPrices_whenAllPricesAreNegative() {
+        String mockJson = """
+                [{"SEK_per_kWh":-0.05,"EUR_per_kWh":-0.005,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":-0.20,"EUR_per_kWh":-0.02,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"}]""";
+
+        ElpriserAPI.setMockResponse(mockJson);
+
+        Main.main(new String[]{"--zone", "SE1", "--date", "2025-09-04"});
+
+        String output = bos.toString();
+        // Svensk formatering kan använda U+2212 som minustecken
+        assertThat(output).containsPattern("Lägsta pris: [-\u2212]20,00 öre");
+        assertThat(output).containsPattern("Högsta pris: [-\u2212]5,00 öre");
+    }
+
     @Test
     void displaySortedPrices_whenRequested() {
         String mockJson = """
@@ -216,6 +236,47 @@ class MainTest {
         assertThat(output).contains("12,5");
     }
 
+    @Test
+    void findOptimalCharging_listsNonOverlappingAlternatives() {
+        String mockJson = """
+                [{"SEK_per_kWh":0.90,"EUR_per_kWh":0.09,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.10,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"},
+                 {"SEK_per_kWh":0.10,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T02:00:00+02:00","time_end":"2025-09-04T03:00:00+02:00"},
+                 {"SEK_per_kWh":0.90,"EUR_per_kWh":0.09,"EXR":10.0,"time_start":"2025-09-04T03:00:00+02:00","time_end":"2025-09-04T04:00:00+02:00"},
+                 {"SEK_per_kWh":0.20,"EUR_per_kWh":0.02,"EXR":10.0,"time_start":"2025-09-04T04:00:00+02:00","time_end":"2025-09-04T05:00:00+02:00"},
+                 {"SEK_per_kWh":0.20,"EUR_per_kWh":0.02,"EXR":10.0,"time_start":"2025-09-04T05:00:00+02:00","time_end":"2025-09-04T06:00:00+02:00"}]""";
+
+        ElpriserAPI.setMockResponse(mockJson);
+
+        Main.main(new String[]{"--zone", "SE3", "--date", "2025-09-04", "--charging", "120m", "--top", "2"});
+
+        String output = bos.toString();
+        assertThat(output).contains("Optimalt laddningsfönster (2h):");
+        assertThat(output).contains("Starttid: kl 01:00");
+        assertThat(output).contains("Alternativ 2 (2h):");
+        assertThat(output).contains("Starttid: kl 04:00");
+    }
+
+    @Test
+    void scheduleCheapestSlots_beforeDeadline() {
+        String mockJson = """
+                [{"SEK_per_kWh":0.30,"EUR_per_kWh":0.03,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.10,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"},
+                 {"SEK_per_kWh":0.50,"EUR_per_kWh":0.05,"EXR":10.0,"time_start":"2025-09-04T02:00:00+02:00","time_end":"2025-09-04T03:00:00+02:00"},
+                 {"SEK_per_kWh":0.20,"EUR_per_kWh":0.02,"EXR":10.0,"time_start":"2025-09-04T03:00:00+02:00","time_end":"2025-09-04T04:00:00+02:00"},
+                 {"SEK_per_kWh":0.05,"EUR_per_kWh":0.005,"EXR":10.0,"time_start":"2025-09-04T04:00:00+02:00","time_end":"2025-09-04T05:00:00+02:00"}]""";
+
+        ElpriserAPI.setMockResponse(mockJson);
+
+        Main.main(new String[]{"--zone", "SE3", "--date", "2025-09-04", "--schedule", "2h", "--deadline", "04:00"});
+
+        String output = bos.toString();
+        assertThat(output).contains("01:00-02:00 10,00 öre");
+        assertThat(output).contains("03:00-04:00 20,00 öre");
+        assertThat(output).doesNotContain("04:00-05:00");
+        assertThat(output).contains("Total kostnad: 30,00 öre");
+    }
+
     @Test
     void chargingWindowDoesNotUseNextDay_whenNextDayUnavailable() {
         // Only today's 3 hours, request 2h window -> should compute within these only
@@ -358,6 +419,164 @@ class MainTest {
         assertThat(output).contains("23:00");
     }
 
+    @Test
+    void displayQuarterHourPrices_withMinutes() {
+        ElpriserAPI.setMockResponse(quarterHourJson());
+
+        Main.main(new String[]{"--zone", "SE3", "--date", "2025-10-01"});
+
+        String output = bos.toString();
+        assertThat(output).contains("00:00-00:15 " + formatOre(0.0) + " öre");
+        assertThat(output).contains("23:45-00:00 " + formatOre(0.95) + " öre");
+    }
+
+    @Test
+    void resolutionOption_aggregatesQuarterHoursToHours() {
+        ElpriserAPI.setMockResponse(quarterHourJson());
+
+        Main.main(new String[]{"--zone", "SE3", "--date", "2025-10-01", "--resolution", "60m"});
+
+        String output = bos.toString();
+        assertThat(output).contains("00-01 " + formatOre(0.015) + " öre");
+        assertThat(output).contains("23-00 " + formatOre(0.935) + " öre");
+        assertThat(output).doesNotContain("00:00-00:15");
+    }
+
+    @Test
+    void resolutionOption_rejectsLengthThatDoesNotDivideDay() {
+        Main.main(new String[]{"--zone", "SE3", "--date", "2025-10-01", "--resolution", "7m"});
+
+        assertThat(bos.toString()).contains("--resolution");
+    }
+
+    @Test
+    void analyticsOverDateRange_printsProfilesAndRollingAverages() {
+        ElpriserAPI.setMockResponseForDate(LocalDate.of(2025, 9, 4), """
+                [{"SEK_per_kWh":0.10,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.30,"EUR_per_kWh":0.03,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"}]""");
+        ElpriserAPI.setMockResponseForDate(LocalDate.of(2025, 9, 5), """
+                [{"SEK_per_kWh":0.50,"EUR_per_kWh":0.05,"EXR":10.0,"time_start":"2025-09-05T00:00:00+02:00","time_end":"2025-09-05T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.70,"EUR_per_kWh":0.07,"EXR":10.0,"time_start":"2025-09-05T01:00:00+02:00","time_end":"2025-09-05T02:00:00+02:00"}]""");
+
+        Main.main(new String[]{"--zone", "SE3", "--from", "2025-09-04", "--to", "2025-09-05"});
+
+        String output = bos.toString();
+        assertThat(output).contains("2 dagar, 4 perioder");
+        assertThat(output).contains("Medelpris: " + formatOre(0.40) + " öre");
+        assertThat(output).contains("00 " + formatOre(0.30));
+        assertThat(output).containsIgnoringCase("torsdag " + formatOre(0.20));
+        assertThat(output).contains("Volatilitet");
+        assertThat(output).contains("7 dagar " + formatOre(0.40));
+    }
+
+    @Test
+    void costOfMeterReadings_printsDailyTotals() throws Exception {
+        ElpriserAPI.setMockResponseForDate(LocalDate.of(2025, 9, 4), """
+                [{"SEK_per_kWh":0.10,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.30,"EUR_per_kWh":0.03,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"}]""");
+        Path fil = Files.createTempFile("forbrukning", ".csv");
+        try {
+            Files.writeString(fil, """
+                    tid,kWh
+                    2025-09-04T00:00:00+02:00,2.0
+                    2025-09-04T01:45:00+02:00,1.0
+                    2025-09-04T03:00:00+02:00,1.0
+                    """);
+
+            Main.main(new String[]{"--zone", "SE3", "--cost", fil.toString()});
+        } finally {
+            Files.deleteIfExists(fil);
+        }
+
+        String output = bos.toString();
+        assertThat(output).contains("2 avläsningar");
+        assertThat(output).contains("2025-09-04 " + formatOre(0.03) + " kWh " + formatOre(0.005) + " kr");
+        assertThat(output).contains("Medelpris: " + formatOre(0.5 / 3.0) + " öre/kWh");
+        assertThat(output).contains("Hoppade över 1 avläsningar utan pris");
+    }
+
+    @Test
+    void forecastAboveLimit_isRejected() {
+        Main.main(new String[]{"--zone", "SE3", "--charging", "2h", "--forecast", "100000"});
+
+        assertThat(bos.toString()).contains("Ogiltigt antal veckor för --forecast");
+    }
+
+    @Test
+    void batchRequiresOutputFile() {
+        Main.main(new String[]{"--batch", "forfragningar.csv"});
+
+        assertThat(bos.toString()).contains("--batch kräver --output");
+    }
+
+    @Test
+    void importOfMissingSnapshot_reportsErrorAndStops() {
+        Main.main(new String[]{"--import", "finns-inte.elps", "--offline", "--zone", "SE3"});
+
+        assertThat(bos.toString()).contains("Fel: Kunde inte importera finns-inte.elps")
+                .doesNotContain("Elpriser för");
+    }
+
+    @Test
+    void exportRequiresFromAndTo() {
+        Main.main(new String[]{"--zone", "all", "--export", "priser.elps", "--from", "2025-09-04"});
+
+        assertThat(bos.toString()).contains("--from och --to");
+    }
+
+    @Test
+    void analyticsRequiresBothFromAndTo() {
+        Main.main(new String[]{"--zone", "SE3", "--from", "2025-09-04"});
+
+        assertThat(bos.toString()).contains("--from och --to");
+    }
+
+    @Test
+    void compareAllZones_listsPricesSideBySide() {
+        ElpriserAPI.setMockResponse("""
+                [{"SEK_per_kWh":0.10,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.30,"EUR_per_kWh":0.03,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"}]""");
+
+        Main.main(new String[]{"--zone", "all", "--date", "2025-09-04"});
+
+        String output = bos.toString();
+        assertThat(output).contains("Elpriser för SE1, SE2, SE3, SE4 den 2025-09-04");
+        assertThat(output).contains("Tid SE1 SE2 SE3 SE4 Billigast Spridning");
+        String pris = formatOre(0.10);
+        assertThat(output).contains("00-01 " + pris + " " + pris + " " + pris + " " + pris + " SE1 " + formatOre(0));
+        assertThat(output).contains("Medelspridning SE4 - SE1");
+    }
+
+    @Test
+    void parseZones_acceptsListAndAll() {
+        assertThat(Main.parseZones("se4,SE1")).containsExactly(ElpriserAPI.Prisklass.SE1, ElpriserAPI.Prisklass.SE4);
+        assertThat(Main.parseZones("all")).hasSize(4);
+        assertThat(Main.parseZones("SE1,SE9")).isNull();
+    }
+
+    @Test
+    void multipleZones_rejectedForCharging() {
+        Main.main(new String[]{"--zone", "SE1,SE2", "--charging", "2h"});
+
+        assertThat(bos.toString()).contains("ange en zon");
+    }
+
+    /** 96 kvartspriser där period i kostar i/100 SEK/kWh. */
+    private static String quarterHourJson() {
+        StringBuilder json = new StringBuilder("[");
+        ZonedDateTime start = ZonedDateTime.parse("2025-10-01T00:00:00+02:00");
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+        for (int i = 0; i < 96; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"SEK_per_kWh\":").append(i / 100.0).append(",\"EUR_per_kWh\":0.0,\"EXR\":10.0,\"time_start\":\"")
+                    .append(start.plusMinutes(15L * i).format(format)).append("\",\"time_end\":\"")
+                    .append(start.plusMinutes(15L * (i + 1)).format(format)).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+
     @Test
     public void testHourlyMinMaxPrices() {
         List<Double> quarterHourPrices = new ArrayList<>();
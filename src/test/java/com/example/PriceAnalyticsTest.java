@@ -0,0 +1,66 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PriceAnalyticsTest {
+
+    private static final ZoneId STOCKHOLM = ZoneId.of("Europe/Stockholm");
+
+    /** Matar in en dag med kvartspriser där priset är timmen / 10 plus {@code bas}. */
+    private static void quarterHourDay(PriceAnalytics analys, LocalDate datum, double bas) {
+        long start = datum.atStartOfDay(STOCKHOLM).toEpochSecond();
+        long end = datum.plusDays(1).atStartOfDay(STOCKHOLM).toEpochSecond();
+        for (long t = start; t < end; t += 900) {
+            int offset = STOCKHOLM.getRules().getOffset(Instant.ofEpochSecond(t)).getTotalSeconds();
+            int hour = (int) (Math.floorMod(t + offset, 86_400) / 3600);
+            analys.visit(t, 900, offset, bas + hour / 10.0);
+        }
+    }
+
+    @Test
+    void hourlyProfileAndPercentiles_useLocalTime() {
+        PriceAnalytics analys = new PriceAnalytics();
+        for (LocalDate d = LocalDate.of(2025, 10, 1); d.isBefore(LocalDate.of(2025, 11, 1)); d = d.plusDays(1)) {
+            quarterHourDay(analys, d, 0.0);
+        }
+        analys.finish();
+
+        assertThat(analys.hour(0).mean()).isCloseTo(0.0, within(1e-12));
+        assertThat(analys.hour(17).mean()).isCloseTo(1.7, within(1e-12));
+        assertThat(analys.hourQuantile(17, 0.9)).isCloseTo(1.7, within(1e-9));
+        assertThat(analys.overall().mean()).isCloseTo(1.15, within(0.01));
+        assertThat(analys.quantile(0.5)).isCloseTo(1.15, within(0.05));
+        assertThat(analys.dailyMeans().count()).isEqualTo(31);
+        // Dagen med 25 timmar ger en extra timme 02 men samma spridning
+        assertThat(analys.dailySpreads().max()).isCloseTo(2.3, within(1e-12));
+    }
+
+    @Test
+    void rollingAveragesAndWeekdayProfile() {
+        PriceAnalytics analys = new PriceAnalytics();
+        LocalDate first = LocalDate.of(2025, 9, 1); // en måndag
+        for (int i = 0; i < 40; i++) {
+            quarterHourDay(analys, first.plusDays(i), i);
+        }
+        analys.finish();
+
+        // Dag i har dagsmedel i + 1,15
+        assertThat(analys.shortAverage()).isCloseTo(36 + 1.15, within(1e-9));
+        assertThat(analys.longAverage()).isCloseTo(24.5 + 1.15, within(1e-9));
+        assertThat(analys.longAverages().count()).isEqualTo(11);
+        assertThat(analys.lowestLongAverageEnd()).isEqualTo(first.plusDays(29));
+        assertThat(analys.highestLongAverageEnd()).isEqualTo(first.plusDays(39));
+        assertThat(analys.dailyChanges().mean()).isCloseTo(1.0, within(1e-9));
+        assertThat(analys.dailyChanges().stdDev()).isCloseTo(0.0, within(1e-9));
+        // Måndagar: dag 0, 7, ..., 35 ger medel 17,5 + 1,15
+        assertThat(analys.weekday(DayOfWeek.MONDAY).mean()).isCloseTo(17.5 + 1.15, within(1e-9));
+    }
+}
@@ -0,0 +1,222 @@
+package com.example;
+
+import com.example.api.ElpriserAPI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PriceServerTest {
+
+    private static final String MOCK = """
+            [{"SEK_per_kWh":0.30,"EUR_per_kWh":0.03,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+             {"SEK_per_kWh":0.10,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"},
+             {"SEK_per_kWh":0.20,"EUR_per_kWh":0.02,"EXR":10.0,"time_start":"2025-09-04T02:00:00+02:00","time_end":"2025-09-04T03:00:00+02:00"}]
+            """;
+
+    private PriceServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ElpriserAPI.setMockResponse(MOCK);
+        server = new PriceServer(new ElpriserAPI(false), 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        ElpriserAPI.clearMockResponse();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static double stdDev(String body) {
+        int start = body.indexOf("\"stdDev\":") + "\"stdDev\":".length();
+        return Double.parseDouble(body.substring(start, body.indexOf(',', start)));
+    }
+
+    @Test
+    void prices_returnsAllSlotsAsJson() throws Exception {
+        HttpResponse<String> response = get("/prices?zone=se3&date=2025-09-04");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(v -> assertThat(v).startsWith("application/json"));
+        assertThat(response.body())
+                .startsWith("{\"zone\":\"SE3\",\"date\":\"2025-09-04\",\"prices\":[")
+                .contains("\"start\":\"2025-09-04T01:00+02:00\"", "\"sekPerKWh\":0.1");
+    }
+
+    @Test
+    void prices_sortedFromCheapest() throws Exception {
+        HttpResponse<String> response = get("/prices?zone=SE3&date=2025-09-04&sorted=true");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        String body = response.body();
+        assertThat(body.indexOf("\"sekPerKWh\":0.1")).isLessThan(body.indexOf("\"sekPerKWh\":0.2"));
+        assertThat(body.indexOf("\"sekPerKWh\":0.2")).isLessThan(body.indexOf("\"sekPerKWh\":0.3"));
+    }
+
+    @Test
+    void stats_returnsMinMaxAndMean() throws Exception {
+        HttpResponse<String> response = get("/stats?zone=SE3&date=2025-09-04");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).contains("\"count\":3", "\"min\":0.1", "\"max\":0.3", "\"mean\":0.2");
+        assertThat(response.body()).contains("\"minStart\":\"2025-09-04T01:00+02:00\"", "\"stdDev\":0.08");
+    }
+
+    @Test
+    void stats_meanIsWeightedByPeriodLength() throws Exception {
+        ElpriserAPI.setMockResponse("""
+                [{"SEK_per_kWh":0.40,"EUR_per_kWh":0.04,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.00,"EUR_per_kWh":0.00,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T01:15:00+02:00"}]
+                """);
+
+        HttpResponse<String> response = get("/stats?zone=SE3&date=2025-09-04");
+
+        // (0,40 * 60 + 0 * 15) / 75 minuter, inte det oviktade 0,2, och standardavvikelsen
+        // kring samma medelpris: sqrt((60 * 0,08² + 15 * 0,32²) / 75) = 0,16
+        assertThat(response.body()).contains("\"count\":2", "\"mean\":0.32");
+        assertThat(stdDev(response.body())).isCloseTo(0.16, within(1e-12));
+    }
+
+    @Test
+    void charging_returnsCheapestWindow() throws Exception {
+        HttpResponse<String> response = get("/charging?zone=SE3&date=2025-09-04&duration=2h");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body())
+                .contains("\"durationMinutes\":120")
+                .contains("\"start\":\"2025-09-04T01:00+02:00\",\"end\":\"2025-09-04T03:00+02:00\"");
+    }
+
+    @Test
+    void invalidRequests_returnErrorStatus() throws Exception {
+        assertThat(get("/prices?date=2025-09-04").statusCode()).isEqualTo(400);
+        assertThat(get("/prices?zone=SE9").statusCode()).isEqualTo(400);
+        assertThat(get("/stats?zone=SE3&date=04-09-2025").statusCode()).isEqualTo(400);
+        assertThat(get("/charging?zone=SE3&date=2025-09-04&duration=5h").body()).contains("\"error\"");
+
+        ElpriserAPI.setMockResponse("");
+        assertThat(get("/prices?zone=SE1&date=2025-09-05").statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void chargingWithoutDate_startsInCurrentSlot() throws Exception {
+        ElpriserAPI.clearMockResponse();
+        ElpriserAPI.setMockResponseForDate(LocalDate.of(2025, 9, 4), MOCK);
+        Clock klocka = Clock.fixed(Instant.parse("2025-09-04T00:30:00Z"), ZoneId.of("Europe/Stockholm"));
+        try (PriceServer nu = new PriceServer(new ElpriserAPI(false), 0, klocka)) {
+            nu.start();
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + nu.port() + "/charging?zone=SE3&duration=1h")).build();
+
+            String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+
+            // Klockan är 02:30, så den billigare perioden 01-02 har redan passerat
+            assertThat(body).contains("\"date\":\"2025-09-04\"",
+                    "\"start\":\"2025-09-04T02:00+02:00\"", "\"forecast\":false");
+        }
+    }
+
+    @Test
+    void defaultDate_followsServerClockInSwedishTime() throws Exception {
+        ElpriserAPI.clearMockResponse();
+        ElpriserAPI.setMockResponseForDate(LocalDate.of(2025, 9, 4), MOCK);
+        // 22:30 UTC den 3:e är redan den 4:e i Sverige
+        Clock klocka = Clock.fixed(Instant.parse("2025-09-03T22:30:00Z"), ZoneId.of("UTC"));
+        try (PriceServer nu = new PriceServer(new ElpriserAPI(false), 0, klocka)) {
+            nu.start();
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + nu.port() + "/prices?zone=SE3")).build();
+
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.body()).contains("\"date\":\"2025-09-04\"");
+        }
+    }
+
+    @Test
+    void jsonString_escapesControlCharacters() {
+        assertThat(PriceServer.jsonString("a\"b\\c\nd\te\r\u0001"))
+                .isEqualTo("\"a\\\"b\\\\c\\nd\\te\\r\\u0001\"");
+    }
+
+    @Test
+    void jsonNumber_writesNullForNonFiniteValues() {
+        assertThat(PriceServer.jsonNumber(0.25)).isEqualTo("0.25");
+        assertThat(PriceServer.jsonNumber(Double.NaN)).isEqualTo("null");
+        assertThat(PriceServer.jsonNumber(Double.POSITIVE_INFINITY)).isEqualTo("null");
+        assertThat(PriceServer.jsonNumber(Double.NEGATIVE_INFINITY)).isEqualTo("null");
+    }
+
+    /** En klocka som går en halvtimme framåt för varje avläsning. */
+    private static final class TickingClock extends Clock {
+        private Instant now;
+
+        TickingClock(Instant start) {
+            this.now = start;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("Europe/Stockholm");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return Clock.fixed(instant(), zone);
+        }
+
+        @Override
+        public synchronized Instant instant() {
+            Instant t = now;
+            now = now.plusSeconds(1800);
+            return t;
+        }
+    }
+
+    @Test
+    void chargingWithoutDate_isConsistentWhenClockPassesSlotBoundary() throws Exception {
+        ElpriserAPI.clearMockResponse();
+        ElpriserAPI.setMockResponseForDate(LocalDate.of(2025, 9, 4), MOCK);
+        // 00:30 svensk tid, och klockan passerar en periodgräns vid varannan avläsning
+        try (PriceServer nu = new PriceServer(new ElpriserAPI(false), 0,
+                new TickingClock(Instant.parse("2025-09-03T22:30:00Z")))) {
+            nu.start();
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + nu.port() + "/charging?zone=SE3&duration=2h")).build();
+
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            // Fönstret räknas från samma pågående period som serien i svaret
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.body()).contains("\"start\":\"2025-09-04T01:00+02:00\",\"end\":\"2025-09-04T03:00+02:00\"");
+        }
+    }
+
+    @Test
+    void forecastAboveLimit_isRejected() throws Exception {
+        HttpResponse<String> response = get("/charging?zone=SE3&duration=1h&forecast=100000");
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.body()).contains("mellan 0 och 8");
+    }
+}
@@ -0,0 +1,69 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class PriceStatisticsTest {
+
+    @Test
+    void allNegativePrices_reportCorrectMax() {
+        PriceStatistics.Summary statistik = PriceStatistics.of(new double[]{-0.5, -0.1, -0.3});
+
+        assertThat(statistik.max()).isEqualTo(-0.1);
+        assertThat(statistik.argMax()).isEqualTo(1);
+        assertThat(statistik.min()).isEqualTo(-0.5);
+        assertThat(statistik.argMin()).isEqualTo(0);
+    }
+
+    @Test
+    void ties_returnEarliestIndex() {
+        double[] priser = new double[37];
+        priser[5] = -1;
+        priser[30] = -1;
+        priser[12] = 2;
+        priser[33] = 2;
+
+        PriceStatistics.Summary statistik = PriceStatistics.of(priser);
+
+        assertThat(statistik.argMin()).isEqualTo(5);
+        assertThat(statistik.argMax()).isEqualTo(12);
+        assertThat(PriceStatistics.of(priser, 13, 37).argMax()).isEqualTo(33);
+    }
+
+    @Test
+    void matchesScalarKernelOnRandomSeries() {
+        Random random = new Random(7);
+        for (int n : new int[]{1, 3, 8, 24, 96, 35_041}) {
+            double[] priser = new double[n];
+            for (int i = 0; i < n; i++) {
+                priser[i] = random.nextGaussian() * 0.5 + 0.8;
+            }
+
+            PriceStatistics.Summary väntad = PriceStatistics.scalar(priser, 0, n);
+            PriceStatistics.Summary statistik = PriceStatistics.of(priser);
+
+            assertThat(statistik.count()).isEqualTo(n);
+            assertThat(statistik.min()).isEqualTo(väntad.min());
+            assertThat(statistik.argMin()).isEqualTo(väntad.argMin());
+            assertThat(statistik.max()).isEqualTo(väntad.max());
+            assertThat(statistik.argMax()).isEqualTo(väntad.argMax());
+            assertThat(statistik.sum()).isCloseTo(väntad.sum(), within(1e-9 * n));
+            assertThat(statistik.variance()).isCloseTo(väntad.variance(), within(1e-12 * n));
+        }
+    }
+
+    @Test
+    void meanAndVariance() {
+        PriceStatistics.Summary statistik = PriceStatistics.of(new double[]{2, 4, 4, 4, 5, 5, 7, 9});
+
+        assertThat(statistik.mean()).isEqualTo(5.0);
+        assertThat(statistik.variance()).isCloseTo(4.0, within(1e-12));
+        assertThat(statistik.stdDev()).isCloseTo(2.0, within(1e-12));
+        assertThatThrownBy(() -> PriceStatistics.of(new double[0])).isInstanceOf(IllegalArgumentException.class);
+    }
+}
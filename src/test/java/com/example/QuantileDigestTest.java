@@ -0,0 +1,62 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantileDigestTest {
+
+    @Test
+    void estimatesQuantilesOfLargeSkewedSample() {
+        Random random = new Random(42);
+        double[] values = new double[200_000];
+        QuantileDigest digest = new QuantileDigest();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian());
+            digest.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        // Felet mäts i rang, t-digest är noggrannast nära ändarna
+        for (double q : new double[]{0.01, 0.1, 0.5, 0.9, 0.99}) {
+            int rank = Arrays.binarySearch(values, digest.quantile(q));
+            double actualQ = (rank < 0 ? -rank - 1 : rank) / (double) values.length;
+            assertThat(actualQ).as("q=%s", q).isCloseTo(q, within(q < 0.05 || q > 0.95 ? 0.001 : 0.005));
+        }
+        assertThat(digest.quantile(0)).isEqualTo(values[0]);
+        assertThat(digest.quantile(1)).isEqualTo(values[values.length - 1]);
+    }
+
+    @Test
+    void mergedDigestsMatchSingleDigest() {
+        QuantileDigest left = new QuantileDigest();
+        QuantileDigest right = new QuantileDigest();
+        for (int i = 0; i < 10_000; i++) {
+            (i % 2 == 0 ? left : right).add(i);
+        }
+
+        left.merge(right);
+
+        assertThat(left.weight()).isEqualTo(10_000);
+        assertThat(left.quantile(0.5)).isCloseTo(5_000, within(50.0));
+        assertThat(left.quantile(0.9)).isCloseTo(9_000, within(50.0));
+        assertThat(left.min()).isEqualTo(0);
+        assertThat(left.max()).isEqualTo(9_999);
+    }
+
+    @Test
+    void smallAndEmptyDigests() {
+        QuantileDigest digest = new QuantileDigest();
+        assertThat(digest.quantile(0.5)).isNaN();
+
+        digest.add(3.0);
+        assertThat(digest.quantile(0.5)).isEqualTo(3.0);
+
+        digest.add(1.0, 3);
+        assertThat(digest.quantile(0.1)).isCloseTo(1.0, within(1e-9));
+    }
+}
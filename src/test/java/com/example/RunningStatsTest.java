@@ -0,0 +1,60 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RunningStatsTest {
+
+    @Test
+    void meanAndVarianceMatchTwoPassResult() {
+        RunningStats stats = new RunningStats();
+        double[] values = {2, 4, 4, 4, 5, 5, 7, 9};
+        for (double v : values) {
+            stats.add(v);
+        }
+
+        assertThat(stats.count()).isEqualTo(8);
+        assertThat(stats.mean()).isEqualTo(5.0);
+        assertThat(stats.variance()).isCloseTo(4.0, within(1e-12));
+        assertThat(stats.stdDev()).isCloseTo(2.0, within(1e-12));
+        assertThat(stats.min()).isEqualTo(2.0);
+        assertThat(stats.max()).isEqualTo(9.0);
+    }
+
+    @Test
+    void weightedValueCountsAsRepeatedValue() {
+        RunningStats weighted = new RunningStats();
+        weighted.add(1.0, 3);
+        weighted.add(5.0, 1);
+
+        RunningStats repeated = new RunningStats();
+        for (double v : new double[]{1, 1, 1, 5}) {
+            repeated.add(v);
+        }
+
+        assertThat(weighted.mean()).isCloseTo(repeated.mean(), within(1e-12));
+        assertThat(weighted.variance()).isCloseTo(repeated.variance(), within(1e-12));
+    }
+
+    @Test
+    void mergeEqualsSingleAccumulator() {
+        RunningStats left = new RunningStats();
+        RunningStats right = new RunningStats();
+        RunningStats both = new RunningStats();
+        for (int i = 0; i < 100; i++) {
+            double v = Math.sin(i) * 10 - 3;
+            (i < 37 ? left : right).add(v);
+            both.add(v);
+        }
+
+        left.merge(right);
+
+        assertThat(left.count()).isEqualTo(100);
+        assertThat(left.mean()).isCloseTo(both.mean(), within(1e-12));
+        assertThat(left.variance()).isCloseTo(both.variance(), within(1e-9));
+        assertThat(left.min()).isEqualTo(both.min());
+        assertThat(new RunningStats().mean()).isNaN();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class SlotSchedulerTest {
+
+    @Test
+    void cheapest_picksLowestPricesInTimeOrder() {
+        double[] prices = {0.5, 0.1, 0.4, 0.1, 0.3, 0.2};
+
+        SlotScheduler.Schedule schema = SlotScheduler.cheapest(prices, 3, SlotScheduler.Constraints.none(prices.length));
+
+        assertThat(schema.slots()).containsExactly(1, 3, 5);
+        assertThat(schema.sum()).isCloseTo(0.4, within(1e-12));
+    }
+
+    @Test
+    void cheapest_prefersEarliestOnTies() {
+        double[] prices = {0.2, 0.1, 0.2, 0.1, 0.2};
+
+        SlotScheduler.Schedule schema = SlotScheduler.cheapest(prices, 3, SlotScheduler.Constraints.none(prices.length));
+
+        assertThat(schema.slots()).containsExactly(0, 1, 3);
+    }
+
+    @Test
+    void cheapest_respectsDeadline() {
+        double[] prices = {0.5, 0.4, 0.3, 0.1, 0.1};
+
+        SlotScheduler.Schedule schema = SlotScheduler.cheapest(prices, 2, new SlotScheduler.Constraints(0, 3, 1, SlotScheduler.UNLIMITED));
+
+        assertThat(schema.slots()).containsExactly(1, 2);
+        assertThat(SlotScheduler.cheapest(prices, 4, new SlotScheduler.Constraints(0, 3, 1, SlotScheduler.UNLIMITED))).isNull();
+    }
+
+    @Test
+    void cheapest_respectsMinRunLength() {
+        double[] prices = {0.1, 0.9, 0.1, 0.9, 0.3, 0.3, 0.9};
+
+        SlotScheduler.Schedule schema = SlotScheduler.cheapest(prices, 2, new SlotScheduler.Constraints(0, prices.length, 2, SlotScheduler.UNLIMITED));
+
+        assertThat(schema.slots()).containsExactly(4, 5);
+    }
+
+    @Test
+    void cheapest_respectsMaxGap() {
+        double[] prices = {0.1, 0.9, 0.9, 0.9, 0.1, 0.2};
+
+        SlotScheduler.Schedule schema = SlotScheduler.cheapest(prices, 2, new SlotScheduler.Constraints(0, prices.length, 1, 2));
+
+        assertThat(schema.slots()).containsExactly(4, 5);
+    }
+
+    @Test
+    void constrainedOversizeProblem_isRejected() {
+        // Ett år av kvartspriser med många perioder att välja skulle kräva flera GB för tabellen
+        double[] prices = new double[365 * 96];
+
+        assertThatThrownBy(() -> SlotScheduler.cheapest(prices, 20_000,
+                new SlotScheduler.Constraints(0, prices.length, 4, 8)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("För stort schema");
+        assertThat(SlotScheduler.cheapest(prices, 20_000, SlotScheduler.Constraints.none(prices.length)).slots())
+                .hasSize(20_000);
+    }
+
+    @Test
+    void constrainedSolution_matchesBruteForce() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            int n = 4 + random.nextInt(9);
+            double[] prices = new double[n];
+            for (int i = 0; i < n; i++) {
+                prices[i] = random.nextInt(20) / 10.0 - 0.5;
+            }
+            int count = 1 + random.nextInt(n);
+            int minRun = 1 + random.nextInt(3);
+            int maxGap = random.nextInt(4);
+            SlotScheduler.Schedule schema = SlotScheduler.cheapest(prices, count, new SlotScheduler.Constraints(0, n, minRun, maxGap));
+
+            double best = Double.POSITIVE_INFINITY;
+            for (int mask = 0; mask < (1 << n); mask++) {
+                if (Integer.bitCount(mask) == count && valid(mask, n, minRun, maxGap)) {
+                    double sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        if ((mask & (1 << i)) != 0) sum += prices[i];
+                    }
+                    best = Math.min(best, sum);
+                }
+            }
+            if (best == Double.POSITIVE_INFINITY) {
+                assertThat(schema).isNull();
+            } else {
+                assertThat(schema).isNotNull();
+                assertThat(schema.sum()).isCloseTo(best, within(1e-9));
+                int mask = 0;
+                for (int slot : schema.slots()) mask |= 1 << slot;
+                assertThat(valid(mask, n, minRun, maxGap)).isTrue();
+            }
+        }
+    }
+
+    private static boolean valid(int mask, int n, int minRun, int maxGap) {
+        int run = 0;
+        int gap = -1; // -1 = ingen körning än
+        for (int i = 0; i <= n; i++) {
+            boolean on = i < n && (mask & (1 << i)) != 0;
+            if (on) {
+                if (gap > maxGap) return false;
+                gap = 0;
+                run++;
+            } else {
+                if (run > 0 && run < minRun) return false;
+                run = 0;
+                if (gap >= 0) gap++;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example;
+
+import com.example.api.ElpriserAPI.Elpris;
+import com.example.api.ElpriserAPI.Prisklass;
+import com.example.api.PriceSeries;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ZoneComparisonTest {
+
+    private static PriceSeries series(String startIso, int minutes, double... sek) {
+        List<Elpris> priser = new ArrayList<>();
+        ZonedDateTime start = ZonedDateTime.parse(startIso);
+        for (int i = 0; i < sek.length; i++) {
+            priser.add(new Elpris(sek[i], 0, 0, start.plusMinutes((long) minutes * i),
+                    start.plusMinutes((long) minutes * (i + 1))));
+        }
+        return PriceSeries.of(priser);
+    }
+
+    @Test
+    void alignsByStartTimeAndFindsCheapestZonePerSlot() {
+        Map<Prisklass, PriceSeries> serier = new EnumMap<>(Prisklass.class);
+        serier.put(Prisklass.SE1, series("2025-09-04T00:00:00+02:00", 60, 0.10, 0.50, 0.20, 0.30));
+        // SE3 saknar första timmen
+        serier.put(Prisklass.SE3, series("2025-09-04T01:00:00+02:00", 60, 0.40, 0.10, 0.30));
+        serier.put(Prisklass.SE4, series("2025-09-04T00:00:00+02:00", 60, 0.90, 0.80, 0.60, 0.30));
+
+        ZoneComparison jämförelse = ZoneComparison.of(serier);
+
+        assertThat(jämförelse.zones()).containsExactly(Prisklass.SE1, Prisklass.SE3, Prisklass.SE4);
+        assertThat(jämförelse.size()).isEqualTo(3);
+        assertThat(jämförelse.timeStart(0)).isEqualTo(ZonedDateTime.parse("2025-09-04T01:00:00+02:00"));
+        assertThat(jämförelse.prices(1)).containsExactly(0.40, 0.10, 0.30);
+        assertThat(jämförelse.cheapest(0)).isEqualTo(Prisklass.SE3);
+        assertThat(jämförelse.cheapest(1)).isEqualTo(Prisklass.SE3);
+        // Lika pris i alla zoner ger den första
+        assertThat(jämförelse.cheapest(2)).isEqualTo(Prisklass.SE1);
+        assertThat(jämförelse.spread(0)).isCloseTo(0.40, within(1e-12));
+        assertThat(jämförelse.pairSpread(1)).isCloseTo(0.40, within(1e-12));
+        assertThat(jämförelse.spread(2)).isZero();
+    }
+
+    @Test
+    void mergesQuarterHoursWhenResolutionsDiffer() {
+        Map<Prisklass, PriceSeries> serier = new EnumMap<>(Prisklass.class);
+        serier.put(Prisklass.SE2, series("2025-10-01T00:00:00+02:00", 15, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8));
+        serier.put(Prisklass.SE3, series("2025-10-01T00:00:00+02:00", 60, 0.3, 0.5));
+        serier.put(Prisklass.SE4, PriceSeries.empty());
+
+        ZoneComparison jämförelse = ZoneComparison.of(serier);
+
+        assertThat(jämförelse.zones()).containsExactly(Prisklass.SE2, Prisklass.SE3);
+        assertThat(jämförelse.size()).isEqualTo(2);
+        assertThat(jämförelse.lengthSeconds(0)).isEqualTo(3600);
+        assertThat(jämförelse.price(0, 0)).isCloseTo(0.25, within(1e-12));
+        assertThat(jämförelse.cheapest(0)).isEqualTo(Prisklass.SE2);
+        assertThat(jämförelse.cheapest(1)).isEqualTo(Prisklass.SE3);
+        assertThat(ZoneComparison.of(Map.of()).isEmpty()).isTrue();
+    }
+}
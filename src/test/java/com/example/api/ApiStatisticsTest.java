@@ -0,0 +1,99 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Prisklass;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiStatisticsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 4);
+
+    @TempDir
+    Path cacheDir;
+
+    @AfterEach
+    void tearDown() {
+        ElpriserAPI.clearMockResponse();
+    }
+
+    @Test
+    void countsCacheDiskNetworkAndErrors() throws Exception {
+        byte[] body = ("[{\"SEK_per_kWh\":0.5,\"EUR_per_kWh\":0.05,\"EXR\":10.0,\"time_start\":\"" + DAY
+                + "T00:00:00+02:00\",\"time_end\":\"" + DAY + "T01:00:00+02:00\"}]").getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            byte[] svar = path.endsWith("_SE1.json") ? body : path.endsWith("_SE2.json") ? "{inte json".getBytes() : null;
+            exchange.sendResponseHeaders(svar == null ? 404 : 200, svar == null ? -1 : svar.length);
+            if (svar != null) {
+                exchange.getResponseBody().write(svar);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            ApiStatistics statistik = new ApiStatistics();
+            String baseUrl = "http://localhost:" + server.getAddress().getPort();
+            ElpriserAPI api = ElpriserAPI.builder().cacheDir(cacheDir).metrics(statistik).baseUrl(baseUrl).build();
+
+            api.getPriser(DAY, Prisklass.SE1);
+            api.getPriser(DAY, Prisklass.SE1);
+            api.getPriser(DAY, Prisklass.SE2);
+            api.getPriser(DAY, Prisklass.SE3);
+            // En ny instans läser samma dag från disk
+            ElpriserAPI.builder().cacheDir(cacheDir).metrics(statistik).baseUrl(baseUrl).build().getPriser(DAY, Prisklass.SE1);
+
+            assertThat(statistik.getCacheHits()).isEqualTo(1);
+            assertThat(statistik.getCacheMisses()).isEqualTo(4);
+            assertThat(statistik.getDiskHits()).isEqualTo(1);
+            assertThat(statistik.getNetworkFetches()).isEqualTo(3);
+            assertThat(statistik.getNotFound()).isEqualTo(1);
+            assertThat(statistik.getParseErrors()).isEqualTo(1);
+            assertThat(statistik.getBytesDownloaded()).isEqualTo(body.length + "{inte json".length());
+            assertThat(statistik.fetchLatency().count()).isEqualTo(3);
+            assertThat(statistik.getCacheHitRatio()).isEqualTo(0.2);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void histogramPercentilesAreUpperBoundsWithinFactorTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+
+        assertThat(histogram.count()).isEqualTo(100);
+        assertThat(histogram.percentile(0.5)).isBetween(1_000L, 2_000L);
+        assertThat(histogram.percentile(1.0)).isBetween(1_000_000L, 2_000_000L);
+        assertThat(histogram.mean()).isEqualTo((99 * 1_000 + 1_000_000) / 100.0);
+        assertThat(new LatencyHistogram().percentile(0.99)).isZero();
+    }
+
+    @Test
+    void registersAsMBean() throws Exception {
+        ApiStatistics statistik = new ApiStatistics();
+        statistik.cacheHit(10);
+
+        ObjectName name = statistik.registerMBean("test-" + System.nanoTime());
+        try {
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "CacheHits")).isEqualTo(1L);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
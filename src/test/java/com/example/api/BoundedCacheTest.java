@@ -0,0 +1,53 @@
+package com.example.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2, Long.MAX_VALUE, v -> 1, now::get);
+        cache.put("a", "A", BoundedCache.NO_EXPIRY);
+        cache.put("b", "B", BoundedCache.NO_EXPIRY);
+        cache.get("a");
+
+        cache.put("c", "C", BoundedCache.NO_EXPIRY);
+
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("C");
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsByWeight() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, 10, String::length, now::get);
+        cache.put("a", "aaaa", BoundedCache.NO_EXPIRY);
+        cache.put("b", "bbbb", BoundedCache.NO_EXPIRY);
+        cache.put("c", "cccc", BoundedCache.NO_EXPIRY);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.weight()).isEqualTo(8);
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 100, v -> 1, now::get);
+        cache.put("a", "A", 1_000);
+        cache.put("b", "B", BoundedCache.NO_EXPIRY);
+
+        now.set(999);
+        assertThat(cache.get("a")).isEqualTo("A");
+        now.set(1_000);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isEqualTo("B");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ElprisJsonParserTest {
+
+    @Test
+    void parse_matchesRecordValuesExactly() {
+        List<Elpris> priser = ElprisJsonParser.parse("""
+                [{"SEK_per_kWh":0.12229,"EUR_per_kWh":0.01112,"EXR":10.997148,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"}]""");
+
+        assertThat(priser).containsExactly(new Elpris(0.12229, 0.01112, 10.997148,
+                ZonedDateTime.parse("2025-09-04T00:00:00+02:00"),
+                ZonedDateTime.parse("2025-09-04T01:00:00+02:00")));
+    }
+
+    @Test
+    void parse_acceptsAnyKeyOrderWhitespaceAndUnknownKeys() {
+        List<Elpris> priser = ElprisJsonParser.parse("""
+                [
+                  {
+                    "time_end" : "2025-03-30T03:00:00+02:00",
+                    "EXR": 11.5,
+                    "extra": {"nested": [1, "}", {"a": null}]},
+                    "SEK_per_kWh" : -0.0123,
+                    "flag": true,
+                    "EUR_per_kWh": -1.07e-3,
+                    "time_start":"2025-03-30T01:00:00+01:00"
+                  } ,
+                  {"SEK_per_kWh":"1.5","EUR_per_kWh":0.13,"EXR":11.5,"time_start":"2025-03-30T01:00:00Z","time_end":"2025-03-30T02:00:00Z"}
+                ]
+                """);
+
+        assertThat(priser).hasSize(2);
+        Elpris first = priser.get(0);
+        assertThat(first.sekPerKWh()).isEqualTo(-0.0123);
+        assertThat(first.eurPerKWh()).isEqualTo(-1.07e-3);
+        assertThat(first.exr()).isEqualTo(11.5);
+        assertThat(first.timeStart()).isEqualTo(ZonedDateTime.parse("2025-03-30T01:00:00+01:00"));
+        assertThat(first.timeEnd()).isEqualTo(ZonedDateTime.parse("2025-03-30T03:00:00+02:00"));
+        assertThat(priser.get(1).sekPerKWh()).isEqualTo(1.5);
+        assertThat(priser.get(1).timeStart()).isEqualTo(ZonedDateTime.parse("2025-03-30T01:00:00Z"));
+    }
+
+    @Test
+    void parse_skipsObjectsWithMissingFields() {
+        List<Elpris> priser = ElprisJsonParser.parse("""
+                [{"SEK_per_kWh":0.1,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":0.2,"EUR_per_kWh":0.02,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"}]""");
+
+        assertThat(priser).extracting(Elpris::sekPerKWh).containsExactly(0.2);
+    }
+
+    @Test
+    void parse_skipsObjectsWithNullOrWrongTypedValues() {
+        List<Elpris> priser = ElprisJsonParser.parse("""
+                [{"SEK_per_kWh":null,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T00:00:00+02:00","time_end":"2025-09-04T01:00:00+02:00"},
+                 {"SEK_per_kWh":"okänt","EUR_per_kWh":0.01,"EXR":10.0,"time_start":"2025-09-04T01:00:00+02:00","time_end":"2025-09-04T02:00:00+02:00"},
+                 {"SEK_per_kWh":0.1,"EUR_per_kWh":0.01,"EXR":10.0,"time_start":1756936800,"time_end":"2025-09-04T03:00:00+02:00"},
+                 {"SEK_per_kWh":0.2,"EUR_per_kWh":0.02,"EXR":10.0,"time_start":"2025-09-04T03:00:00+02:00","time_end":"2025-09-04T04:00:00+02:00"}]""");
+
+        assertThat(priser).extracting(Elpris::sekPerKWh).containsExactly(0.2);
+    }
+
+    @Test
+    void parse_emptyArray() {
+        assertThat(ElprisJsonParser.parse(" [ ] ")).isEmpty();
+    }
+
+    @Test
+    void parse_rejectsMalformedJson() {
+        assertThatThrownBy(() -> ElprisJsonParser.parse("{\"SEK_per_kWh\":0.1}"))
+                .isInstanceOf(ElprisJsonParser.MalformedJsonException.class);
+        assertThatThrownBy(() -> ElprisJsonParser.parse("[{\"SEK_per_kWh\":0.1"))
+                .isInstanceOf(ElprisJsonParser.MalformedJsonException.class);
+    }
+
+    @Test
+    void epochDay_matchesLocalDate() {
+        for (LocalDate d = LocalDate.of(1999, 12, 25); d.isBefore(LocalDate.of(2001, 3, 5)); d = d.plusDays(1)) {
+            assertThat(ElprisJsonParser.epochDay(d.getYear(), d.getMonthValue(), d.getDayOfMonth()))
+                    .isEqualTo(d.toEpochDay());
+        }
+    }
+}
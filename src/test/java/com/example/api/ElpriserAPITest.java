@@ -0,0 +1,430 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+import com.example.api.ElpriserAPI.FetchResult;
+import com.example.api.ElpriserAPI.Prisklass;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneId;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.example.api.TestPrices.singleHourJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ElpriserAPITest {
+
+    private static final LocalDate DAY1 = LocalDate.of(2025, 9, 4);
+    private static final LocalDate DAY2 = DAY1.plusDays(1);
+    private static final LocalDate DAY3 = DAY1.plusDays(2);
+
+    @TempDir
+    Path cacheDir;
+
+    @AfterEach
+    void tearDown() {
+        ElpriserAPI.clearMockResponse();
+    }
+
+    @Test
+    void bulkFetch_returnsOneResultPerDateAndZoneWithStatus() {
+        ElpriserAPI.setMockResponseForDate(DAY1, singleHourJson(DAY1, 0.1));
+        ElpriserAPI.setMockResponseForDate(DAY2, "not json");
+        ElpriserAPI api = new ElpriserAPI(false);
+
+        List<FetchResult> resultat = api.getPriser(DAY1, DAY3, EnumSet.of(Prisklass.SE1, Prisklass.SE4));
+
+        assertThat(resultat).hasSize(6);
+        assertThat(resultat).extracting(FetchResult::datum).containsExactly(DAY1, DAY1, DAY2, DAY2, DAY3, DAY3);
+        assertThat(resultat).extracting(FetchResult::prisklass)
+                .containsExactly(Prisklass.SE1, Prisklass.SE4, Prisklass.SE1, Prisklass.SE4, Prisklass.SE1, Prisklass.SE4);
+        assertThat(resultat.get(0).ok()).isTrue();
+        assertThat(resultat.get(0).priser()).hasSize(1);
+        assertThat(resultat.get(2).status()).isEqualTo(FetchResult.Status.FAILED);
+        assertThat(resultat.get(2).fel()).contains("JSON");
+        assertThat(resultat.get(4).status()).isEqualTo(FetchResult.Status.NOT_FOUND);
+        assertThat(resultat.get(4).priser()).isEmpty();
+    }
+
+    @Test
+    void bulkFetch_deliversResultsAsTheyComplete() {
+        ElpriserAPI.setMockResponse(singleHourJson(DAY1, 0.2));
+        ElpriserAPI api = new ElpriserAPI(false);
+        ConcurrentLinkedQueue<FetchResult> mottagna = new ConcurrentLinkedQueue<>();
+
+        api.getPriser(DAY1, DAY1.plusDays(29), EnumSet.allOf(Prisklass.class), 3, mottagna::add);
+
+        assertThat(mottagna).hasSize(120).allMatch(FetchResult::ok);
+    }
+
+    @Test
+    void concurrentMissesForSameKey_shareOneFetch() throws Exception {
+        AtomicInteger anrop = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ElpriserAPI.setMockResponseSupplier(() -> {
+            anrop.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return singleHourJson(DAY1, 0.3);
+        });
+        ElpriserAPI api = new ElpriserAPI(false);
+
+        List<Future<List<ElpriserAPI.Elpris>>> svar = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                svar.add(executor.submit(() -> {
+                    start.await();
+                    return api.getPriser(DAY1, Prisklass.SE3);
+                }));
+            }
+            start.countDown();
+        }
+
+        assertThat(anrop.get()).isEqualTo(1);
+        for (Future<List<ElpriserAPI.Elpris>> f : svar) {
+            assertThat(f.get()).hasSize(1);
+        }
+    }
+
+    @Test
+    void notFound_isRememberedForShortTtl() {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger anrop = new AtomicInteger();
+        ElpriserAPI.setMockResponseSupplier(() -> {
+            anrop.incrementAndGet();
+            return "";
+        });
+        ElpriserAPI api = ElpriserAPI.builder()
+                .cacheDir(cacheDir)
+                .notFoundTtl(Duration.ofMinutes(5))
+                .nanoClock(now::get)
+                .build();
+
+        assertThat(api.getPriser(DAY2, Prisklass.SE3)).isEmpty();
+        assertThat(api.getPriser(DAY2, Prisklass.SE3)).isEmpty();
+        assertThat(anrop.get()).isEqualTo(1);
+
+        now.addAndGet(Duration.ofMinutes(5).toNanos());
+        ElpriserAPI.setMockResponseForDate(DAY2, singleHourJson(DAY2, 0.4));
+        assertThat(api.getPriser(DAY2, Prisklass.SE3)).hasSize(1);
+    }
+
+    @Test
+    void currentDay_isRevalidatedButPastDaysAreKept() {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger anrop = new AtomicInteger();
+        ElpriserAPI.setMockResponseSupplier(() -> {
+            anrop.incrementAndGet();
+            return singleHourJson(DAY1, 0.5);
+        });
+        ElpriserAPI api = ElpriserAPI.builder()
+                .cacheDir(cacheDir)
+                .revalidateAfter(Duration.ofHours(1))
+                .clock(Clock.fixed(DAY2.atStartOfDay(ZoneId.of("Europe/Stockholm")).toInstant(), ZoneId.of("Europe/Stockholm")))
+                .nanoClock(now::get)
+                .build();
+
+        api.getPriser(DAY1, Prisklass.SE3);
+        api.getPriser(DAY2, Prisklass.SE3);
+        now.addAndGet(Duration.ofHours(2).toNanos());
+        api.getPriser(DAY1, Prisklass.SE3);
+        api.getPriser(DAY2, Prisklass.SE3);
+
+        assertThat(anrop.get()).isEqualTo(3);
+    }
+
+    @Test
+    void revalidation_sendsValidatorsAndKeepsPricesOn304() throws Exception {
+        byte[] gzip;
+        try (var bytes = new ByteArrayOutputStream(); var out = new GZIPOutputStream(bytes)) {
+            out.write(singleHourJson(DAY1, 0.7).getBytes(StandardCharsets.UTF_8));
+            out.finish();
+            gzip = bytes.toByteArray();
+        }
+        List<String> villkor = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            villkor.add(ifNoneMatch + " " + exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            if ("\"v1\"".equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, gzip.length);
+                exchange.getResponseBody().write(gzip);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            AtomicLong now = new AtomicLong();
+            ElpriserAPI api = ElpriserAPI.builder()
+                    .cacheDir(cacheDir)
+                    .revalidateAfter(Duration.ofHours(1))
+                    .clock(Clock.fixed(DAY1.atStartOfDay(ZoneId.of("Europe/Stockholm")).toInstant(), ZoneId.of("Europe/Stockholm")))
+                    .nanoClock(now::get)
+                    .baseUrl("http://localhost:" + server.getAddress().getPort())
+                    .build();
+
+            assertThat(api.getPriser(DAY1, Prisklass.SE3)).extracting(ElpriserAPI.Elpris::sekPerKWh).containsExactly(0.7);
+            assertThat(api.getPriser(DAY1, Prisklass.SE3)).hasSize(1);
+            now.addAndGet(Duration.ofHours(2).toNanos());
+            assertThat(api.getPriser(DAY1, Prisklass.SE3)).extracting(ElpriserAPI.Elpris::sekPerKWh).containsExactly(0.7);
+
+            assertThat(villkor).containsExactly("null gzip, deflate", "\"v1\" gzip, deflate");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void decode_handlesGzipAndBothDeflateVariants() throws Exception {
+        byte[] text = singleHourJson(DAY1, 0.1).getBytes(StandardCharsets.UTF_8);
+        var gzip = new ByteArrayOutputStream();
+        try (var out = new GZIPOutputStream(gzip)) {
+            out.write(text);
+        }
+        var zlib = new ByteArrayOutputStream();
+        try (var out = new DeflaterOutputStream(zlib)) {
+            out.write(text);
+        }
+        var raw = new ByteArrayOutputStream();
+        try (var out = new DeflaterOutputStream(raw, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+            out.write(text);
+        }
+
+        assertThat(ElpriserAPI.decode(text, "")).isEqualTo(text);
+        assertThat(ElpriserAPI.decode(gzip.toByteArray(), "gzip")).isEqualTo(text);
+        assertThat(ElpriserAPI.decode(zlib.toByteArray(), "deflate")).isEqualTo(text);
+        assertThat(ElpriserAPI.decode(raw.toByteArray(), "Deflate")).isEqualTo(text);
+        assertThatThrownBy(() -> ElpriserAPI.decode(text, "br")).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void async_sharesOneRequestAndCancellingOneCallerDoesNotAffectOthers() throws Exception {
+        CountDownLatch släpp = new CountDownLatch(1);
+        AtomicInteger anrop = new AtomicInteger();
+        byte[] body = singleHourJson(DAY1, 0.3).getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            anrop.incrementAndGet();
+            try {
+                släpp.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            ElpriserAPI api = ElpriserAPI.builder()
+                    .cacheDir(cacheDir)
+                    .baseUrl("http://localhost:" + server.getAddress().getPort())
+                    .build();
+
+            CompletableFuture<List<ElpriserAPI.Elpris>> första = api.getPriserAsync(DAY1, Prisklass.SE2);
+            CompletableFuture<List<ElpriserAPI.Elpris>> andra = api.getPriserAsync(DAY1, Prisklass.SE2);
+            assertThat(första).isNotDone();
+            första.cancel(true);
+            släpp.countDown();
+
+            assertThat(andra.get(5, TimeUnit.SECONDS)).extracting(ElpriserAPI.Elpris::sekPerKWh).containsExactly(0.3);
+            assertThat(api.getPriceSeriesAsync(DAY1, Prisklass.SE2).get(5, TimeUnit.SECONDS).size()).isEqualTo(1);
+            assertThat(anrop.get()).isEqualTo(1);
+        } finally {
+            släpp.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void async_timeoutCompletesCallerExceptionally() throws Exception {
+        CountDownLatch släpp = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                släpp.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            ElpriserAPI api = ElpriserAPI.builder()
+                    .cacheDir(cacheDir)
+                    .baseUrl("http://localhost:" + server.getAddress().getPort())
+                    .build();
+
+            CompletableFuture<List<ElpriserAPI.Elpris>> priser = api.getPriserAsync(DAY1, Prisklass.SE1, Duration.ofMillis(100));
+
+            assertThatThrownBy(() -> priser.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(TimeoutException.class);
+        } finally {
+            släpp.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void networkError_doesNotLeaveInterruptFlagSet() throws Exception {
+        int ledigPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            ledigPort = socket.getLocalPort();
+        }
+        ElpriserAPI api = ElpriserAPI.builder()
+                .cacheDir(cacheDir)
+                .baseUrl("http://localhost:" + ledigPort)
+                .build();
+
+        assertThat(api.getPriser(DAY1, Prisklass.SE3)).isEmpty();
+        assertThat(Thread.interrupted()).isFalse();
+    }
+
+    @Test
+    void scan_readsCachedDaysFromDiskAndFetchesTheRest() throws Exception {
+        ZonedDateTime start = DAY1.atStartOfDay(ZoneId.of("Europe/Stockholm"));
+        new PriceStore(cacheDir).save(DAY1, Prisklass.SE3,
+                List.of(new Elpris(0.42, 0.04, 10.0, start, start.plusHours(1))));
+        int ledigPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            ledigPort = socket.getLocalPort();
+        }
+        ElpriserAPI api = ElpriserAPI.builder()
+                .cacheDir(cacheDir)
+                .baseUrl("http://localhost:" + ledigPort)
+                .build();
+        List<String> besökta = new ArrayList<>();
+
+        long antal = api.scan(DAY1, DAY2, Prisklass.SE3,
+                (startEpoch, length, offset, sek) -> besökta.add(startEpoch + "/" + length + "/" + offset + "/" + sek));
+
+        assertThat(antal).isEqualTo(1);
+        assertThat(besökta).containsExactly(start.toEpochSecond() + "/3600/7200/0.42");
+
+        ElpriserAPI.setMockResponseForDate(DAY2, singleHourJson(DAY2, 0.3));
+        assertThat(api.scan(DAY2, DAY2, Prisklass.SE3, (startEpoch, length, offset, sek) -> besökta.add("mock " + sek)))
+                .isEqualTo(1);
+        assertThat(besökta).last().isEqualTo("mock 0.3");
+    }
+
+    @Test
+    void priceIndex_isBuiltOncePerCachedDay() {
+        ElpriserAPI.setMockResponseForDate(DAY1, singleHourJson(DAY1, 0.25));
+        ElpriserAPI api = ElpriserAPI.builder().cacheDir(cacheDir).build();
+
+        PriceIndex index = api.getPriceIndex(DAY1, Prisklass.SE3);
+
+        assertThat(api.getPriceIndex(DAY1, Prisklass.SE3)).isSameAs(index);
+        assertThat(index.series()).isSameAs(api.getPriceSeries(DAY1, Prisklass.SE3));
+        assertThat(index.min()).isEqualTo(0.25);
+        assertThat(api.getPriceIndex(DAY2, Prisklass.SE1).size()).isZero();
+    }
+
+    @Test
+    void snapshot_exportedDaysAreServedOfflineAfterImport() throws Exception {
+        ElpriserAPI.setMockResponseForDate(DAY1, singleHourJson(DAY1, 0.25));
+        ElpriserAPI.setMockResponseForDate(DAY2, singleHourJson(DAY2, 0.5));
+        ElpriserAPI källa = ElpriserAPI.builder().cacheDir(cacheDir.resolve("kalla")).build();
+        List<Elpris> väntat = källa.getPriser(DAY2, Prisklass.SE1);
+        Path bild = cacheDir.resolve("priser.elps");
+
+        // DAY3 saknar priser och hoppas över
+        assertThat(källa.exportSnapshot(bild, DAY1, DAY3, EnumSet.of(Prisklass.SE1, Prisklass.SE3))).isEqualTo(4);
+        ElpriserAPI.clearMockResponse();
+
+        ElpriserAPI offline = ElpriserAPI.builder().cacheDir(cacheDir.resolve("offline")).offline(true).build();
+        assertThat(offline.isOffline()).isTrue();
+        assertThat(offline.getPriser(DAY1, Prisklass.SE3)).isEmpty();
+        assertThat(offline.getPriceSeries(DAY1, Prisklass.SE3).size()).isZero();
+
+        assertThat(offline.importSnapshot(bild)).isEqualTo(4);
+
+        // Det sparade svaret om att DAY1 saknas glöms vid importen
+        assertThat(offline.getPriser(DAY1, Prisklass.SE3)).extracting(Elpris::sekPerKWh).containsExactly(0.25);
+        List<Elpris> importerat = offline.getPriser(DAY2, Prisklass.SE1);
+        assertThat(importerat).hasSize(1);
+        assertThat(importerat.get(0).timeStart().toOffsetDateTime()).isEqualTo(väntat.get(0).timeStart().toOffsetDateTime());
+        assertThat(importerat.get(0).timeEnd().toOffsetDateTime()).isEqualTo(väntat.get(0).timeEnd().toOffsetDateTime());
+        assertThat(importerat.get(0).eurPerKWh()).isEqualTo(0.01);
+        assertThat(offline.getPriser(DAY3, Prisklass.SE1)).isEmpty();
+        assertThatThrownBy(() -> offline.startPrefetch(EnumSet.of(Prisklass.SE3)))
+                .isInstanceOf(IllegalStateException.class);
+
+        // En ny instans läser de importerade dagarna ur disk-cachen
+        ElpriserAPI nästa = ElpriserAPI.builder().cacheDir(cacheDir.resolve("offline")).offline(true).build();
+        assertThat(nästa.getPriser(DAY2, Prisklass.SE3)).extracting(Elpris::sekPerKWh).containsExactly(0.5);
+    }
+
+    @Test
+    void offlineWithoutCaching_isRejected() {
+        assertThatThrownBy(() -> ElpriserAPI.builder().offline(true).caching(false).build())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("cachning");
+    }
+
+    @Test
+    void snapshot_rejectsTruncatedAndForeignFiles() throws Exception {
+        ElpriserAPI.setMockResponseForDate(DAY1, singleHourJson(DAY1, 0.25));
+        ElpriserAPI api = ElpriserAPI.builder().cacheDir(cacheDir).build();
+        Path bild = cacheDir.resolve("priser.elps");
+        api.exportSnapshot(bild, DAY1, DAY1, EnumSet.of(Prisklass.SE3));
+        ElpriserAPI.clearMockResponse();
+        byte[] hel = Files.readAllBytes(bild);
+        Path avkortad = Files.write(cacheDir.resolve("avkortad.elps"),
+                Arrays.copyOf(hel, hel.length - 12));
+        ByteArrayOutputStream främmande = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(främmande)) {
+            gzip.write("inte priser".getBytes(StandardCharsets.UTF_8));
+        }
+        Path annan = Files.write(cacheDir.resolve("annan.elps"), främmande.toByteArray());
+
+        assertThatThrownBy(() -> api.importSnapshot(avkortad)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> api.importSnapshot(annan)).isInstanceOf(IOException.class)
+                .hasMessageContaining("Inte en ögonblicksbild");
+        assertThatThrownBy(() -> new ElpriserAPI(false).importSnapshot(bild))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
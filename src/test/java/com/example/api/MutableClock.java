@@ -0,0 +1,39 @@
+package com.example.api;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * En klocka som testet kan flytta fram. {@link #withZone(ZoneId)} ger en fast klocka för
+ * den aktuella tiden, så en avläsning i en annan tidszon följer inte med senare ändringar.
+ */
+public final class MutableClock extends Clock {
+    private final ZoneId zone;
+    private Instant now;
+
+    public MutableClock(ZonedDateTime now) {
+        this.zone = now.getZone();
+        this.now = now.toInstant();
+    }
+
+    public void set(ZonedDateTime time) {
+        now = time.toInstant();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return Clock.fixed(now, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return now;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Prisklass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NextDayPrefetcherTest {
+
+    private static final ZoneId STOCKHOLM = ZoneId.of("Europe/Stockholm");
+    private static final LocalDate IDAG = LocalDate.of(2025, 9, 4);
+    private static final LocalDate IMORGON = IDAG.plusDays(1);
+
+    private static ZonedDateTime at(LocalTime tid) {
+        return IDAG.atTime(tid).atZone(STOCKHOLM);
+    }
+
+    @TempDir
+    Path cacheDir;
+
+    @AfterEach
+    void tearDown() {
+        ElpriserAPI.clearMockResponse();
+    }
+
+    @Test
+    void poll_waitsUntilStartTime_thenBacksOffUntilPublished_thenWarmsCache() {
+        AtomicInteger anrop = new AtomicInteger();
+        ElpriserAPI.setMockResponseSupplier(() -> {
+            anrop.incrementAndGet();
+            return "";
+        });
+        MutableClock clock = new MutableClock(at(LocalTime.of(10, 0)));
+        ElpriserAPI api = ElpriserAPI.builder().cacheDir(cacheDir).clock(clock).build();
+        NextDayPrefetcher prefetcher = new NextDayPrefetcher(api, EnumSet.of(Prisklass.SE3, Prisklass.SE4), clock,
+                LocalTime.of(12, 45), Duration.ofMinutes(1), Duration.ofMinutes(3));
+
+        assertThat(prefetcher.poll()).isEqualTo(Duration.ofHours(2).plusMinutes(45));
+        assertThat(anrop.get()).isZero();
+
+        clock.set(at(LocalTime.of(12, 45)));
+        assertThat(prefetcher.poll()).isEqualTo(Duration.ofMinutes(1));
+        assertThat(prefetcher.poll()).isEqualTo(Duration.ofMinutes(2));
+        assertThat(prefetcher.poll()).isEqualTo(Duration.ofMinutes(3));
+        assertThat(prefetcher.poll()).isEqualTo(Duration.ofMinutes(3));
+        // Svaret om att priser saknas cachas, men förhämtningen frågar ändå igen varje gång
+        assertThat(anrop.get()).isEqualTo(8);
+
+        ElpriserAPI.setMockResponseForDate(IMORGON, TestPrices.singleHourJson(IMORGON, 0.5));
+        clock.set(at(LocalTime.of(13, 0)));
+        assertThat(prefetcher.poll()).isEqualTo(Duration.ofHours(23).plusMinutes(45));
+
+        int efterFörhämtning = anrop.get();
+        assertThat(api.getPriser(IMORGON, Prisklass.SE4)).hasSize(1);
+        assertThat(anrop.get()).isEqualTo(efterFörhämtning);
+    }
+
+    @Test
+    void startPrefetch_requiresCaching() {
+        ElpriserAPI api = ElpriserAPI.builder().caching(false).build();
+
+        assertThatThrownBy(() -> api.startPrefetch(EnumSet.allOf(Prisklass.class)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
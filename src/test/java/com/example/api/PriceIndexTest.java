@@ -0,0 +1,72 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PriceIndexTest {
+
+    private static PriceIndex index(double... sek) {
+        List<Elpris> priser = new ArrayList<>();
+        ZonedDateTime start = ZonedDateTime.parse("2025-09-04T00:00:00+02:00");
+        for (int i = 0; i < sek.length; i++) {
+            priser.add(new Elpris(sek[i], 0, 0, start.plusHours(i), start.plusHours(i + 1)));
+        }
+        return PriceIndex.of(PriceSeries.of(priser));
+    }
+
+    @Test
+    void sortedOrderRankAndExtremes_keepTimeOrderOnTies() {
+        PriceIndex index = index(0.3, 0.1, 0.5, 0.1, 0.5, 0.2);
+
+        assertThat(index.sortedIndex(0)).isEqualTo(1);
+        assertThat(index.sortedIndex(1)).isEqualTo(3);
+        assertThat(index.rank(5)).isEqualTo(2);
+        assertThat(index.rank(4)).isEqualTo(5);
+        assertThat(index.argMin()).isEqualTo(1);
+        assertThat(index.argMax()).isEqualTo(2);
+        assertThat(index.min()).isEqualTo(0.1);
+        assertThat(index.max()).isEqualTo(0.5);
+        assertThat(index.countBelow(0.3)).isEqualTo(3);
+        assertThat(index.countBelow(0.0)).isZero();
+        assertThat(index.countBelow(1.0)).isEqualTo(6);
+    }
+
+    @Test
+    void rangeSumsAndVariance() {
+        PriceIndex index = index(2, 4, 4, 4, 5, 5, 7, 9);
+
+        assertThat(index.sum(0, 8)).isEqualTo(40.0);
+        assertThat(index.sum(1, 4)).isEqualTo(12.0);
+        assertThat(index.average(6, 8)).isEqualTo(8.0);
+        assertThat(index.variance(0, 8)).isCloseTo(4.0, within(1e-12));
+        assertThat(index.variance(1, 4)).isCloseTo(0.0, within(1e-12));
+    }
+
+    @Test
+    void variance_keepsPrecisionForLargeOffset() {
+        // Med kvadratsummor försvinner hela variansen i avrundningen kring 1e8
+        PriceIndex index = index(1e8 + 1, 1e8 + 2, 1e8 + 3, 1e8 + 4);
+
+        assertThat(index.variance(0, 4)).isCloseTo(1.25, within(1e-9));
+        assertThat(index.variance(1, 3)).isCloseTo(0.25, within(1e-9));
+    }
+
+    @Test
+    void cheapestWindow_matchesEarliestCheapestSum() {
+        PriceIndex index = index(0.5, 0.1, 0.2, 0.9, 0.1, 0.2, 0.4);
+
+        assertThat(index.cheapestWindow(2)).isEqualTo(1);
+        assertThat(index.cheapestWindow(2)).isEqualTo(1);
+        assertThat(index.cheapestWindow(3)).isEqualTo(4);
+        assertThat(index.cheapestWindow(7)).isZero();
+        assertThat(index.cheapestWindow(8)).isEqualTo(-1);
+        assertThat(index(-0.2, -0.5, -0.1).argMax()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PriceSeriesTest {
+
+    private static PriceSeries series(String startIso, double... sek) {
+        List<Elpris> priser = new ArrayList<>();
+        ZonedDateTime start = ZonedDateTime.parse(startIso);
+        for (int i = 0; i < sek.length; i++) {
+            priser.add(new Elpris(sek[i], 0, 0, start.plusHours(i), start.plusHours(i + 1)));
+        }
+        return PriceSeries.of(priser);
+    }
+
+    private static PriceSeries quarters(String startIso, int count) {
+        List<Elpris> priser = new ArrayList<>();
+        ZonedDateTime start = ZonedDateTime.parse(startIso);
+        for (int i = 0; i < count; i++) {
+            priser.add(new Elpris(i, 0, 0, start.plusMinutes(15L * i), start.plusMinutes(15L * (i + 1))));
+        }
+        return PriceSeries.of(priser);
+    }
+
+    @Test
+    void of_keepsPricesAndTimes() {
+        PriceSeries serie = series("2025-09-04T22:00:00+02:00", 0.3, 0.1);
+
+        assertThat(serie.size()).isEqualTo(2);
+        assertThat(serie.price(1)).isEqualTo(0.1);
+        assertThat(serie.timeStart(1)).isEqualTo(ZonedDateTime.parse("2025-09-04T23:00:00+02:00"));
+        assertThat(serie.timeEnd(1)).isEqualTo(ZonedDateTime.parse("2025-09-05T00:00:00+02:00"));
+        assertThat(serie.lengthSeconds(0)).isEqualTo(3600);
+    }
+
+    @Test
+    void slice_andConcatOfAdjacentSlices_shareArrays() {
+        PriceSeries serie = series("2025-09-04T00:00:00+02:00", 0.5, 0.4, 0.3, 0.2, 0.1);
+
+        PriceSeries left = serie.slice(1, 3);
+        PriceSeries right = serie.slice(3, 5);
+        PriceSeries joined = left.concat(right);
+
+        assertThat(left.toPriceArray()).containsExactly(0.4, 0.3);
+        assertThat(joined.toPriceArray()).containsExactly(0.4, 0.3, 0.2, 0.1);
+        assertThat(joined.timeStart(0)).isEqualTo(serie.timeStart(1));
+        assertThatThrownBy(() -> left.price(2)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void concat_ofSeparateDays_copiesOnce() {
+        PriceSeries today = series("2025-09-04T22:00:00+02:00", 0.5, 0.2);
+        PriceSeries tomorrow = series("2025-09-05T00:00:00+02:00", 0.05, 0.4);
+
+        PriceSeries both = today.concat(tomorrow);
+
+        assertThat(both.toPriceArray()).containsExactly(0.5, 0.2, 0.05, 0.4);
+        assertThat(both.timeStart(2)).isEqualTo(ZonedDateTime.parse("2025-09-05T00:00:00+02:00"));
+        assertThat(today.concat(PriceSeries.empty())).isSameAs(today);
+    }
+
+    @Test
+    void sortedIndices_isStableForEqualPrices() {
+        double[] prices = new double[40];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = (i * 7) % 5 / 10.0;
+        }
+        PriceSeries serie = series("2025-09-04T00:00:00+02:00", prices);
+
+        int[] order = serie.sortedIndices();
+
+        for (int k = 1; k < order.length; k++) {
+            double prev = serie.price(order[k - 1]);
+            double curr = serie.price(order[k]);
+            assertThat(prev).isLessThanOrEqualTo(curr);
+            if (prev == curr) {
+                assertThat(order[k - 1]).isLessThan(order[k]);
+            }
+        }
+    }
+
+    @Test
+    void indexAt_findsContainingPeriod() {
+        PriceSeries serie = series("2025-09-04T00:00:00+02:00", 0.1, 0.2, 0.3);
+        long start = serie.startEpochSecond(0);
+
+        assertThat(serie.indexAt(start)).isEqualTo(0);
+        assertThat(serie.indexAt(start + 3600 + 59)).isEqualTo(1);
+        assertThat(serie.indexAt(start - 1)).isEqualTo(-1);
+        assertThat(serie.indexAt(serie.endEpochSecond(2))).isEqualTo(-1);
+    }
+
+    @Test
+    void resample_quarterHoursToHours_averagesEachHour() {
+        PriceSeries kvart = quarters("2025-10-01T00:00:00+02:00", 96);
+
+        PriceSeries timmar = kvart.resample(Duration.ofHours(1));
+
+        assertThat(kvart.resolutionSeconds()).isEqualTo(900);
+        assertThat(timmar.size()).isEqualTo(24);
+        assertThat(timmar.resolutionSeconds()).isEqualTo(3600);
+        assertThat(timmar.price(0)).isEqualTo(1.5);
+        assertThat(timmar.price(23)).isEqualTo(93.5);
+        assertThat(timmar.timeStart(1)).isEqualTo(ZonedDateTime.parse("2025-10-01T01:00:00+02:00"));
+        assertThat(timmar.timeEnd(23)).isEqualTo(ZonedDateTime.parse("2025-10-02T00:00:00+02:00"));
+        assertThat(timmar.averagePrice()).isEqualTo(kvart.averagePrice());
+    }
+
+    @Test
+    void resample_toHalfHours_andNoOpWhenAlreadyCoarse() {
+        PriceSeries kvart = quarters("2025-10-01T10:00:00+02:00", 4);
+        PriceSeries timmar = series("2025-10-01T10:00:00+02:00", 0.1, 0.2);
+
+        assertThat(kvart.resample(Duration.ofMinutes(30)).toPriceArray()).containsExactly(0.5, 2.5);
+        assertThat(timmar.resample(Duration.ofMinutes(30))).isSameAs(timmar);
+        assertThatThrownBy(() -> kvart.resample(Duration.ofMinutes(7)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void resample_alignsToLocalHoursOverDstChange() {
+        // 26 oktober 2025 har 25 timmar, 02:00-03:00 förekommer två gånger
+        PriceSeries kvart = quarters("2025-10-26T00:00:00+02:00", 100);
+
+        PriceSeries timmar = kvart.resample(Duration.ofHours(1));
+
+        assertThat(timmar.size()).isEqualTo(25);
+        assertThat(timmar.timeStart(2)).isEqualTo(ZonedDateTime.parse("2025-10-26T02:00:00+02:00"));
+        assertThat(timmar.timeStart(3)).isEqualTo(ZonedDateTime.parse("2025-10-26T02:00:00+01:00"));
+        assertThat(timmar.timeEnd(24)).isEqualTo(ZonedDateTime.parse("2025-10-27T00:00:00+01:00"));
+    }
+
+    @Test
+    void uniform_mergesMixedResolutionToLongestPeriod() {
+        PriceSeries idag = series("2025-09-30T22:00:00+02:00", 1.0, 2.0);
+        PriceSeries imorgon = quarters("2025-10-01T00:00:00+02:00", 8);
+        PriceSeries båda = idag.concat(imorgon);
+
+        PriceSeries lika = båda.uniform();
+
+        assertThat(båda.resolutionSeconds()).isEqualTo(-1);
+        assertThat(lika.toPriceArray()).containsExactly(1.0, 2.0, 1.5, 5.5);
+        assertThat(lika.uniform()).isSameAs(lika);
+    }
+
+    @Test
+    void averagePrice_isWeightedByPeriodLength() {
+        PriceSeries timme = series("2025-09-30T23:00:00+02:00", 4.0);
+        PriceSeries kvart = quarters("2025-10-01T00:00:00+02:00", 1);
+
+        // En timme à 4,0 och en kvart à 0,0 ger (4 * 60) / 75
+        assertThat(timme.concat(kvart).averagePrice()).isEqualTo(3.2);
+        assertThat(PriceSeries.empty().averagePrice()).isEqualTo(0.0);
+    }
+
+    @Test
+    void ofSlots_takesOffsetsFromZoneRules() {
+        // Vintertid börjar 03:00 den 26 oktober 2025, timmen 02-03 finns två gånger
+        long start = ZonedDateTime.parse("2025-10-26T01:00:00+02:00").toEpochSecond();
+
+        PriceSeries serie = PriceSeries.of(start, 3600, new double[]{1.0, 2.0, 3.0, 4.0}, ZoneId.of("Europe/Stockholm"));
+
+        assertThat(serie.resolutionSeconds()).isEqualTo(3600);
+        assertThat(serie.timeStart(1)).hasToString("2025-10-26T02:00+02:00");
+        assertThat(serie.timeStart(2)).hasToString("2025-10-26T02:00+01:00");
+        assertThat(serie.timeEnd(3)).hasToString("2025-10-26T04:00+01:00");
+        assertThat(serie.price(3)).isEqualTo(4.0);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.api;
+
+import com.example.api.ElpriserAPI.Elpris;
+import com.example.api.ElpriserAPI.Prisklass;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceStoreTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private static List<Elpris> day(LocalDate datum, double... sek) {
+        List<Elpris> priser = new ArrayList<>();
+        ZonedDateTime start = ZonedDateTime.parse(datum + "T00:00:00+02:00");
+        for (int i = 0; i < sek.length; i++) {
+            priser.add(new Elpris(sek[i], sek[i] / 10, 10.0, start.plusHours(i), start.plusHours(i + 1)));
+        }
+        return priser;
+    }
+
+    @Test
+    void saveThenLoad_returnsSamePrices() throws Exception {
+        PriceStore store = new PriceStore(cacheDir);
+        LocalDate datum = LocalDate.of(2025, 9, 4);
+        List<Elpris> priser = day(datum, 0.12229, 0.09886, -0.01);
+
+        store.save(datum, Prisklass.SE3, priser);
+
+        assertThat(store.load(datum, Prisklass.SE3)).isEqualTo(priser);
+        assertThat(cacheDir.resolve("SE3_2025-09.elpb")).exists();
+        try (var files = Files.list(cacheDir)) {
+            // Ingen kvarlämnad temporär fil, bara månadsfilen och låsfilen
+            assertThat(files.map(f -> f.getFileName().toString())).containsExactlyInAnyOrder("SE3_2025-09.elpb", "elpb.lock");
+        }
+    }
+
+    @Test
+    void daysInSameMonth_shareOneFile() throws Exception {
+        PriceStore store = new PriceStore(cacheDir);
+        LocalDate first = LocalDate.of(2025, 9, 4);
+        LocalDate second = LocalDate.of(2025, 9, 5);
+
+        store.save(second, Prisklass.SE1, day(second, 0.3, 0.4));
+        store.save(first, Prisklass.SE1, day(first, 0.1, 0.2));
+
+        assertThat(store.load(first, Prisklass.SE1)).isEqualTo(day(first, 0.1, 0.2));
+        assertThat(store.load(second, Prisklass.SE1)).isEqualTo(day(second, 0.3, 0.4));
+        assertThat(store.load(LocalDate.of(2025, 9, 6), Prisklass.SE1)).isNull();
+        assertThat(store.load(first, Prisklass.SE2)).isNull();
+
+        List<Double> scanned = new ArrayList<>();
+        long rows = store.scan(Prisklass.SE1, first, second, (start, length, offset, sek, eur, exr) -> scanned.add(sek));
+        assertThat(rows).isEqualTo(4);
+        assertThat(scanned).containsExactly(0.1, 0.2, 0.3, 0.4);
+    }
+
+    @Test
+    void saveAll_writesEachMonthOnceAndReplacesGivenDays() throws Exception {
+        PriceStore store = new PriceStore(cacheDir);
+        LocalDate kvar = LocalDate.of(2025, 9, 3);
+        LocalDate ersatt = LocalDate.of(2025, 9, 30);
+        LocalDate oktober = LocalDate.of(2025, 10, 1);
+        store.save(kvar, Prisklass.SE3, day(kvar, 0.1));
+        store.save(ersatt, Prisklass.SE3, day(ersatt, 0.2));
+
+        store.saveAll(Prisklass.SE3, Map.of(ersatt, day(ersatt, 0.3, 0.4), oktober, day(oktober, 0.5)));
+
+        assertThat(store.load(kvar, Prisklass.SE3)).isEqualTo(day(kvar, 0.1));
+        assertThat(store.load(ersatt, Prisklass.SE3)).isEqualTo(day(ersatt, 0.3, 0.4));
+        assertThat(store.load(oktober, Prisklass.SE3)).isEqualTo(day(oktober, 0.5));
+        try (var files = Files.list(cacheDir)) {
+            assertThat(files.filter(f -> f.toString().endsWith(".elpb"))).hasSize(2);
+        }
+    }
+
+    @Test
+    void concurrentSavesFromSeparateStores_keepEveryDay() throws Exception {
+        // Två lager i samma katalog motsvarar t.ex. servern och en körning från kommandoraden
+        PriceStore a = new PriceStore(cacheDir);
+        PriceStore b = new PriceStore(cacheDir);
+        List<LocalDate> dagar = new ArrayList<>();
+        for (int d = 1; d <= 30; d++) {
+            dagar.add(LocalDate.of(2025, 9, d));
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> klara = new ArrayList<>();
+            for (int i = 0; i < dagar.size(); i++) {
+                PriceStore store = i % 2 == 0 ? a : b;
+                LocalDate datum = dagar.get(i);
+                klara.add(executor.submit(() -> {
+                    store.save(datum, Prisklass.SE3, day(datum, datum.getDayOfMonth()));
+                    return null;
+                }));
+            }
+            for (Future<?> f : klara) {
+                f.get();
+            }
+        }
+
+        PriceStore läsare = new PriceStore(cacheDir);
+        for (LocalDate datum : dagar) {
+            assertThat(läsare.load(datum, Prisklass.SE3)).isEqualTo(day(datum, datum.getDayOfMonth()));
+        }
+    }
+
+    @Test
+    void load_discardsCorruptFile() throws Exception {
+        PriceStore store = new PriceStore(cacheDir);
+        LocalDate datum = LocalDate.of(2025, 9, 4);
+        store.save(datum, Prisklass.SE3, day(datum, 0.1, 0.2));
+        Path file = cacheDir.resolve("SE3_2025-09.elpb");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 3] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThat(new PriceStore(cacheDir).load(datum, Prisklass.SE3)).isNull();
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void getPriser_loadsStoredDayWithoutNetwork() throws Exception {
+        LocalDate datum = LocalDate.of(2025, 9, 4);
+        new PriceStore(cacheDir).save(datum, Prisklass.SE3, day(datum, 0.12229, 0.09886));
+        ElpriserAPI api = new ElpriserAPI(true, cacheDir);
+
+        List<Elpris> priser = api.getPriser(datum, Prisklass.SE3);
+
+        assertThat(priser).hasSize(2);
+        assertThat(priser.get(1).sekPerKWh()).isEqualTo(0.09886);
+    }
+}
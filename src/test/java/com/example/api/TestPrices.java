@@ -0,0 +1,43 @@
+package com.example.api;
+
+import java.time.LocalDate;
+
+/**
+ * Svar från prisservern för tester. Alla dygn antas ligga i september, då offset är +02:00.
+ */
+public final class TestPrices {
+
+    private TestPrices() {
+    }
+
+    /** En enda timme 00-01 med priset {@code sek}. */
+    public static String singleHourJson(LocalDate datum, double sek) {
+        return "[{\"SEK_per_kWh\":" + sek + ",\"EUR_per_kWh\":0.01,\"EXR\":10.0,\"time_start\":\"" + datum
+                + "T00:00:00+02:00\",\"time_end\":\"" + datum + "T01:00:00+02:00\"}]";
+    }
+
+    /** Timpriser för ett dygn där timme h kostar {@code priser[h]}, övriga timmar 1 kr. */
+    public static String hourlyJson(LocalDate datum, double... priser) {
+        double[] dygn = new double[24];
+        for (int h = 0; h < 24; h++) {
+            dygn[h] = h < priser.length ? priser[h] : 1.0;
+        }
+        return slotJson(datum, 60, dygn);
+    }
+
+    /** Priser med periodlängden {@code minuter} från dygnets början, en period per pris. */
+    public static String slotJson(LocalDate datum, int minuter, double... priser) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < priser.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String start = datum.atStartOfDay().plusMinutes((long) i * minuter) + ":00+02:00";
+            String end = datum.atStartOfDay().plusMinutes((long) (i + 1) * minuter) + ":00+02:00";
+            json.append("{\"SEK_per_kWh\":").append(priser[i])
+                    .append(",\"EUR_per_kWh\":0.0,\"EXR\":10.0,\"time_start\":\"").append(start)
+                    .append("\",\"time_end\":\"").append(end).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+}